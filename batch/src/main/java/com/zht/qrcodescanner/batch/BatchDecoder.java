@@ -0,0 +1,182 @@
+package com.zht.qrcodescanner.batch;
+
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.zht.qrcodescanner.decode.CropRect;
+import com.zht.qrcodescanner.decode.FrameDecoder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Decodes many images in parallel on a {@link ForkJoinPool}. The list of images is split in
+ * halves until every task holds a single image, so idle threads steal work from busy ones and
+ * a few slow images don't hold up the rest. Every pool thread has its own {@link FrameDecoder},
+ * nothing is shared between threads but the output, so throughput grows with the cores.
+ * <p>
+ * 批量解码：在 ForkJoinPool 上并行解码图片，结果以 JSON lines 格式输出。
+ */
+public final class BatchDecoder {
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Worker> workers;
+
+    /**
+     * @param hints       the reader hints, see {@link com.zht.qrcodescanner.decode.DecodeHints#build}.
+     * @param parallelism the number of decode threads, usually the number of cores.
+     */
+    public BatchDecoder(final Map<DecodeHintType, ?> hints, int parallelism) {
+        pool = new ForkJoinPool(Math.max(1, parallelism));
+        workers = new ThreadLocal<Worker>() {
+            @Override
+            protected Worker initialValue() {
+                // Each thread gets its own copy, the readers may keep a reference to it.
+                return new Worker(new EnumMap<DecodeHintType, Object>(hints));
+            }
+        };
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Decodes all images, writing one line per image to {@code out} as soon as it is done, so
+     * lines are not in input order; each carries the image's index.
+     *
+     * @return the throughput and latency figures of the run.
+     */
+    public BatchReport decode(List<? extends ImageSource> images, JsonLinesWriter out) {
+        long[] latencies = new long[images.size()];
+        long start = System.nanoTime();
+        DecodeTask task = new DecodeTask(images, 0, images.size(), out, latencies);
+        pool.invoke(task);
+        long wallNanos = System.nanoTime() - start;
+        return new BatchReport(latencies, task.decoded, task.failed, wallNanos);
+    }
+
+    /**
+     * Stops the decode threads, waiting at most {@code timeoutMs} for running work.
+     */
+    public void shutdown(long timeoutMs) {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Per thread decoding state.
+     */
+    private static final class Worker {
+
+        private final FrameDecoder frameDecoder;
+        private int[] row;
+
+        Worker(Map<DecodeHintType, ?> hints) {
+            frameDecoder = new FrameDecoder(hints);
+        }
+
+        Result decode(BufferedImage image) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            if (row == null || row.length < width) {
+                row = new int[width];
+            }
+            byte[] luminance = GreyImage.toLuminance(image, row);
+            return frameDecoder.decode(luminance, width, height, new CropRect(0, 0, width, height));
+        }
+
+        Result decode(RawFrameSource frame) throws IOException {
+            int width = frame.getWidth();
+            int height = frame.getHeight();
+            ByteBuffer data = frame.map();
+            return frameDecoder.decode(data, width, 1, width, height, new CropRect(0, 0, width, height));
+        }
+
+    }
+
+    private final class DecodeTask extends RecursiveAction {
+
+        private final List<? extends ImageSource> images;
+        private final int from;
+        private final int to;
+        private final JsonLinesWriter out;
+        private final long[] latencies;
+        int decoded;
+        int failed;
+
+        DecodeTask(List<? extends ImageSource> images, int from, int to,
+                   JsonLinesWriter out, long[] latencies) {
+            this.images = images;
+            this.from = from;
+            this.to = to;
+            this.out = out;
+            this.latencies = latencies;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                DecodeTask left = new DecodeTask(images, from, middle, out, latencies);
+                DecodeTask right = new DecodeTask(images, middle, to, out, latencies);
+                invokeAll(left, right);
+                decoded = left.decoded + right.decoded;
+                failed = left.failed + right.failed;
+            } else if (to > from) {
+                decodeOne(from);
+            }
+        }
+
+        private void decodeOne(int index) {
+            ImageSource image = images.get(index);
+            long start = System.nanoTime();
+            Result result = null;
+            String error = null;
+            try {
+                if (image instanceof RawFrameSource) {
+                    //原始帧：内存映射后直接解码
+                    result = workers.get().decode((RawFrameSource) image);
+                } else {
+                    BufferedImage bufferedImage = read(image);
+                    if (bufferedImage == null) {
+                        error = "unsupported image format";
+                    } else {
+                        result = workers.get().decode(bufferedImage);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                error = e.toString();
+            }
+            long nanos = System.nanoTime() - start;
+            latencies[index] = nanos;
+            if (result != null) {
+                decoded = 1;
+            } else if (error != null) {
+                failed = 1;
+            }
+            out.write(index, image.getName(), result, error, nanos);
+        }
+
+    }
+
+    private static BufferedImage read(ImageSource image) throws IOException {
+        try (InputStream in = image.open()) {
+            return ImageIO.read(in);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.zht.qrcodescanner.batch;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.zht.qrcodescanner.decode.DecodeHints;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point:
+ * <pre>
+ * BatchMain [--threads N] [--out results.jsonl] [--formats QR_CODE,DATA_MATRIX]
+ *           [--charset UTF-8] [--try-harder] (file | directory | -)...
+ * </pre>
+ * Directories are searched recursively for images and raw frames, see {@link RawFrameSource};
+ * {@code -} reads image paths from standard input, one per line. Results go to {@code --out} or
+ * standard output, the report to standard error.
+ */
+public final class BatchMain {
+
+    private BatchMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String out = null;
+        Collection<BarcodeFormat> formats = DecodeHints.DEFAULT_FORMATS;
+        String characterSet = null;
+        Map<DecodeHintType, Object> baseHints = new EnumMap<>(DecodeHintType.class);
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--threads":
+                    threads = Integer.parseInt(value(args, ++i, arg));
+                    break;
+                case "--out":
+                    out = value(args, ++i, arg);
+                    break;
+                case "--formats":
+                    formats = parseFormats(value(args, ++i, arg));
+                    break;
+                case "--charset":
+                    characterSet = value(args, ++i, arg);
+                    break;
+                case "--try-harder":
+                    baseHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+                    break;
+                case "-":
+                    readPaths(inputs);
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        usage("Unknown option " + arg);
+                    }
+                    inputs.add(new File(arg));
+                    break;
+            }
+        }
+        if (inputs.isEmpty()) {
+            usage("No images given");
+        }
+
+        List<ImageSource> images = FileImageSource.collect(inputs);
+        Map<DecodeHintType, Object> hints =
+                DecodeHints.build(formats, baseHints, characterSet, null);
+        BatchDecoder decoder = new BatchDecoder(hints, threads);
+        Writer writer = out == null
+                ? new OutputStreamWriter(System.out, Charset.forName("UTF-8"))
+                : new OutputStreamWriter(new FileOutputStream(out), Charset.forName("UTF-8"));
+        BatchReport report;
+        try (JsonLinesWriter results = new JsonLinesWriter(new BufferedWriter(writer, 64 * 1024))) {
+            report = decoder.decode(images, results);
+        } finally {
+            decoder.shutdown(1000L);
+        }
+        System.err.println(decoder.getParallelism() + " threads: " + report);
+    }
+
+    static Collection<BarcodeFormat> parseFormats(String value) {
+        Collection<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+        for (String name : value.split(",")) {
+            name = name.trim();
+            if (!name.isEmpty()) {
+                try {
+                    formats.add(BarcodeFormat.valueOf(name));
+                } catch (IllegalArgumentException e) {
+                    usage("Unknown format " + name);
+                }
+            }
+        }
+        return formats;
+    }
+
+    private static void readPaths(List<File> inputs) throws IOException {
+        BufferedReader reader =
+                new BufferedReader(new InputStreamReader(System.in, Charset.forName("UTF-8")));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                inputs.add(new File(line));
+            }
+        }
+    }
+
+    static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            usage(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: BatchMain [--threads N] [--out results.jsonl] "
+                + "[--formats QR_CODE,DATA_MATRIX] [--charset UTF-8] [--try-harder] "
+                + "(file | directory | -)...");
+        System.exit(2);
+    }
+
+}
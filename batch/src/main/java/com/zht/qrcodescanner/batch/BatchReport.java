@@ -0,0 +1,84 @@
+package com.zht.qrcodescanner.batch;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and per-image latency of a batch run. The latency of an image covers reading,
+ * converting and decoding it.
+ * <p>
+ * 批量解码的吞吐量和单张图片耗时的分位数。
+ */
+public final class BatchReport {
+
+    private final long[] sortedLatencies;
+    private final int decoded;
+    private final int failed;
+    private final long wallNanos;
+
+    BatchReport(long[] latencies, int decoded, int failed, long wallNanos) {
+        this.sortedLatencies = latencies.clone();
+        Arrays.sort(sortedLatencies);
+        this.decoded = decoded;
+        this.failed = failed;
+        this.wallNanos = wallNanos;
+    }
+
+    public int getImages() {
+        return sortedLatencies.length;
+    }
+
+    /**
+     * @return images in which a barcode was found.
+     */
+    public int getDecoded() {
+        return decoded;
+    }
+
+    /**
+     * @return images which could not be read at all.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return images per second over the whole run.
+     */
+    public double getThroughput() {
+        return wallNanos > 0 ? sortedLatencies.length * 1e9 / wallNanos : 0;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the latency in nanoseconds below which that share of the images finished
+     * (nearest rank), 0 if there were no images.
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+        return sortedLatencies[Math.max(0, Math.min(rank - 1, sortedLatencies.length - 1))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d images, %d decoded, %d failed in %.1f s: %.1f images/s, "
+                        + "latency p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                getImages(), decoded, failed, wallNanos / 1e9, getThroughput(),
+                millis(getLatencyPercentile(50)), millis(getLatencyPercentile(90)),
+                millis(getLatencyPercentile(99)), millis(getLatencyPercentile(100)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
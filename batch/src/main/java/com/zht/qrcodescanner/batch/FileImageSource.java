@@ -0,0 +1,80 @@
+package com.zht.qrcodescanner.batch;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An image file, plus the helpers to collect the images of a directory tree.
+ */
+public final class FileImageSource implements ImageSource {
+
+    private static final List<String> EXTENSIONS =
+            Arrays.asList(".png", ".jpg", ".jpeg", ".bmp", ".gif");
+
+    private final File file;
+
+    public FileImageSource(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return file.getPath();
+    }
+
+    @Override
+    public InputStream open() throws IOException {
+        return new BufferedInputStream(new FileInputStream(file));
+    }
+
+    /**
+     * Adds {@code file} if it is an image or a raw frame, see {@link RawFrameSource}, or all of
+     * them below it if it is a directory, in
+     * name order so that runs over the same tree write their results in the same order.
+     */
+    public static void collect(File file, List<ImageSource> out) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) {
+                return;
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                collect(child, out);
+            }
+        } else if (isImage(file)) {
+            out.add(new FileImageSource(file));
+        } else {
+            RawFrameSource frame = RawFrameSource.of(file);
+            if (frame != null) {
+                out.add(frame);
+            }
+        }
+    }
+
+    public static List<ImageSource> collect(List<File> files) {
+        List<ImageSource> out = new ArrayList<>();
+        for (File file : files) {
+            collect(file, out);
+        }
+        return out;
+    }
+
+    private static boolean isImage(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
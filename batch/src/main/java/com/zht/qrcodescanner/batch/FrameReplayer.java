@@ -0,0 +1,178 @@
+package com.zht.qrcodescanner.batch;
+
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.zht.qrcodescanner.decode.BinarizerSelector;
+import com.zht.qrcodescanner.decode.ByteBufferLuminanceSource;
+import com.zht.qrcodescanner.decode.CropRect;
+import com.zht.qrcodescanner.decode.FrameDecoder;
+import com.zht.qrcodescanner.decode.FrameQualityFilter;
+import com.zht.qrcodescanner.decode.FrameRecording;
+import com.zht.qrcodescanner.decode.HintEscalation;
+import com.zht.qrcodescanner.decode.InvertedScan;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds a recorded preview stream, see {@link FrameRecording}, through the scanner's decode
+ * pipeline: the crop rect the scanner used, the frame quality filter, then a {@link FrameDecoder}
+ * with ROI tracking and pyramid levels as configured. One decoder sees the frames in order, as a
+ * decode worker would.
+ * <p>
+ * At full speed every frame is decoded, back to back, which gives the decode rate. In real time
+ * the frames are replayed at the pace they were recorded, and frames which arrived while the
+ * decoder was still busy are skipped, as the camera would have dropped them; this gives how long
+ * the scanner took to the first result.
+ * <p>
+ * 回放录制的预览帧：与扫码界面使用相同的解码流程，全速或按录制时的节奏解码。
+ */
+public final class FrameReplayer {
+
+    private final FrameDecoder frameDecoder;
+    private final FrameQualityFilter qualityFilter;
+    private ByteBufferLuminanceSource cropSource;
+    private CropRect cropRect;
+    private byte[] crop;
+    private int rejected;
+    private int skipped;
+    private long firstResultNanos = -1L;
+
+    /**
+     * @param hints         the reader hints, see {@link com.zht.qrcodescanner.decode.DecodeHints#build}.
+     * @param options       what the decoder does, see {@link FrameDecoder.Options}.
+     * @param qualityFilter whether to skip dark and blurred frames, as the scanner does with its quality filter on.
+     */
+    public FrameReplayer(Map<DecodeHintType, ?> hints, FrameDecoder.Options options, boolean qualityFilter) {
+        frameDecoder = new FrameDecoder(hints, options);
+        this.qualityFilter = qualityFilter ? new FrameQualityFilter() : null;
+    }
+
+    /**
+     * @param rotation see {@link FrameDecoder#setRotation(int)}; recordings are kept as the
+     *                 camera delivered them.
+     */
+    public void setRotation(int rotation) {
+        frameDecoder.setRotation(rotation);
+    }
+
+    /**
+     * Replays the frames, writing one line per replayed frame to {@code out}, named by its index
+     * in the recording.
+     *
+     * @param realTime whether to keep the recorded pace, see above.
+     * @return the decode rate and latency figures; the latency of a frame covers the quality
+     * filter and the decoder.
+     */
+    public BatchReport replay(FrameRecording recording, boolean realTime, JsonLinesWriter out) {
+        int count = recording.getFrameCount();
+        long[] latencies = new long[count];
+        int replayed = 0;
+        int decoded = 0;
+        rejected = 0;
+        skipped = 0;
+        firstResultNanos = -1L;
+        long start = System.nanoTime();
+        long firstTimestamp = count > 0 ? recording.getTimestampNanos(0) : 0L;
+        int frame = 0;
+        while (frame < count) {
+            if (realTime) {
+                waitUntil(start + recording.getTimestampNanos(frame) - firstTimestamp);
+            }
+            long frameStart = System.nanoTime();
+            Result result = decode(recording, frame);
+            long nanos = System.nanoTime() - frameStart;
+            latencies[replayed++] = nanos;
+            if (result != null) {
+                decoded++;
+                if (firstResultNanos < 0L) {
+                    firstResultNanos = System.nanoTime() - start;
+                }
+            }
+            out.write(frame, "frame " + frame, result, null, nanos);
+            frame++;
+            if (realTime) {
+                // Frames the camera delivered while this one was decoded are gone
+                long elapsed = System.nanoTime() - start;
+                while (frame + 1 < count
+                        && recording.getTimestampNanos(frame + 1) - firstTimestamp <= elapsed) {
+                    frame++;
+                    skipped++;
+                }
+            }
+        }
+        long wallNanos = System.nanoTime() - start;
+        return new BatchReport(Arrays.copyOf(latencies, replayed), decoded, 0, wallNanos);
+    }
+
+    private Result decode(FrameRecording recording, int frame) {
+        CropRect frameCrop = recording.getCrop(frame);
+        int width = frameCrop.getWidth();
+        int height = frameCrop.getHeight();
+        if (cropSource == null || cropSource.getWidth() != width || cropSource.getHeight() != height) {
+            cropSource = new ByteBufferLuminanceSource(width, height);
+            cropRect = new CropRect(0, 0, width, height);
+        }
+        // Only the crop rect is copied out of the recording, then filtered and decoded
+        cropSource.reset(recording.getFrame(frame), recording.getWidth(frame), recording.getHeight(frame),
+                recording.getWidth(frame), 1, frameCrop.getLeft(), frameCrop.getTop());
+        crop = cropSource.getMatrix(crop);
+        if (qualityFilter != null && !qualityFilter.accept(crop, width, height, cropRect)) {
+            rejected++;
+            return null;
+        }
+        return frameDecoder.decode(crop, width, height, cropRect);
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long wait = nanoTime - System.nanoTime();
+        if (wait <= 0L) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return frames the last replay left to the quality filter.
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return frames the last real time replay dropped because the decoder was busy.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return from the start of the last replay to its first result, or -1 if there was none.
+     */
+    public long getFirstResultNanos() {
+        return firstResultNanos;
+    }
+
+    @Override
+    public String toString() {
+        String replay = String.format(Locale.ROOT, "%d rejected, %d skipped, first result after %.1f ms",
+                rejected, skipped, firstResultNanos < 0L ? -1.0 : firstResultNanos / 1e6);
+        BinarizerSelector selector = frameDecoder.getBinarizerSelector();
+        if (selector != null) {
+            replay += ", " + selector;
+        }
+        HintEscalation escalation = frameDecoder.getHintEscalation();
+        if (escalation != null) {
+            replay += ", " + escalation;
+        }
+        InvertedScan invertedScan = frameDecoder.getInvertedScan();
+        return invertedScan == null ? replay : replay + ", " + invertedScan;
+    }
+
+}
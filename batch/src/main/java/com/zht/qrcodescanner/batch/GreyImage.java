@@ -0,0 +1,58 @@
+package com.zht.qrcodescanner.batch;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Converts a decoded image to the 8 bit luminance plane {@link
+ * com.zht.qrcodescanner.decode.FrameDecoder} works on, the same way ZXing's
+ * {@code BufferedImageLuminanceSource} does.
+ * <p>
+ * 将图片转换为灰度（亮度）数据，相当于 NV21 帧的 Y 平面。
+ */
+final class GreyImage {
+
+    private GreyImage() {
+    }
+
+    /**
+     * @param image the decoded image.
+     * @param row   scratch space for one row of ARGB pixels, reallocated if too small.
+     * @return {@code width * height} luminance values, row by row.
+     */
+    static byte[] toLuminance(BufferedImage image, int[] row) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] luminance = new byte[width * height];
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            image.getRaster().getDataElements(0, 0, width, height, luminance);
+            return luminance;
+        }
+        if (row == null || row.length < width) {
+            row = new int[width];
+        }
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                // The color of fully-transparent pixels is irrelevant. They are often, technically, fully-transparent
+                // black (0 alpha, and then 0 RGB). They are often used, of course as the "white" area in a
+                // barcode image. Force any such pixel to be white:
+                if ((pixel & 0xFF000000) == 0) {
+                    luminance[offset + x] = (byte) 0xFF;
+                } else {
+                    // .299R + 0.587G + 0.114B (YUV/YIQ for PAL and NTSC),
+                    // (306*R) >> 10 is approximately equal to R*0.299, and so on.
+                    // 0x200 >> 10 is 0.5, it implements rounding.
+                    luminance[offset + x] = (byte) ((306 * ((pixel >> 16) & 0xFF)
+                            + 601 * ((pixel >> 8) & 0xFF)
+                            + 117 * (pixel & 0xFF)
+                            + 0x200) >> 10);
+                }
+            }
+            offset += width;
+        }
+        return luminance;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.zht.qrcodescanner.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * One image to decode: a file, an upload, anything that can be opened as a stream.
+ * <p>
+ * 待解码的图片。
+ */
+public interface ImageSource {
+
+    /**
+     * @return the name written to the results, e.g. the file path.
+     */
+    String getName();
+
+    /**
+     * Opens the encoded image (PNG, JPEG, BMP, GIF). Called once, from a decode thread; the
+     * caller closes the stream.
+     */
+    InputStream open() throws IOException;
+
+}
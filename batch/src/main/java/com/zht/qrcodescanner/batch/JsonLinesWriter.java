@@ -0,0 +1,121 @@
+package com.zht.qrcodescanner.batch;
+
+import com.google.zxing.Result;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Writes one JSON object per image and line, e.g.
+ * <pre>
+ * {"index":0,"image":"a.png","decoded":true,"format":"QR_CODE","text":"...","millis":12.345}
+ * {"index":1,"image":"b.jpg","decoded":false,"millis":30.120}
+ * {"index":2,"image":"c.gif","decoded":false,"error":"...","millis":0.512}
+ * </pre>
+ * Safe to use from several threads, every line is written at once.
+ * <p>
+ * 以 JSON lines 格式输出解码结果。
+ */
+public final class JsonLinesWriter implements Closeable, Flushable {
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+    private IOException error;
+
+    /**
+     * @param writer where the lines go, should be buffered.
+     */
+    public JsonLinesWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    synchronized void write(int index, String image, Result result, String error, long nanos) {
+        line.setLength(0);
+        line.append("{\"index\":").append(index);
+        line.append(",\"image\":");
+        appendString(line, image);
+        line.append(",\"decoded\":").append(result != null);
+        if (result != null) {
+            line.append(",\"format\":");
+            appendString(line, result.getBarcodeFormat().toString());
+            line.append(",\"text\":");
+            appendString(line, result.getText());
+        }
+        if (error != null) {
+            line.append(",\"error\":");
+            appendString(line, error);
+        }
+        line.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+        line.append("}\n");
+        if (this.error != null) {
+            return;
+        }
+        try {
+            writer.write(line.toString());
+        } catch (IOException e) {
+            // Keep decoding, the error is thrown by flush() or close()
+            this.error = e;
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        checkError();
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writer.close();
+        } finally {
+            checkError();
+        }
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+
+}
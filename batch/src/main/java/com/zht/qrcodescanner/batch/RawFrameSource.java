@@ -0,0 +1,83 @@
+package com.zht.qrcodescanner.batch;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A raw camera frame file, {@code <name>_<width>x<height>.nv21}, as recorded for the benchmark.
+ * Rather than being read, it is memory mapped and decoded where it lies, see
+ * {@link com.zht.qrcodescanner.decode.FrameDecoder#decode(java.nio.ByteBuffer, int, int, int, int,
+ * com.zht.qrcodescanner.decode.CropRect)}; only the Y plane is touched, and only the decoder's
+ * copy of it ends up on the heap.
+ * <p>
+ * 原始 NV21 帧文件：通过内存映射直接解码，不读入堆内存。
+ */
+public final class RawFrameSource implements ImageSource {
+
+    private static final Pattern FILE_NAME = Pattern.compile("(.+)_(\\d+)x(\\d+)\\.nv21");
+
+    private final File file;
+    private final int width;
+    private final int height;
+
+    public RawFrameSource(File file, int width, int height) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return the frame, if the file is named like one; otherwise {@code null}.
+     */
+    public static RawFrameSource of(File file) {
+        Matcher matcher = FILE_NAME.matcher(file.getName());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new RawFrameSource(file,
+                Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+    }
+
+    @Override
+    public String getName() {
+        return file.getPath();
+    }
+
+    /**
+     * The raw frame bytes; {@link BatchDecoder} maps the file with {@link #map()} instead.
+     */
+    @Override
+    public InputStream open() throws IOException {
+        return new BufferedInputStream(new FileInputStream(file));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Maps the file read only. The mapping stays valid after this returns, until the buffer is
+     * garbage collected.
+     */
+    public MappedByteBuffer map() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < (long) width * height) {
+                throw new IOException("Frame is shorter than " + width + "x" + height);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.zht.qrcodescanner.batch;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.zht.qrcodescanner.decode.DecodeHints;
+import com.zht.qrcodescanner.decode.FrameDecoder;
+import com.zht.qrcodescanner.decode.FrameRecording;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point for replaying a recorded preview stream, see {@link FrameReplayer}:
+ * <pre>
+ * ReplayMain [--realtime] [--out results.jsonl] [--formats QR_CODE,DATA_MATRIX]
+ *            [--charset UTF-8] [--try-harder] [--no-roi] [--pyramid N]
+ *            [--quality-filter] [--adaptive-binarizer] [--escalation-budget MS]
+ *            [--inverted] [--rotation DEGREES] recording
+ * </pre>
+ * The defaults are the scanner's. One result per replayed frame goes to {@code --out} or standard
+ * output, the report to standard error.
+ */
+public final class ReplayMain {
+
+    private ReplayMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean realTime = false;
+        String out = null;
+        Collection<BarcodeFormat> formats = DecodeHints.DEFAULT_FORMATS;
+        String characterSet = null;
+        Map<DecodeHintType, Object> baseHints = new EnumMap<>(DecodeHintType.class);
+        FrameDecoder.Options options = new FrameDecoder.Options()
+                .setTrackRoi(true)
+                .setPyramidLevels(1);
+        boolean qualityFilter = false;
+        int rotation = 0;
+        File input = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--realtime":
+                    realTime = true;
+                    break;
+                case "--out":
+                    out = BatchMain.value(args, ++i, arg);
+                    break;
+                case "--formats":
+                    formats = BatchMain.parseFormats(BatchMain.value(args, ++i, arg));
+                    break;
+                case "--charset":
+                    characterSet = BatchMain.value(args, ++i, arg);
+                    break;
+                case "--try-harder":
+                    baseHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+                    break;
+                case "--no-roi":
+                    options.setTrackRoi(false);
+                    break;
+                case "--pyramid":
+                    options.setPyramidLevels(Integer.parseInt(BatchMain.value(args, ++i, arg)));
+                    break;
+                case "--quality-filter":
+                    qualityFilter = true;
+                    break;
+                case "--adaptive-binarizer":
+                    options.setAdaptiveBinarizer(true);
+                    break;
+                case "--escalation-budget":
+                    options.setEscalationBudgetNanos(TimeUnit.MILLISECONDS.toNanos(
+                            Integer.parseInt(BatchMain.value(args, ++i, arg))));
+                    break;
+                case "--inverted":
+                    options.setInvertedScan(true);
+                    break;
+                case "--rotation":
+                    rotation = Integer.parseInt(BatchMain.value(args, ++i, arg));
+                    break;
+                default:
+                    if (arg.startsWith("--") || input != null) {
+                        usage("Unknown option " + arg);
+                    }
+                    input = new File(arg);
+                    break;
+            }
+        }
+        if (input == null) {
+            usage("No recording given");
+        }
+
+        FrameRecording recording = FrameRecording.open(input);
+        Map<DecodeHintType, Object> hints =
+                DecodeHints.build(formats, baseHints, characterSet, null);
+        FrameReplayer replayer = new FrameReplayer(hints, options, qualityFilter);
+        replayer.setRotation(rotation);
+        Writer writer = out == null
+                ? new OutputStreamWriter(System.out, Charset.forName("UTF-8"))
+                : new OutputStreamWriter(new FileOutputStream(out), Charset.forName("UTF-8"));
+        BatchReport report;
+        try (JsonLinesWriter results = new JsonLinesWriter(new BufferedWriter(writer, 64 * 1024))) {
+            report = replayer.replay(recording, realTime, results);
+        }
+        System.err.println((realTime ? "real time: " : "full speed: ") + report + ", " + replayer);
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: ReplayMain [--realtime] [--out results.jsonl] "
+                + "[--formats QR_CODE,DATA_MATRIX] [--charset UTF-8] [--try-harder] "
+                + "[--no-roi] [--pyramid N] [--quality-filter] [--adaptive-binarizer] "
+                + "[--escalation-budget MS] [--inverted] [--rotation DEGREES] recording");
+        System.exit(2);
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.zht.qrcodescanner.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.zht.qrcodescanner.decode.ReusableHybridBinarizer;
+import com.zht.qrcodescanner.decode.ReusableYUVLuminanceSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the decode path of {@code DecodeHandler} on the frames of the {@link FrameCorpus}: crop the
+ * framing rect out of the NV21 frame, binarize, then {@link MultiFormatReader}. Every invocation
+ * decodes the next frame of the corpus, so the score is the average over all of them.
+ * <p>
+ * 解码流程的基准测试，可以在普通的 Linux JVM 上运行。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DecodeBenchmark {
+
+    /**
+     * Only frames whose name contains this are decoded, e.g. {@code qr_code} or {@code blur3}.
+     */
+    @Param({""})
+    public String filter;
+
+    private Nv21Frame[] frames;
+    private int next;
+    private MultiFormatReader reader;
+    private ReusableYUVLuminanceSource source;
+    private ReusableHybridBinarizer binarizer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Nv21Frame> selected = new ArrayList<>();
+        for (Nv21Frame frame : FrameCorpus.load()) {
+            if (frame.name.contains(filter)) {
+                selected.add(frame);
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalStateException("No frames match '" + filter + '\'');
+        }
+        frames = selected.toArray(new Nv21Frame[selected.size()]);
+
+        // The same hints DecodeThread builds by default: QR Code and Data Matrix.
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS,
+                EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX));
+        reader = new MultiFormatReader();
+        reader.setHints(hints);
+
+        int decoded = 0;
+        for (Nv21Frame frame : frames) {
+            Result result = decodeReusable(frame);
+            if (result != null && (frame.expectedText == null || frame.expectedText.equals(result.getText()))) {
+                decoded++;
+            }
+        }
+        System.err.println("Corpus: " + decoded + " of " + frames.length + " frames decode");
+    }
+
+    /**
+     * The decode path before luminance sources and binarizers were reused.
+     */
+    @Benchmark
+    public void decodeAllocating(Blackhole blackhole) {
+        Nv21Frame frame = nextFrame();
+        PlanarYUVLuminanceSource planarSource = new PlanarYUVLuminanceSource(frame.data,
+                frame.width, frame.height,
+                frame.cropLeft, frame.cropTop, frame.cropWidth, frame.cropHeight,
+                false);
+        blackhole.consume(decode(new BinaryBitmap(new HybridBinarizer(planarSource))));
+    }
+
+    /**
+     * The decode path of {@code DecodeHandler}.
+     */
+    @Benchmark
+    public void decodeReusable(Blackhole blackhole) {
+        blackhole.consume(decodeReusable(nextFrame()));
+    }
+
+    /**
+     * Only the crop and binarization stage of {@link #decodeReusable(Blackhole)}.
+     */
+    @Benchmark
+    public void binarizeReusable(Blackhole blackhole) {
+        resetSource(nextFrame());
+        try {
+            blackhole.consume(binarizer.getBlackMatrix());
+        } catch (NotFoundException nfe) {
+            blackhole.consume(nfe);
+        }
+    }
+
+    private Nv21Frame nextFrame() {
+        Nv21Frame frame = frames[next];
+        next = (next + 1) % frames.length;
+        return frame;
+    }
+
+    private Result decodeReusable(Nv21Frame frame) {
+        resetSource(frame);
+        return decode(new BinaryBitmap(binarizer));
+    }
+
+    private void resetSource(Nv21Frame frame) {
+        if (source == null
+                || source.getWidth() != frame.cropWidth
+                || source.getHeight() != frame.cropHeight) {
+            source = new ReusableYUVLuminanceSource(frame.cropWidth, frame.cropHeight);
+            binarizer = new ReusableHybridBinarizer(source);
+        }
+        source.reset(frame.data, frame.width, frame.height, frame.cropLeft, frame.cropTop);
+    }
+
+    private Result decode(BinaryBitmap bitmap) {
+        try {
+            return reader.decodeWithState(bitmap);
+        } catch (ReaderException re) {
+            return null;
+        } finally {
+            reader.reset();
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.zht.qrcodescanner.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The frames the benchmarks decode. Recorded frames are read from the directory named by the
+ * {@value #CORPUS_PROPERTY} system property, as raw NV21 files called
+ * {@code <name>_<width>x<height>.nv21}. Without it a synthetic corpus is rendered: QR Code and
+ * Data Matrix symbols at two module sizes, three blur levels and three lighting conditions.
+ * <p>
+ * 基准测试使用的帧：优先读取录制的 NV21 帧，否则生成合成帧。
+ */
+final class FrameCorpus {
+
+    static final String CORPUS_PROPERTY = "qrcode.corpus";
+
+    private static final Pattern FILE_NAME = Pattern.compile("(.+)_(\\d+)x(\\d+)\\.nv21");
+
+    private static final int FRAME_WIDTH = 1280;
+    private static final int FRAME_HEIGHT = 720;
+    private static final BarcodeFormat[] FORMATS = {BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX};
+    private static final int[] MODULE_SIZES = {3, 6};
+    private static final int[] BLUR_RADII = {0, 1, 3};
+
+    private enum Lighting {
+        NORMAL(40, 200, 0),
+        DIM(15, 70, 0),
+        GLARE(110, 235, 40);
+
+        final int dark;
+        final int light;
+        /**
+         * Brightness added at the right edge of the frame, none at the left edge.
+         */
+        final int gradient;
+
+        Lighting(int dark, int light, int gradient) {
+            this.dark = dark;
+            this.light = light;
+            this.gradient = gradient;
+        }
+    }
+
+    private FrameCorpus() {
+    }
+
+    static List<Nv21Frame> load() throws IOException {
+        String directory = System.getProperty(CORPUS_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return synthetic();
+        }
+        return fromDirectory(new File(directory));
+    }
+
+    static List<Nv21Frame> fromDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        List<Nv21Frame> frames = new ArrayList<>();
+        for (File file : files) {
+            Matcher matcher = FILE_NAME.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            byte[] data = new byte[(int) file.length()];
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                in.readFully(data);
+            }
+            frames.add(new Nv21Frame(matcher.group(1),
+                    data,
+                    Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3)),
+                    null));
+        }
+        if (frames.isEmpty()) {
+            throw new IOException("No *_<width>x<height>.nv21 frames in " + directory);
+        }
+        return frames;
+    }
+
+    static List<Nv21Frame> synthetic() {
+        List<Nv21Frame> frames = new ArrayList<>();
+        Random random = new Random(42L);
+        for (BarcodeFormat format : FORMATS) {
+            for (int moduleSize : MODULE_SIZES) {
+                for (int blurRadius : BLUR_RADII) {
+                    for (Lighting lighting : Lighting.values()) {
+                        String name = format.name().toLowerCase() + "-module" + moduleSize
+                                + "-blur" + blurRadius + '-' + lighting.name().toLowerCase();
+                        String text = "QRcodeScanner benchmark " + name;
+                        frames.add(new Nv21Frame(name,
+                                render(format, text, moduleSize, blurRadius, lighting, random),
+                                FRAME_WIDTH,
+                                FRAME_HEIGHT,
+                                text));
+                    }
+                }
+            }
+        }
+        return frames;
+    }
+
+    private static byte[] render(BarcodeFormat format,
+                                 String text,
+                                 int moduleSize,
+                                 int blurRadius,
+                                 Lighting lighting,
+                                 Random random) {
+        BitMatrix symbol;
+        try {
+            symbol = new MultiFormatWriter().encode(text, format, 0, 0);
+        } catch (WriterException we) {
+            throw new IllegalStateException(we);
+        }
+        int width = FRAME_WIDTH;
+        int height = FRAME_HEIGHT;
+        int symbolLeft = (width - symbol.getWidth() * moduleSize) / 2;
+        int symbolTop = (height - symbol.getHeight() * moduleSize) / 2;
+        int[] luminance = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int symbolY = y - symbolTop;
+            for (int x = 0; x < width; x++) {
+                int symbolX = x - symbolLeft;
+                boolean dark = symbolX >= 0 && symbolY >= 0
+                        && symbolX < symbol.getWidth() * moduleSize
+                        && symbolY < symbol.getHeight() * moduleSize
+                        && symbol.get(symbolX / moduleSize, symbolY / moduleSize);
+                int value = dark ? lighting.dark : lighting.light;
+                luminance[y * width + x] = value + lighting.gradient * x / width;
+            }
+        }
+        for (int i = 0; i < blurRadius; i++) {
+            boxBlur(luminance, width, height);
+        }
+
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        for (int i = 0; i < width * height; i++) {
+            int value = luminance[i] + random.nextInt(13) - 6;
+            nv21[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+        // Neutral chroma
+        Arrays.fill(nv21, width * height, nv21.length, (byte) 128);
+        return nv21;
+    }
+
+    /**
+     * One 3x3 box blur pass, edges are left alone.
+     */
+    private static void boxBlur(int[] luminance, int width, int height) {
+        int[] source = luminance.clone();
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int sum = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    int offset = (y + dy) * width + x;
+                    sum += source[offset - 1] + source[offset] + source[offset + 1];
+                }
+                luminance[y * width + x] = sum / 9;
+            }
+        }
+    }
+
+}
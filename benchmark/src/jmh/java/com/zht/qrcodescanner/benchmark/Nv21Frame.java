@@ -0,0 +1,45 @@
+package com.zht.qrcodescanner.benchmark;
+
+/**
+ * One NV21 preview frame of the benchmark corpus, with the crop the scanner would decode.
+ */
+final class Nv21Frame {
+
+    final String name;
+    final byte[] data;
+    final int width;
+    final int height;
+    final int cropLeft;
+    final int cropTop;
+    final int cropWidth;
+    final int cropHeight;
+    /**
+     * The encoded text for synthetic frames, {@code null} for recorded ones.
+     */
+    final String expectedText;
+
+    Nv21Frame(String name, byte[] data, int width, int height, String expectedText) {
+        if (data.length < width * height) {
+            throw new IllegalArgumentException(name + ": " + data.length + " bytes is too short for "
+                    + width + 'x' + height);
+        }
+        this.name = name;
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        this.expectedText = expectedText;
+        // A centered square, 258/375 of the short side, like the default framing rect of
+        // CameraManager on a portrait screen.
+        int side = Math.min(258 * Math.min(width, height) / 375, Math.min(width, height));
+        cropLeft = (width - side) / 2;
+        cropTop = (height - side) / 2;
+        cropWidth = side;
+        cropHeight = side;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + width + 'x' + height + ')';
+    }
+
+}
@@ -0,0 +1,246 @@
+package com.zht.qrcodescanner.decode;
+
+import java.util.Locale;
+
+/**
+ * Picks the binarizer per frame: the global histogram one, a single threshold for the whole crop,
+ * is several times cheaper than the hybrid one and decodes an evenly lit, high contrast code just
+ * as well; the hybrid one, a threshold per block, is needed under uneven light, shadows or glare.
+ * <p>
+ * First the crop is measured, every other pixel of every {@link #ROW_STEP}th row, split into a
+ * grid of {@link #GRID_SIZE} by {@link #GRID_SIZE} blocks:
+ * <ul>
+ * <li>contrast: the largest luminance range within a block;</li>
+ * <li>uniformity: how far apart the dark and the light parts are over the whole crop, in percent
+ * of the contrast: of the blocks with a range of at least {@link #MIN_BLOCK_RANGE}, the darkest
+ * light pixel minus the lightest dark pixel. Evenly lit, every block has about the same dark and
+ * light levels and it is near 100; under uneven light the light parts in the shade come close to
+ * the dark parts in the light, or are even darker, and it drops, below 0 if no single threshold
+ * could fit every block.</li>
+ * </ul>
+ * A frame with enough of both is tried with the global histogram binarizer first, other frames
+ * with the hybrid one only. If the global histogram binarizer finds nothing, the frame is tried
+ * again with the hybrid one only when that is likely to help: when lately the hybrid one often
+ * found a code the other one missed, or every {@link #PROBE_INTERVAL}th such frame, to find out.
+ * So a frame without a code costs little more than the cheap attempt, and a code which needs the
+ * hybrid binarizer is found within a few frames, and then in every frame.
+ * <p>
+ * Not thread safe, use one per decoder.
+ * <p>
+ * 二值化器选择：根据扫码框内的对比度与光照均匀程度，以及两种二值化器最近的识别成功率，
+ * 优先使用开销较小的 GlobalHistogramBinarizer，必要时才使用 HybridBinarizer。
+ */
+public final class BinarizerSelector {
+
+    public enum Method {
+        GLOBAL_HISTOGRAM,
+        HYBRID
+    }
+
+    public static final int DEFAULT_MIN_CONTRAST = 64;
+    public static final int DEFAULT_MIN_UNIFORMITY = 50;
+
+    static final int GRID_SIZE = 4;
+    static final int ROW_STEP = 4;
+    /**
+     * Blocks with a smaller range hold no edge, only background or noise.
+     */
+    static final int MIN_BLOCK_RANGE = 24;
+    static final int PROBE_INTERVAL = 4;
+    /**
+     * Weight of the latest frame in the rescue rate, an exponential moving average.
+     */
+    static final float HISTORY_WEIGHT = 1f / 8;
+    /**
+     * Retry every frame the global histogram binarizer missed if at least this share of those
+     * retries found a code lately.
+     */
+    static final float MIN_RESCUE_RATE = 0.1f;
+
+    private final int minContrast;
+    private final int minUniformity;
+    private final int[] blockMin = new int[GRID_SIZE * GRID_SIZE];
+    private final int[] blockMax = new int[GRID_SIZE * GRID_SIZE];
+    private int[] columns;
+    private int columnsWidth = -1;
+    private int contrast;
+    private int uniformity;
+
+    private boolean tryGlobal;
+    private boolean tryHybrid;
+    /**
+     * Starts optimistic, so the hybrid binarizer gets to prove itself useless first.
+     */
+    private float rescueRate = 1f;
+    private int missesSinceProbe;
+
+    private final long[] attempts = new long[Method.values().length];
+    private final long[] successes = new long[Method.values().length];
+    private long escalations;
+
+    public BinarizerSelector() {
+        this(DEFAULT_MIN_CONTRAST, DEFAULT_MIN_UNIFORMITY);
+    }
+
+    /**
+     * @param minContrast   lowest luminance range of the best block for the global histogram
+     *                      binarizer, 0 - 255.
+     * @param minUniformity lowest uniformity for the global histogram binarizer, in percent.
+     */
+    public BinarizerSelector(int minContrast, int minUniformity) {
+        this.minContrast = minContrast;
+        this.minUniformity = minUniformity;
+    }
+
+    /**
+     * Measures a frame and decides which binarizers to try on it, see {@link #tries}.
+     *
+     * @param data  The YUV frame, Y plane first.
+     * @param width The width of the frame.
+     * @param crop  The part of the frame which will be decoded.
+     */
+    public void select(byte[] data, int width, CropRect crop) {
+        measure(data, width, crop);
+        tryGlobal = contrast >= minContrast && uniformity >= minUniformity;
+        if (!tryGlobal) {
+            tryHybrid = true;
+        } else if (rescueRate >= MIN_RESCUE_RATE) {
+            tryHybrid = true;
+        } else {
+            tryHybrid = missesSinceProbe + 1 >= PROBE_INTERVAL;
+        }
+    }
+
+    /**
+     * @return whether to try {@code method} on the frame last {@link #select selected} for, if
+     * the cheaper ones found nothing.
+     */
+    public boolean tries(Method method) {
+        return method == Method.GLOBAL_HISTOGRAM ? tryGlobal : tryHybrid;
+    }
+
+    /**
+     * Records the outcome of the frame last {@link #select selected} for.
+     *
+     * @param found the binarizer the code was found with, or {@code null}.
+     */
+    public void frameDone(Method found) {
+        if (tryGlobal) {
+            count(Method.GLOBAL_HISTOGRAM, found == Method.GLOBAL_HISTOGRAM);
+        }
+        if (tryHybrid && found != Method.GLOBAL_HISTOGRAM) {
+            count(Method.HYBRID, found == Method.HYBRID);
+        }
+        if (!tryGlobal || found == Method.GLOBAL_HISTOGRAM) {
+            return;
+        }
+        if (tryHybrid) {
+            escalations++;
+            missesSinceProbe = 0;
+            rescueRate += ((found == Method.HYBRID ? 1f : 0f) - rescueRate) * HISTORY_WEIGHT;
+        } else {
+            missesSinceProbe++;
+        }
+    }
+
+    private void count(Method method, boolean success) {
+        attempts[method.ordinal()]++;
+        if (success) {
+            successes[method.ordinal()]++;
+        }
+    }
+
+    /**
+     * @return the largest luminance range within a block of the last frame measured.
+     */
+    public int getContrast() {
+        return contrast;
+    }
+
+    /**
+     * @return the uniformity of the last frame measured, in percent, see above.
+     */
+    public int getUniformity() {
+        return uniformity;
+    }
+
+    /**
+     * @return the frames {@code method} was tried on.
+     */
+    public long getAttempts(Method method) {
+        return attempts[method.ordinal()];
+    }
+
+    /**
+     * @return the frames {@code method} found a code in.
+     */
+    public long getSuccesses(Method method) {
+        return successes[method.ordinal()];
+    }
+
+    /**
+     * @return the frames the hybrid binarizer was tried on after the global histogram one found
+     * nothing.
+     */
+    public long getEscalations() {
+        return escalations;
+    }
+
+    private void measure(byte[] data, int width, CropRect crop) {
+        int cropWidth = crop.getWidth();
+        int cropHeight = crop.getHeight();
+        if (columnsWidth != cropWidth) {
+            columns = new int[(cropWidth + 1) / 2];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = i * 2 * GRID_SIZE / cropWidth;
+            }
+            columnsWidth = cropWidth;
+        }
+        int[] columns = this.columns;
+        int[] blockMin = this.blockMin;
+        int[] blockMax = this.blockMax;
+        for (int i = 0; i < blockMin.length; i++) {
+            blockMin[i] = 255;
+            blockMax[i] = 0;
+        }
+        for (int y = 0; y < cropHeight; y += ROW_STEP) {
+            int offset = (crop.getTop() + y) * width + crop.getLeft();
+            int row = y * GRID_SIZE / cropHeight * GRID_SIZE;
+            // Start on odd pixels every other row
+            int phase = (y / ROW_STEP) & 1;
+            for (int i = 0; i < columns.length && i * 2 + phase < cropWidth; i++) {
+                int block = row + columns[i];
+                int value = data[offset + i * 2 + phase] & 0xff;
+                if (value < blockMin[block]) {
+                    blockMin[block] = value;
+                }
+                if (value > blockMax[block]) {
+                    blockMax[block] = value;
+                }
+            }
+        }
+        int maxRange = 0;
+        for (int i = 0; i < blockMin.length; i++) {
+            maxRange = Math.max(maxRange, blockMax[i] - blockMin[i]);
+        }
+        contrast = maxRange;
+        int darkest = 255;
+        int lightest = 0;
+        for (int i = 0; i < blockMin.length; i++) {
+            int range = blockMax[i] - blockMin[i];
+            if (range >= MIN_BLOCK_RANGE) {
+                darkest = Math.min(darkest, blockMax[i]);
+                lightest = Math.max(lightest, blockMin[i]);
+            }
+        }
+        uniformity = maxRange < MIN_BLOCK_RANGE ? 0 : (darkest - lightest) * 100 / maxRange;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "global histogram %d/%d, hybrid %d/%d, %d escalations",
+                getSuccesses(Method.GLOBAL_HISTOGRAM), getAttempts(Method.GLOBAL_HISTOGRAM),
+                getSuccesses(Method.HYBRID), getAttempts(Method.HYBRID), escalations);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+
+import java.util.Map;
+
+/**
+ * Hands the sub-images of a {@link com.google.zxing.multi.GenericMultipleBarcodeReader} search to
+ * a {@link MultiFormatReader} until the time budget of the frame is used up, then reports
+ * "not found" so the search unwinds without trying the remaining sub-images.
+ * <p>
+ * The hints passed per call are ignored: they are the ones the reader was set up with, and
+ * {@link MultiFormatReader#decode(BinaryBitmap, Map)} would rebuild all its readers every time.
+ */
+final class BudgetReader implements Reader {
+
+    private final MultiFormatReader delegate;
+    private long deadline;
+
+    BudgetReader(MultiFormatReader delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @param deadline in {@link System#nanoTime()} time.
+     */
+    void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    boolean isExpired() {
+        return System.nanoTime() - deadline >= 0;
+    }
+
+    @Override
+    public Result decode(BinaryBitmap image) throws NotFoundException {
+        if (isExpired()) {
+            throw NotFoundException.getNotFoundInstance();
+        }
+        return delegate.decodeWithState(image);
+    }
+
+    @Override
+    public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException {
+        return decode(image);
+    }
+
+    @Override
+    public void reset() {
+        delegate.reset();
+    }
+
+}
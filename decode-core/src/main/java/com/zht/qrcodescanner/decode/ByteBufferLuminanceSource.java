@@ -0,0 +1,150 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.LuminanceSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link LuminanceSource} over a frame in a {@link ByteBuffer}, direct or memory mapped, so
+ * the frame never has to be copied to the heap as a whole: the Y plane of a camera image, or a
+ * raw frame in a file. Rows are {@code rowStride} bytes apart and pixels {@code pixelStride}
+ * bytes apart within a row, which covers padded rows as well as interleaved formats.
+ * <p>
+ * Like {@link ReusableYUVLuminanceSource} the crop size is fixed and the source is pointed at a
+ * new frame with {@link #reset}. {@link #getRow(int, byte[])} fills the caller's row, and
+ * {@link #getMatrix(byte[])} the caller's matrix, so a decoder that keeps its arrays reads a
+ * frame without allocating.
+ * <p>
+ * Not thread safe. The buffer's position and limit are left alone; the buffer itself must stay
+ * valid, e.g. the camera image stay open, as long as the source is used.
+ * <p>
+ * 基于 ByteBuffer（直接缓冲区或内存映射文件）的亮度源，支持行跨度和像素跨度，无需将整帧复制到堆内存。
+ */
+public final class ByteBufferLuminanceSource extends LuminanceSource {
+
+    private ByteBuffer data;
+    private int dataWidth;
+    private int dataHeight;
+    private int rowStride;
+    private int pixelStride;
+    private int left;
+    private int top;
+    private byte[] matrix;
+    private boolean matrixValid;
+
+    /**
+     * @param width  The width of the crop rectangle.
+     * @param height The height of the crop rectangle.
+     */
+    public ByteBufferLuminanceSource(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Points this source at a new frame.
+     *
+     * @param data        The frame, its first pixel at the buffer's position.
+     * @param dataWidth   The width of the frame.
+     * @param dataHeight  The height of the frame.
+     * @param rowStride   The bytes from the start of one row to the start of the next.
+     * @param pixelStride The bytes from one pixel to the next within a row, 1 for a plane.
+     * @param left        The left edge of the crop rectangle within the frame.
+     * @param top         The top edge of the crop rectangle within the frame.
+     */
+    public void reset(ByteBuffer data, int dataWidth, int dataHeight, int rowStride, int pixelStride,
+                      int left, int top) {
+        if (left < 0 || top < 0 || left + getWidth() > dataWidth || top + getHeight() > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        if (pixelStride < 1 || rowStride < (dataWidth - 1) * pixelStride + 1) {
+            throw new IllegalArgumentException("Bad strides: row " + rowStride + ", pixel " + pixelStride);
+        }
+        long lastIndex = (long) (top + getHeight() - 1) * rowStride + (long) (left + getWidth() - 1) * pixelStride;
+        if (lastIndex >= data.remaining()) {
+            throw new IllegalArgumentException("Image data is too short: " + data.remaining());
+        }
+        // A view of its own, so reading neither moves nor races with the caller's position
+        this.data = data.slice();
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+        this.left = left;
+        this.top = top;
+        matrixValid = false;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        copyRow(y, row, 0);
+        return row;
+    }
+
+    /**
+     * The matrix is copied out of the frame once per reset, and kept in an array of this source.
+     */
+    @Override
+    public byte[] getMatrix() {
+        if (!matrixValid) {
+            matrix = getMatrix(matrix);
+            matrixValid = true;
+        }
+        return matrix;
+    }
+
+    /**
+     * Copies the cropped luminance into the caller's array.
+     *
+     * @param into An array to fill, may be {@code null} or too small.
+     * @return the luminance, row by row without padding, in {@code into} if it fits.
+     */
+    public byte[] getMatrix(byte[] into) {
+        int width = getWidth();
+        int height = getHeight();
+        if (into == null || into.length < width * height) {
+            into = new byte[width * height];
+        }
+        for (int y = 0; y < height; y++) {
+            copyRow(y, into, y * width);
+        }
+        return into;
+    }
+
+    private void copyRow(int y, byte[] out, int offset) {
+        int width = getWidth();
+        int index = (top + y) * rowStride + left * pixelStride;
+        if (pixelStride == 1) {
+            data.position(index);
+            data.get(out, offset, width);
+            return;
+        }
+        ByteBuffer frame = data;
+        int stride = pixelStride;
+        for (int x = 0; x < width; x++) {
+            out[offset + x] = frame.get(index);
+            index += stride;
+        }
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        ByteBufferLuminanceSource cropped = new ByteBufferLuminanceSource(width, height);
+        data.position(0);
+        cropped.reset(data, dataWidth, dataHeight, rowStride, pixelStride,
+                this.left + left, this.top + top);
+        return cropped;
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.zht.qrcodescanner.decode;
+
+/**
+ * The part of a frame which is decoded, in frame coordinates. Immutable.
+ * <p>
+ * 解码范围（相对于预览帧的坐标）。
+ */
+public final class CropRect {
+
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+
+    public CropRect(int left, int top, int width, int height) {
+        if (left < 0 || top < 0 || width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Bad crop rectangle: " + left + ',' + top + ' '
+                    + width + 'x' + height);
+        }
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRight() {
+        return left + width;
+    }
+
+    public int getBottom() {
+        return top + height;
+    }
+
+    /**
+     * @return whether this rect covers the same pixels as the given edges.
+     */
+    public boolean matches(int left, int top, int right, int bottom) {
+        return this.left == left && this.top == top && getRight() == right && getBottom() == bottom;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CropRect)) {
+            return false;
+        }
+        CropRect other = (CropRect) o;
+        return left == other.left && top == other.top && width == other.width && height == other.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((left * 31 + top) * 31 + width) * 31 + height;
+    }
+
+    @Override
+    public String toString() {
+        return "CropRect(" + left + ", " + top + " - " + getRight() + ", " + getBottom() + ')';
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.ResultPointCallback;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the hints handed to the reader, the same way for the scanner and for any other user of
+ * the decode core.
+ * <p>
+ * 解码参数（hints）的构建。
+ */
+public final class DecodeHints {
+
+    /**
+     * The formats decoded when nothing else is configured: QR Code and Data Matrix.
+     */
+    public static final Set<BarcodeFormat> DEFAULT_FORMATS =
+            Collections.unmodifiableSet(EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX));
+
+    private DecodeHints() {
+    }
+
+    /**
+     * @param decodeFormats       the formats to look for, {@link #DEFAULT_FORMATS} if null or empty.
+     * @param baseHints           hints to start from, may be null.
+     * @param characterSet        the character set to assume, may be null.
+     * @param resultPointCallback told about possible result points while decoding, may be null.
+     * @return a new, mutable map.
+     */
+    public static Map<DecodeHintType, Object> build(Collection<BarcodeFormat> decodeFormats,
+                                                    Map<DecodeHintType, ?> baseHints,
+                                                    String characterSet,
+                                                    ResultPointCallback resultPointCallback) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        if (baseHints != null) {
+            hints.putAll(baseHints);
+        }
+        if (decodeFormats == null || decodeFormats.isEmpty()) {
+            decodeFormats = DEFAULT_FORMATS;
+        }
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.copyOf(decodeFormats));
+        if (characterSet != null) {
+            hints.put(DecodeHintType.CHARACTER_SET, characterSet);
+        }
+        if (resultPointCallback != null) {
+            hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
+        }
+        return hints;
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Suppresses repeats of the same code within a sliding time window, for bulk scanning where
+ * every code stays in view for several frames. Each sighting restarts the code's window, so a
+ * code held in front of the camera is reported once, and again only after it has been out of
+ * view for the whole window.
+ * <p>
+ * Codes are remembered by a 64 bit hash of their format and text, at most {@code maxEntries} of
+ * them; the least recently seen are forgotten first. Not thread safe.
+ * <p>
+ * 批量扫描的去重：在时间窗口内重复出现的条码只上报一次（LRU + TTL）。
+ */
+public final class DuplicateFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long windowMillis;
+    /**
+     * Content hash to the time it was last seen, least recently seen first.
+     */
+    private final LinkedHashMap<Long, Long> lastSeen;
+
+    /**
+     * @param maxEntries   the most codes remembered at once.
+     * @param windowMillis how long a code is suppressed after it was last seen.
+     */
+    public DuplicateFilter(final int maxEntries, long windowMillis) {
+        this.windowMillis = windowMillis;
+        lastSeen = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > Math.max(1, maxEntries);
+            }
+        };
+    }
+
+    /**
+     * Records a sighting of {@code result}.
+     *
+     * @param nowMillis the current time, from a monotonic clock.
+     * @return {@code true} if the code was not seen within the window and should be reported.
+     */
+    public boolean accept(Result result, long nowMillis) {
+        expire(nowMillis);
+        Long key = contentHash(result.getBarcodeFormat(), result.getText());
+        Long previous = lastSeen.put(key, nowMillis);
+        return previous == null || nowMillis - previous >= windowMillis;
+    }
+
+    public void clear() {
+        lastSeen.clear();
+    }
+
+    /**
+     * Drops the codes whose window has passed. Every sighting moves a code to the end, so the
+     * entries are in time order and only the head needs to be looked at.
+     */
+    private void expire(long nowMillis) {
+        Iterator<Long> seen = lastSeen.values().iterator();
+        while (seen.hasNext()) {
+            if (nowMillis - seen.next() < windowMillis) {
+                break;
+            }
+            seen.remove();
+        }
+    }
+
+    /**
+     * FNV-1a over the format and the text.
+     */
+    static long contentHash(BarcodeFormat format, String text) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = (hash ^ format.ordinal()) * FNV_PRIME;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,834 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+import com.google.zxing.oned.MultiFormatOneDReader;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Decodes the barcode in the crop rect of a YUV frame (Y plane first, e.g. NV21): frame in,
+ * result out. Has no Android dependencies, so the same code runs in the scanner, in benchmarks
+ * and on a server.
+ * <p>
+ * The reader, luminance source and binarizer are reused from one frame to the next, which makes
+ * an instance not thread safe; use one per thread.
+ * <p>
+ * The time {@link #decode} spends building the luminance, binarizing and running the readers is
+ * kept apart for the last frame, see {@link #getLastLuminanceNanos()}.
+ * <p>
+ * With an adaptive binarizer {@link #decode} tries a frame with the cheaper global histogram
+ * binarizer first when the frame suits it, see {@link BinarizerSelector}; otherwise, and for
+ * {@link #decodeMultiple}, it uses the hybrid binarizer.
+ * <p>
+ * A decoder for QR Codes only calls the QR Code detector and decoder directly, see
+ * {@link QRCodeFastPath}, rather than going through {@link MultiFormatReader}.
+ * <p>
+ * With a time budget per frame, a frame in which the readers saw something of a code but read
+ * none is tried again with {@code TRY_HARDER}, if there is time left, see {@link HintEscalation}.
+ * <p>
+ * With inverted scanning, a frame in which nothing was found is now and then tried once more as
+ * if it was inverted, for light codes on a dark background, see {@link InvertedScan}.
+ * <p>
+ * Given the rotation of the frames, see {@link #setRotation(int)}, 1D codes are also looked for
+ * in a view of the frame turned upright, as the user sees it, see {@link RotatedLuminanceSource}:
+ * in portrait a 1D code held level on the screen runs along the frame's columns.
+ * <p>
+ * 帧解码器：输入一帧数据，输出解码结果。每个线程使用一个实例。
+ */
+public final class FrameDecoder {
+
+    /**
+     * How many crop sizes the decoder keeps buffers for: the full crop and the ROI windows.
+     */
+    private static final int SOURCE_CACHE_SIZE = 3;
+    /**
+     * Reduced levels: half, then quarter resolution.
+     */
+    public static final int MAX_PYRAMID_LEVELS = 2;
+    /**
+     * A reduced level is skipped if its short side would be smaller than this.
+     */
+    private static final int MIN_PYRAMID_SIZE = 96;
+    /**
+     * The formats the 1D readers look for, row by row.
+     */
+    private static final Collection<BarcodeFormat> ONE_D_FORMATS = EnumSet.of(
+            BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.EAN_13, BarcodeFormat.EAN_8,
+            BarcodeFormat.CODABAR, BarcodeFormat.CODE_39, BarcodeFormat.CODE_93,
+            BarcodeFormat.CODE_128, BarcodeFormat.ITF, BarcodeFormat.RSS_14,
+            BarcodeFormat.RSS_EXPANDED);
+
+    private final Map<DecodeHintType, ?> hints;
+    private final MultiFormatReader multiFormatReader;
+    /**
+     * Used by {@link #decode} instead of the reader when only QR Codes are looked for.
+     */
+    private final QRCodeFastPath qrCodeFastPath;
+    private final RoiTracker roiTracker;
+    private final int pyramidLevels;
+    private final BinarizerSelector binarizerSelector;
+    private final HintEscalation hintEscalation;
+    private final InvertedScan invertedScan;
+    private int rotation;
+    private Map<DecodeHintType, Object> rotatedHints;
+    private MultiFormatOneDReader rotatedReader;
+    private RotatedLuminanceSource rotatedSource;
+    private ReusableHybridBinarizer rotatedBinarizer;
+    private int lastLevel = -1;
+    private long lastLuminanceNanos;
+    private long lastBinarizeNanos;
+    private int lastBinarizations;
+    private long lastDecodeNanos;
+    private BudgetReader budgetReader;
+    private RegionSearch regionSearch;
+    private QRCodeMultiReader qrCodeMultiReader;
+    private final ReusableYUVLuminanceSource[] sources = new ReusableYUVLuminanceSource[SOURCE_CACHE_SIZE];
+    private final ReusableHybridBinarizer[] binarizers = new ReusableHybridBinarizer[SOURCE_CACHE_SIZE];
+    private int nextSourceSlot;
+    private ReusableYUVLuminanceSource source;
+    private ReusableHybridBinarizer binarizer;
+    /**
+     * The frame and crop of the last {@link #decode}, if {@link #source} only covers the ROI
+     * within that crop; {@link #getLuminanceSource()} points it back at the whole crop.
+     */
+    private byte[] roiFrameData;
+    private int roiFrameWidth;
+    private int roiFrameHeight;
+    private CropRect roiFrameCrop;
+    /**
+     * The full resolution hybrid bitmap of the frame, with its black matrix, while no other pass
+     * overwrote that; the retry with {@code TRY_HARDER} uses it rather than binarize again.
+     */
+    private BinaryBitmap hybridBitmap;
+    private final SubsampledLuminanceSource[] reducedSources =
+            new SubsampledLuminanceSource[SOURCE_CACHE_SIZE * MAX_PYRAMID_LEVELS];
+    private final ReusableHybridBinarizer[] reducedBinarizers =
+            new ReusableHybridBinarizer[SOURCE_CACHE_SIZE * MAX_PYRAMID_LEVELS];
+    private int nextReducedSlot;
+    private ByteBufferLuminanceSource bufferSource;
+    private byte[] bufferMatrix;
+    private CropRect bufferCrop;
+
+    /**
+     * A decoder with none of the options, see {@link Options}.
+     *
+     * @param hints the reader hints, see {@link DecodeHints#build}. Kept by reference.
+     */
+    public FrameDecoder(Map<DecodeHintType, ?> hints) {
+        this(hints, new Options());
+    }
+
+    /**
+     * @param hints   the reader hints, see {@link DecodeHints#build}. Kept by reference, unless
+     *                the ROI is tracked, a pyramid is used or the hints are escalated.
+     * @param options what else {@link #decode} does, read once here.
+     */
+    public FrameDecoder(Map<DecodeHintType, ?> hints, Options options) {
+        invertedScan = options.invertedScan ? new InvertedScan() : null;
+        binarizerSelector = options.adaptiveBinarizer ? new BinarizerSelector() : null;
+        pyramidLevels = Math.max(0, Math.min(options.pyramidLevels, MAX_PYRAMID_LEVELS));
+        boolean escalate = options.escalationBudgetNanos > 0L && HintEscalation.supports(hints);
+        // The escalation needs the points reported, the tracker counts them
+        if (options.trackRoi || pyramidLevels > 0 || escalate) {
+            roiTracker = new RoiTracker(options.trackRoi);
+            hints = roiTracker.wrapHints(hints);
+        } else {
+            roiTracker = null;
+        }
+        this.hints = hints;
+        multiFormatReader = new MultiFormatReader();
+        multiFormatReader.setHints(hints);
+        qrCodeFastPath = QRCodeFastPath.supports(hints) ? new QRCodeFastPath(hints) : null;
+        hintEscalation = escalate ? new HintEscalation(hints, options.escalationBudgetNanos) : null;
+    }
+
+    /**
+     * @param data   The YUV frame.
+     * @param width  The width of the frame.
+     * @param height The height of the frame.
+     * @param crop   The part of the frame to decode.
+     * @return the barcode found, or {@code null}. Its points are relative to {@code crop}.
+     */
+    public Result decode(byte[] data, int width, int height, CropRect crop) {
+        long start = System.nanoTime();
+        CropRect roi = roiTracker == null ? crop : roiTracker.nextCrop(crop);
+        // Also keeps getLuminanceSource() on this frame when a reduced level finds the code
+        resetLuminanceSource(data, width, height, roi);
+        if (roi != crop) {
+            roiFrameData = data;
+            roiFrameWidth = width;
+            roiFrameHeight = height;
+            roiFrameCrop = crop;
+        }
+        hybridBitmap = null;
+        Result result = null;
+        lastLevel = -1;
+        lastLuminanceNanos = 0L;
+        lastBinarizeNanos = 0L;
+        lastBinarizations = 0;
+        lastDecodeNanos = 0L;
+        if (binarizerSelector != null) {
+            binarizerSelector.select(data, width, roi);
+        }
+        BinarizerSelector.Method found = null;
+        boolean firstPass = true;
+        boolean inverted = invertedScan != null && invertedScan.isInvertedFirst();
+        // The cheaper binarizer first, if the frame suits it; the hybrid one if that may help
+        for (BinarizerSelector.Method method : BinarizerSelector.Method.values()) {
+            if (result != null || (binarizerSelector == null
+                    ? method != BinarizerSelector.Method.HYBRID : !binarizerSelector.tries(method))) {
+                continue;
+            }
+            // Cheapest first: a large code is found at a reduced level, a small one needs them all
+            for (int level = pyramidLevels; level >= 0 && result == null; level--) {
+                int factor = 1 << level;
+                ReusableHybridBinarizer levelBinarizer;
+                if (level == 0) {
+                    levelBinarizer = binarizer;
+                } else if (Math.min(roi.getWidth(), roi.getHeight()) / factor >= MIN_PYRAMID_SIZE) {
+                    levelBinarizer = resetReducedSource(data, width, height, roi, factor, firstPass);
+                } else {
+                    continue;
+                }
+                if (roiTracker != null) {
+                    roiTracker.setScale(factor);
+                }
+                levelBinarizer.setGlobalHistogram(method == BinarizerSelector.Method.GLOBAL_HISTOGRAM);
+                levelBinarizer.setInverted(inverted);
+                result = decode(levelBinarizer, multiFormatReader, qrCodeFastPath);
+                if (result != null) {
+                    lastLevel = level;
+                    found = method;
+                    result = ResultPoints.transform(result, factor, 0, 0);
+                }
+            }
+            firstPass = false;
+        }
+        if (binarizerSelector != null) {
+            binarizerSelector.frameDone(found);
+        }
+        if (result == null && rotatedReader != null) {
+            //竖屏时一维码在帧中是竖直的：按屏幕方向逐行扫描
+            result = decodeRotated(data, width, height, roi, inverted);
+        }
+        if (result == null && hintEscalation != null
+                && hintEscalation.shouldRetry(start, roiTracker.getPointCount())) {
+            //发现了定位点却未能解码：用 TRY_HARDER 重试同一帧
+            result = retryHarder(inverted);
+        }
+        if (invertedScan != null) {
+            boolean fallback = false;
+            if (result == null && invertedScan.shouldTryOther()) {
+                //未能解码：以另一种极性（反色）再解码一次
+                inverted = !inverted;
+                fallback = true;
+                result = decodeOtherPolarity(inverted);
+            }
+            invertedScan.frameDone(result != null, inverted, fallback);
+        }
+        if (roiTracker != null) {
+            roiTracker.frameDone(result);
+            if (result != null && roi != crop) {
+                result = ResultPoints.transform(result, 1,
+                        roi.getLeft() - crop.getLeft(), roi.getTop() - crop.getTop());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a frame held in a {@link ByteBuffer}, e.g. the Y plane of a camera image or a memory
+     * mapped file. Only the crop rect is copied out of the buffer, into an array this decoder keeps,
+     * see {@link ByteBufferLuminanceSource}; then it is decoded like {@link #decode(byte[], int,
+     * int, CropRect)} decodes a frame, the copy counting as luminance time.
+     *
+     * @param data        The frame, its first pixel at the buffer's position, which is left alone.
+     * @param rowStride   The bytes from the start of one row to the start of the next.
+     * @param pixelStride The bytes from one pixel to the next within a row, 1 for a plane.
+     * @param width       The width of the frame.
+     * @param height      The height of the frame.
+     * @param crop        The part of the frame to decode.
+     * @return the barcode found, or {@code null}. Its points are relative to {@code crop}.
+     */
+    public Result decode(ByteBuffer data, int rowStride, int pixelStride, int width, int height,
+                         CropRect crop) {
+        long start = System.nanoTime();
+        copyCrop(data, rowStride, pixelStride, width, height, crop);
+        long copyNanos = System.nanoTime() - start;
+        Result result = decode(bufferMatrix, crop.getWidth(), crop.getHeight(), bufferCrop);
+        lastLuminanceNanos += copyNanos;
+        return result;
+    }
+
+    /**
+     * Decodes every code in the crop rect of a frame held in a {@link ByteBuffer}, see
+     * {@link #decodeMultiple(byte[], int, int, CropRect, int, long)}; only the crop rect is copied
+     * out of the buffer, like {@link #decode(ByteBuffer, int, int, int, int, CropRect)} does.
+     *
+     * @return the codes found, or {@code null} if there were none. Their points are relative to
+     * {@code crop}.
+     */
+    public Result[] decodeMultiple(ByteBuffer data, int rowStride, int pixelStride, int width,
+                                   int height, CropRect crop, int maxResults, long budgetNanos) {
+        copyCrop(data, rowStride, pixelStride, width, height, crop);
+        return decodeMultiple(bufferMatrix, crop.getWidth(), crop.getHeight(), bufferCrop,
+                maxResults, budgetNanos);
+    }
+
+    /**
+     * @return how the binarizer is picked per frame, and how well that works; {@code null} if
+     * the decoder always uses the hybrid binarizer.
+     */
+    public BinarizerSelector getBinarizerSelector() {
+        return binarizerSelector;
+    }
+
+    /**
+     * @return how often frames were retried with {@code TRY_HARDER}, and how well that works;
+     * {@code null} if they are not.
+     */
+    public HintEscalation getHintEscalation() {
+        return hintEscalation;
+    }
+
+    /**
+     * Sets how the frames are turned relative to the screen. With 90 or 270 degrees, e.g. a
+     * landscape camera in a portrait activity, a frame in which nothing was found is also
+     * scanned row by row by the 1D readers upright, as the user sees it, see
+     * {@link RotatedLuminanceSource}; with 0 or 180 degrees the rows already run that way.
+     *
+     * @param rotation how far to turn a frame clockwise for it to look as on the screen, a
+     *                 multiple of 90 degrees.
+     */
+    public void setRotation(int rotation) {
+        rotation = (rotation % 360 + 360) % 360;
+        if (rotation == this.rotation || rotation % 90 != 0) {
+            return;
+        }
+        this.rotation = rotation;
+        if ((rotation == 90 || rotation == 270) && decodesOneD()) {
+            if (rotatedReader == null) {
+                // The points are in the rotated view, not for the ROI tracker
+                rotatedHints = new EnumMap<>(DecodeHintType.class);
+                if (hints != null) {
+                    rotatedHints.putAll(hints);
+                }
+                rotatedHints.remove(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+                rotatedReader = new MultiFormatOneDReader(rotatedHints);
+            }
+        } else {
+            rotatedReader = null;
+        }
+        rotatedSource = null;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * @return how often frames were tried inverted, and how well that works; {@code null} if
+     * the decoder looks for dark codes on a light background only.
+     */
+    public InvertedScan getInvertedScan() {
+        return invertedScan;
+    }
+
+    /**
+     * @return whether {@link #decode} looks for QR Codes only and bypasses the reader, see
+     * {@link QRCodeFastPath}.
+     */
+    public boolean isQRCodeFastPath() {
+        return qrCodeFastPath != null;
+    }
+
+    /**
+     * @return the pyramid level at which the last {@link #decode} found its code, 0 for full
+     * resolution, 1 for half, 2 for quarter; -1 if it found none.
+     */
+    public int getLastLevel() {
+        return lastLevel;
+    }
+
+    /**
+     * @return the time the last {@link #decode} spent building the luminance matrix, over all
+     * pyramid levels it tried. {@link #decodeMultiple} counts everything as reader time.
+     */
+    public long getLastLuminanceNanos() {
+        return lastLuminanceNanos;
+    }
+
+    /**
+     * @return the time the last {@link #decode} spent binarizing, over all levels it tried.
+     */
+    public long getLastBinarizeNanos() {
+        return lastBinarizeNanos;
+    }
+
+    /**
+     * @return how many black matrices the last {@link #decode} built, over all levels and
+     * passes; a retry which reuses one builds none.
+     */
+    int getLastBinarizations() {
+        return lastBinarizations;
+    }
+
+    /**
+     * @return the time the last decode spent detecting and decoding in the readers.
+     */
+    public long getLastDecodeNanos() {
+        return lastDecodeNanos;
+    }
+
+    /**
+     * Decodes the frame once more, at full resolution with the hybrid binarizer and the slow
+     * hints; with the black matrix of the first passes, if they built it.
+     */
+    private Result retryHarder(boolean inverted) {
+        long start = System.nanoTime();
+        roiTracker.setScale(1);
+        binarizer.setGlobalHistogram(false);
+        Result result;
+        if (hybridBitmap != null && binarizer.isInverted() == inverted) {
+            result = decode(hybridBitmap, hintEscalation.getReader(), hintEscalation.getQRCodeFastPath());
+        } else {
+            binarizer.setInverted(inverted);
+            result = decode(binarizer, hintEscalation.getReader(), hintEscalation.getQRCodeFastPath());
+        }
+        hintEscalation.retryDone(System.nanoTime() - start, result != null);
+        if (result != null) {
+            lastLevel = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Scans the crop for 1D codes once more, in a view turned by {@link #rotation}, without
+     * copying it; the points are turned back into the crop.
+     */
+    private Result decodeRotated(byte[] data, int width, int height, CropRect crop, boolean inverted) {
+        long start = System.nanoTime();
+        if (rotatedSource == null
+                || rotatedSource.getWidth() != crop.getHeight()
+                || rotatedSource.getHeight() != crop.getWidth()) {
+            rotatedSource = new RotatedLuminanceSource(crop.getWidth(), crop.getHeight(), rotation);
+            rotatedBinarizer = new ReusableHybridBinarizer(rotatedSource);
+        }
+        rotatedSource.reset(data, width, height, crop.getLeft(), crop.getTop());
+        // The 1D readers only ask for rows, the view is never copied
+        rotatedBinarizer.setInverted(inverted);
+        try {
+            Result result = rotatedReader.decode(new BinaryBitmap(rotatedBinarizer), rotatedHints);
+            lastLevel = 0;
+            return ResultPoints.rotate(result, rotation, crop.getWidth(), crop.getHeight());
+        } catch (ReaderException re) {
+            // continue
+            return null;
+        } finally {
+            rotatedReader.reset();
+            lastDecodeNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Decodes the frame once more, at full resolution with the hybrid binarizer, with the
+     * polarity the first passes did not use.
+     */
+    private Result decodeOtherPolarity(boolean inverted) {
+        if (roiTracker != null) {
+            roiTracker.setScale(1);
+        }
+        binarizer.setGlobalHistogram(false);
+        binarizer.setInverted(inverted);
+        Result result = decode(binarizer, multiFormatReader, qrCodeFastPath);
+        if (result != null) {
+            lastLevel = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Builds the luminance and the black matrix up front rather than inside the readers, only so
+     * that each stage can be timed; the source and the bitmap keep them for the readers.
+     *
+     * @param fastPath used instead of the reader if not {@code null}.
+     */
+    private Result decode(ReusableHybridBinarizer levelBinarizer, MultiFormatReader reader,
+                          QRCodeFastPath fastPath) {
+        long start = System.nanoTime();
+        levelBinarizer.getLuminanceSource().getMatrix();
+        lastLuminanceNanos += System.nanoTime() - start;
+        BinaryBitmap bitmap = new BinaryBitmap(levelBinarizer);
+        lastBinarizations++;
+        if (levelBinarizer == binarizer) {
+            // The binarizer writes each black matrix over the last one
+            hybridBitmap = levelBinarizer.isGlobalHistogram() ? null : bitmap;
+        }
+        return decode(bitmap, reader, fastPath);
+    }
+
+    /**
+     * Binarizes, unless the bitmap already was, and runs the readers.
+     */
+    private Result decode(BinaryBitmap bitmap, MultiFormatReader reader, QRCodeFastPath fastPath) {
+        long start = System.nanoTime();
+        BitMatrix matrix;
+        try {
+            matrix = bitmap.getBlackMatrix();
+        } catch (NotFoundException nfe) {
+            // Too little contrast to binarize, the readers would fail the same way
+            lastBinarizeNanos += System.nanoTime() - start;
+            return null;
+        }
+        long binarizeDone = System.nanoTime();
+        lastBinarizeNanos += binarizeDone - start;
+        if (fastPath != null) {
+            Result result = fastPath.decode(matrix);
+            lastDecodeNanos += System.nanoTime() - binarizeDone;
+            return result;
+        }
+        try {
+            return reader.decodeWithState(bitmap);
+        } catch (ReaderException re) {
+            // continue
+            return null;
+        } finally {
+            reader.reset();
+            lastDecodeNanos += System.nanoTime() - binarizeDone;
+        }
+    }
+
+    /**
+     * Decodes every code in the crop rect, for labels which carry several of them. QR Codes are
+     * looked for all at once first, then the frame is searched piece by piece around them for
+     * the other formats (and any QR Code missed), see {@link RegionSearch}, until
+     * {@code maxResults} codes are found or the time budget is used up. Codes found twice are
+     * reported once, see {@link ResultCollector}.
+     *
+     * @param data        The YUV frame.
+     * @param width       The width of the frame.
+     * @param height      The height of the frame.
+     * @param crop        The part of the frame to decode.
+     * @param maxResults  Stop after this many codes.
+     * @param budgetNanos Don't start searching another part of the frame after this long. Only
+     *                    bounds the region search: the QR Code pass before it always runs to
+     *                    the end, however long it takes.
+     * @return the codes found, or {@code null} if there were none.
+     */
+    public Result[] decodeMultiple(byte[] data, int width, int height, CropRect crop,
+                                   int maxResults, long budgetNanos) {
+        long start = System.nanoTime();
+        resetLuminanceSource(data, width, height, crop);
+        if (roiTracker != null) {
+            // The points of the pieces are not relative to the crop
+            roiTracker.nextCrop(crop);
+        }
+        if (regionSearch == null) {
+            budgetReader = new BudgetReader(multiFormatReader);
+            regionSearch = new RegionSearch(budgetReader);
+            if (decodesQRCode()) {
+                qrCodeMultiReader = new QRCodeMultiReader();
+            }
+        }
+        budgetReader.setDeadline(start + budgetNanos);
+        ResultCollector collector = new ResultCollector(maxResults);
+        binarizer.setGlobalHistogram(false);
+        binarizer.setInverted(false);
+        try {
+            BinaryBitmap bitmap = new BinaryBitmap(binarizer);
+            if (qrCodeMultiReader != null) {
+                try {
+                    for (Result result : qrCodeMultiReader.decodeMultiple(bitmap, hints)) {
+                        collector.add(result);
+                    }
+                } catch (ReaderException re) {
+                    // continue
+                }
+            }
+            regionSearch.search(bitmap, collector);
+        } finally {
+            multiFormatReader.reset();
+        }
+        if (roiTracker != null) {
+            roiTracker.discardFrame();
+        }
+        lastLuminanceNanos = 0L;
+        lastBinarizeNanos = 0L;
+        lastDecodeNanos = System.nanoTime() - start;
+        Result[] results = collector.toArray();
+        return results.length > 0 ? results : null;
+    }
+
+    /**
+     * Decodes a small generated QR Code and Data Matrix once (those of them this decoder looks
+     * for), so that the reader classes are loaded and their code compiled before the first camera
+     * frame arrives, e.g. while the camera is still opening. Leaves the state of this decoder
+     * alone: nothing is reported to the result point callback and the ROI is not touched.
+     */
+    public void warmUp() {
+        Map<DecodeHintType, Object> warmUpHints = new EnumMap<>(DecodeHintType.class);
+        if (hints != null) {
+            warmUpHints.putAll(hints);
+        }
+        warmUpHints.remove(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+        MultiFormatReader warmUpReader = new MultiFormatReader();
+        warmUpReader.setHints(warmUpHints);
+        for (BarcodeFormat format : WarmUpFrames.FORMATS) {
+            if (!decodes(format)) {
+                continue;
+            }
+            byte[] frame = WarmUpFrames.get(format);
+            ReusableYUVLuminanceSource warmUpSource =
+                    new ReusableYUVLuminanceSource(WarmUpFrames.SIZE, WarmUpFrames.SIZE);
+            warmUpSource.reset(frame, WarmUpFrames.SIZE, WarmUpFrames.SIZE, 0, 0);
+            try {
+                warmUpReader.decodeWithState(new BinaryBitmap(new ReusableHybridBinarizer(warmUpSource)));
+            } catch (ReaderException re) {
+                // continue
+            } finally {
+                warmUpReader.reset();
+            }
+        }
+    }
+
+    private boolean decodesQRCode() {
+        return decodes(BarcodeFormat.QR_CODE);
+    }
+
+    private boolean decodesOneD() {
+        for (BarcodeFormat format : ONE_D_FORMATS) {
+            if (decodes(format)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean decodes(BarcodeFormat format) {
+        Object formats = hints == null ? null : hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        return !(formats instanceof Collection) || ((Collection<?>) formats).contains(format);
+    }
+
+    /**
+     * @return the source of the crop rect of the last decoded frame, valid as long as that frame's
+     * data is. The whole crop, also if only the ROI within it was decoded, so that it matches the
+     * result points, which are relative to the crop.
+     */
+    public ReusableYUVLuminanceSource getLuminanceSource() {
+        if (roiFrameCrop != null) {
+            resetLuminanceSource(roiFrameData, roiFrameWidth, roiFrameHeight, roiFrameCrop);
+        }
+        return source;
+    }
+
+    /**
+     * Copies the crop rect out of the buffer into {@link #bufferMatrix}, a frame of the crop's
+     * size of which {@link #bufferCrop} is the whole.
+     */
+    private void copyCrop(ByteBuffer data, int rowStride, int pixelStride, int width, int height,
+                          CropRect crop) {
+        int cropWidth = crop.getWidth();
+        int cropHeight = crop.getHeight();
+        if (bufferSource == null
+                || bufferSource.getWidth() != cropWidth
+                || bufferSource.getHeight() != cropHeight) {
+            bufferSource = new ByteBufferLuminanceSource(cropWidth, cropHeight);
+            bufferCrop = new CropRect(0, 0, cropWidth, cropHeight);
+        }
+        bufferSource.reset(data, width, height, rowStride, pixelStride, crop.getLeft(), crop.getTop());
+        bufferMatrix = bufferSource.getMatrix(bufferMatrix);
+    }
+
+    private void resetLuminanceSource(byte[] data, int width, int height, CropRect crop) {
+        roiFrameData = null;
+        roiFrameCrop = null;
+        if (source == null
+                || source.getWidth() != crop.getWidth()
+                || source.getHeight() != crop.getHeight()) {
+            selectSource(crop.getWidth(), crop.getHeight());
+        }
+        source.reset(data, width, height, crop.getLeft(), crop.getTop());
+    }
+
+    /**
+     * @param reset whether to point the source at this frame, or it already is.
+     */
+    private ReusableHybridBinarizer resetReducedSource(byte[] data, int width, int height,
+                                                       CropRect crop, int factor, boolean reset) {
+        int reducedWidth = crop.getWidth() / factor;
+        int reducedHeight = crop.getHeight() / factor;
+        int slot = -1;
+        for (int i = 0; i < reducedSources.length; i++) {
+            SubsampledLuminanceSource reduced = reducedSources[i];
+            if (reduced != null && reduced.getFactor() == factor
+                    && reduced.getWidth() == reducedWidth && reduced.getHeight() == reducedHeight) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) {
+            slot = nextReducedSlot;
+            nextReducedSlot = (nextReducedSlot + 1) % reducedSources.length;
+            reducedSources[slot] = new SubsampledLuminanceSource(crop.getWidth(), crop.getHeight(), factor);
+            reducedBinarizers[slot] = new ReusableHybridBinarizer(reducedSources[slot]);
+            reset = true;
+        }
+        if (reset) {
+            reducedSources[slot].reset(data, width, height, crop.getLeft(), crop.getTop());
+        }
+        return reducedBinarizers[slot];
+    }
+
+    /**
+     * Picks the kept source of that size, or replaces the oldest one.
+     */
+    private void selectSource(int width, int height) {
+        for (int i = 0; i < SOURCE_CACHE_SIZE; i++) {
+            if (sources[i] != null && sources[i].getWidth() == width && sources[i].getHeight() == height) {
+                source = sources[i];
+                binarizer = binarizers[i];
+                return;
+            }
+        }
+        int slot = nextSourceSlot;
+        nextSourceSlot = (nextSourceSlot + 1) % SOURCE_CACHE_SIZE;
+        source = new ReusableYUVLuminanceSource(width, height);
+        binarizer = new ReusableHybridBinarizer(source);
+        sources[slot] = source;
+        binarizers[slot] = binarizer;
+    }
+
+    /**
+     * What a {@link FrameDecoder} does besides decoding each frame as it is, all off unless set:
+     * <pre>
+     * new FrameDecoder(hints, new FrameDecoder.Options()
+     *         .setTrackRoi(true)
+     *         .setPyramidLevels(1));
+     * </pre>
+     */
+    public static final class Options {
+
+        private boolean trackRoi;
+        private int pyramidLevels;
+        private boolean adaptiveBinarizer;
+        private long escalationBudgetNanos;
+        private boolean invertedScan;
+
+        /**
+         * @param trackRoi whether to decode only a window around where the code was last seen,
+         *                 see {@link RoiTracker}. Applies to {@link #decode} only.
+         */
+        public Options setTrackRoi(boolean trackRoi) {
+            this.trackRoi = trackRoi;
+            return this;
+        }
+
+        /**
+         * @param pyramidLevels how many reduced levels {@link #decode} tries before the full
+         *                      resolution, 0 to {@link #MAX_PYRAMID_LEVELS}: 1 tries half
+         *                      resolution first, 2 quarter then half resolution.
+         */
+        public Options setPyramidLevels(int pyramidLevels) {
+            this.pyramidLevels = pyramidLevels;
+            return this;
+        }
+
+        /**
+         * @param adaptiveBinarizer whether {@link #decode} picks the binarizer per frame, see
+         *                          {@link BinarizerSelector}, rather than always using the hybrid
+         *                          one.
+         */
+        public Options setAdaptiveBinarizer(boolean adaptiveBinarizer) {
+            this.adaptiveBinarizer = adaptiveBinarizer;
+            return this;
+        }
+
+        /**
+         * @param escalationBudgetNanos how long {@link #decode} may spend on a frame, the retry
+         *                              with {@code TRY_HARDER} included, see
+         *                              {@link HintEscalation}; 0 not to retry. Ignored if the
+         *                              hints already ask to try harder.
+         */
+        public Options setEscalationBudgetNanos(long escalationBudgetNanos) {
+            this.escalationBudgetNanos = escalationBudgetNanos;
+            return this;
+        }
+
+        /**
+         * @param invertedScan whether {@link #decode} also looks for inverted codes, see
+         *                     {@link InvertedScan}.
+         */
+        public Options setInvertedScan(boolean invertedScan) {
+            this.invertedScan = invertedScan;
+            return this;
+        }
+
+    }
+
+    /**
+     * The frames {@link #warmUp()} decodes, rendered once per process on first use.
+     */
+    private static final class WarmUpFrames {
+
+        static final BarcodeFormat[] FORMATS = {BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX};
+        static final int SIZE = 160;
+        private static final int MODULE_SIZE = 4;
+        private static final byte[][] FRAMES = new byte[FORMATS.length][];
+
+        static {
+            for (int i = 0; i < FORMATS.length; i++) {
+                FRAMES[i] = render(FORMATS[i]);
+            }
+        }
+
+        static byte[] get(BarcodeFormat format) {
+            for (int i = 0; i < FORMATS.length; i++) {
+                if (FORMATS[i] == format) {
+                    return FRAMES[i];
+                }
+            }
+            throw new IllegalArgumentException("No warm up frame for " + format);
+        }
+
+        /**
+         * Dark modules on a light background, centered, the way a camera would see them.
+         */
+        private static byte[] render(BarcodeFormat format) {
+            byte[] frame = new byte[SIZE * SIZE];
+            Arrays.fill(frame, (byte) 200);
+            BitMatrix code;
+            try {
+                code = new MultiFormatWriter().encode("warm up", format, 0, 0);
+            } catch (WriterException we) {
+                return frame;
+            }
+            int offsetX = (SIZE - code.getWidth() * MODULE_SIZE) / 2;
+            int offsetY = (SIZE - code.getHeight() * MODULE_SIZE) / 2;
+            for (int y = 0; y < code.getHeight() * MODULE_SIZE; y++) {
+                for (int x = 0; x < code.getWidth() * MODULE_SIZE; x++) {
+                    if (code.get(x / MODULE_SIZE, y / MODULE_SIZE)) {
+                        frame[(offsetY + y) * SIZE + offsetX + x] = (byte) 40;
+                    }
+                }
+            }
+            return frame;
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.zht.qrcodescanner.decode;
+
+/**
+ * Rejects frames which can't be decoded before the binarizer and the detectors run: frames which
+ * are too dark, have too little contrast, or are blurred, e.g. taken while the lens was still
+ * focusing. Only every other pixel of every {@link #ROW_STEP}th row of the crop is read, split
+ * into blocks of {@link #BLOCK_SIZE} pixels like the binarizer does, since a code may cover only
+ * a small part of the crop:
+ * <ul>
+ * <li>brightness: the mean luminance;</li>
+ * <li>contrast: the largest luminance range within a block;</li>
+ * <li>sharpness: how steep the edges are in the blocks with at least half that contrast: the
+ * largest step between neighbouring pixels, in percent of the block's range, on average. A
+ * sharp edge goes from dark to light within a pixel or two, a blurred one takes many.</li>
+ * </ul>
+ * After {@link #MAX_CONSECUTIVE_REJECTS} rejected frames in a row one is let through anyway, so
+ * a scene the thresholds don't suit still gets decoded now and then.
+ * <p>
+ * Not thread safe, use one per decoder.
+ * <p>
+ * 帧质量预过滤：跳过过暗、对比度过低或模糊（如对焦过程中）的帧，不进行解码。
+ */
+public final class FrameQualityFilter {
+
+    public static final int DEFAULT_MIN_BRIGHTNESS = 16;
+    public static final int DEFAULT_MIN_CONTRAST = 32;
+    public static final int DEFAULT_MIN_SHARPNESS = 12;
+
+    static final int BLOCK_SIZE_POWER = 5;
+    static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER;
+    static final int ROW_STEP = 8;
+    static final int MAX_CONSECUTIVE_REJECTS = 10;
+
+    private final int minBrightness;
+    private final int minContrast;
+    private final int minSharpness;
+    private int consecutiveRejects;
+
+    private int[] blockMin;
+    private int[] blockMax;
+    private int[] blockStep;
+
+    private int brightness;
+    private int contrast;
+    private int sharpness;
+
+    public FrameQualityFilter() {
+        this(DEFAULT_MIN_BRIGHTNESS, DEFAULT_MIN_CONTRAST, DEFAULT_MIN_SHARPNESS);
+    }
+
+    /**
+     * @param minBrightness lowest mean luminance, 0 - 255.
+     * @param minContrast   lowest luminance range of the best block, 0 - 255.
+     * @param minSharpness  lowest edge steepness, in percent.
+     */
+    public FrameQualityFilter(int minBrightness, int minContrast, int minSharpness) {
+        this.minBrightness = minBrightness;
+        this.minContrast = minContrast;
+        this.minSharpness = minSharpness;
+    }
+
+    /**
+     * @param data   The YUV frame, Y plane first.
+     * @param width  The width of the frame.
+     * @param height The height of the frame.
+     * @param crop   The part of the frame which would be decoded.
+     * @return whether the frame is worth decoding.
+     */
+    public boolean accept(byte[] data, int width, int height, CropRect crop) {
+        measure(data, width, crop);
+        boolean good = brightness >= minBrightness && contrast >= minContrast && sharpness >= minSharpness;
+        if (good || ++consecutiveRejects > MAX_CONSECUTIVE_REJECTS) {
+            consecutiveRejects = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the mean luminance of the last frame looked at.
+     */
+    public int getBrightness() {
+        return brightness;
+    }
+
+    /**
+     * @return the largest luminance range within a block of the last frame looked at.
+     */
+    public int getContrast() {
+        return contrast;
+    }
+
+    /**
+     * @return the edge steepness of the last frame looked at, in percent.
+     */
+    public int getSharpness() {
+        return sharpness;
+    }
+
+    private void measure(byte[] data, int width, CropRect crop) {
+        int cropWidth = crop.getWidth();
+        int blocksX = (cropWidth + BLOCK_SIZE - 1) >> BLOCK_SIZE_POWER;
+        int blocksY = (crop.getHeight() + BLOCK_SIZE - 1) >> BLOCK_SIZE_POWER;
+        int blocks = blocksX * blocksY;
+        if (blockMin == null || blockMin.length < blocks) {
+            blockMin = new int[blocks];
+            blockMax = new int[blocks];
+            blockStep = new int[blocks];
+        }
+        int[] blockMin = this.blockMin;
+        int[] blockMax = this.blockMax;
+        int[] blockStep = this.blockStep;
+        for (int i = 0; i < blocks; i++) {
+            blockMin[i] = 255;
+            blockMax[i] = 0;
+            blockStep[i] = 0;
+        }
+
+        long sum = 0;
+        int count = 0;
+        for (int y = 0; y < crop.getHeight(); y += ROW_STEP) {
+            int offset = (crop.getTop() + y) * width + crop.getLeft();
+            int block = (y >> BLOCK_SIZE_POWER) * blocksX;
+            // Start on odd pixels every other row, so edges between any two pixels are seen
+            int phase = (y / ROW_STEP) & 1;
+            for (int blockLeft = 0; blockLeft < cropWidth; blockLeft += BLOCK_SIZE, block++) {
+                int blockRight = Math.min(blockLeft + BLOCK_SIZE, cropWidth) - 1;
+                int min = blockMin[block];
+                int max = blockMax[block];
+                int maxStep = blockStep[block];
+                // Every other pixel, and the step to its right neighbour
+                for (int x = offset + blockLeft + phase; x < offset + blockRight; x += 2) {
+                    int value = data[x] & 0xff;
+                    int next = data[x + 1] & 0xff;
+                    if (value < min) {
+                        min = value;
+                    }
+                    if (value > max) {
+                        max = value;
+                    }
+                    int step = value > next ? value - next : next - value;
+                    if (step > maxStep) {
+                        maxStep = step;
+                    }
+                    sum += value;
+                    count++;
+                }
+                blockMin[block] = min;
+                blockMax[block] = max;
+                blockStep[block] = maxStep;
+            }
+        }
+        brightness = count == 0 ? 0 : (int) (sum / count);
+
+        int maxRange = 0;
+        for (int i = 0; i < blocks; i++) {
+            maxRange = Math.max(maxRange, blockMax[i] - blockMin[i]);
+        }
+        contrast = maxRange;
+
+        int steepness = 0;
+        int contrasted = 0;
+        for (int i = 0; i < blocks; i++) {
+            int range = blockMax[i] - blockMin[i];
+            if (range > 0 && range * 2 >= maxRange) {
+                steepness += blockStep[i] * 100 / range;
+                contrasted++;
+            }
+        }
+        sharpness = contrasted == 0 ? 0 : steepness / contrasted;
+    }
+
+}
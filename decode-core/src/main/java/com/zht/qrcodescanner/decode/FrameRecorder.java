@@ -0,0 +1,105 @@
+package com.zht.qrcodescanner.decode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes raw NV21 preview frames to a single append-only file, with an index in front of them,
+ * in the format {@link FrameRecording} reads. The index is sized up front for {@code capacity}
+ * frames; once it is full, further frames are refused rather than the file rewritten.
+ * <p>
+ * Writes go straight to the file, one frame at a time, so record from a thread which may block
+ * on I/O, not the camera's. Not thread safe.
+ * <p>
+ * 将 NV21 预览帧追加写入单个文件（带索引头），用于复现现场问题。
+ */
+public final class FrameRecorder implements Closeable {
+
+    private final RandomAccessFile out;
+    private final int capacity;
+    private final byte[] entry = new byte[FrameRecording.ENTRY_SIZE];
+    private int count;
+    private long end;
+
+    /**
+     * Creates the file, replacing any file of that name.
+     *
+     * @param capacity the most frames the recording may hold.
+     */
+    public FrameRecorder(File file, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(0);
+            end = FrameRecording.HEADER_SIZE + (long) capacity * FrameRecording.ENTRY_SIZE;
+            out.setLength(end);
+            out.writeInt(FrameRecording.MAGIC);
+            out.writeInt(FrameRecording.VERSION);
+            out.writeInt(capacity);
+            out.writeInt(0);
+        } catch (IOException ioe) {
+            out.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Appends a frame.
+     *
+     * @param data           The NV21 frame; may be longer than the frame, e.g. a preview buffer.
+     * @param width          The width of the frame.
+     * @param height         The height of the frame.
+     * @param timestampNanos When the frame arrived, e.g. {@link System#nanoTime()}.
+     * @param crop           The part of the frame the scanner decodes, or {@code null}.
+     * @return {@code false} if the recording is full and the frame was not written.
+     */
+    public boolean append(byte[] data, int width, int height, long timestampNanos, CropRect crop)
+            throws IOException {
+        if (count == capacity) {
+            return false;
+        }
+        int length = width * height * 3 / 2;
+        if (data.length < length) {
+            throw new IllegalArgumentException("Frame data is too short: " + data.length);
+        }
+        out.seek(end);
+        out.write(data, 0, length);
+        ByteBuffer index = ByteBuffer.wrap(entry);
+        index.putLong(end)
+                .putLong(timestampNanos)
+                .putInt(width)
+                .putInt(height)
+                .putInt(crop == null ? 0 : crop.getLeft())
+                .putInt(crop == null ? 0 : crop.getTop())
+                .putInt(crop == null ? 0 : crop.getWidth())
+                .putInt(crop == null ? 0 : crop.getHeight());
+        out.seek(FrameRecording.HEADER_SIZE + (long) count * FrameRecording.ENTRY_SIZE);
+        out.write(entry);
+        // Last, so that a reader never sees a frame which is not completely written
+        count++;
+        out.seek(FrameRecording.COUNT_OFFSET);
+        out.writeInt(count);
+        end += length;
+        return true;
+    }
+
+    public int getFrameCount() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == capacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
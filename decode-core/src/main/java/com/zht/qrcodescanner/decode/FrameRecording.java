@@ -0,0 +1,203 @@
+package com.zht.qrcodescanner.decode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A preview stream recorded by {@link FrameRecorder}, memory mapped for replay: the frames are
+ * read where they lie in the file, through {@link FrameDecoder#decode(ByteBuffer, int, int, int,
+ * int, CropRect)}, without loading the recording to the heap.
+ * <p>
+ * The file is one header, an index of {@code capacity} entries and the frames after it, appended
+ * in the order they arrived:
+ * <pre>
+ * header  int magic, int version, int capacity, int count
+ * entry   long offset, long timestampNanos, int width, int height,
+ *         int cropLeft, int cropTop, int cropWidth, int cropHeight
+ * frame   width * height * 3 / 2 bytes of NV21
+ * </pre>
+ * all big endian. Only the first {@code count} entries are valid; the count is written after the
+ * frame and its entry, so a recording cut short by a crash ends at the last complete frame.
+ * <p>
+ * A buffer can't map more than 2 GB, so the index and the frames are mapped apart, the frames in
+ * windows of at most {@link #MAX_WINDOW} bytes, each holding whole frames; a recording of any size
+ * can be replayed.
+ * <p>
+ * 录制的预览帧文件（内存映射），用于离线回放解码。
+ */
+public final class FrameRecording {
+
+    static final int MAGIC = 0x51524652; // "QRFR"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int COUNT_OFFSET = 12;
+    static final int ENTRY_SIZE = 40;
+    /**
+     * The most bytes mapped by one buffer.
+     */
+    static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+    private final ByteBuffer index;
+    private final int count;
+    /**
+     * The frames, in windows; each frame's window, and its offset within it.
+     */
+    private final ByteBuffer[] windows;
+    private final int[] frameWindows;
+    private final int[] frameOffsets;
+
+    private FrameRecording(ByteBuffer index, int count, ByteBuffer[] windows, int[] frameWindows,
+                           int[] frameOffsets) {
+        this.index = index;
+        this.count = count;
+        this.windows = windows;
+        this.frameWindows = frameWindows;
+        this.frameOffsets = frameOffsets;
+    }
+
+    /**
+     * Maps a recording read only. The mapping stays valid after the file is closed, until this
+     * object is garbage collected.
+     *
+     * @throws IOException if the file can't be read or is not a recording.
+     */
+    public static FrameRecording open(File file) throws IOException {
+        return open(file, MAX_WINDOW);
+    }
+
+    /**
+     * @param maxWindow the most bytes mapped by one buffer, less than {@link #MAX_WINDOW} to test
+     *                  the windows without a recording of gigabytes.
+     */
+    static FrameRecording open(File file, long maxWindow) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a frame recording: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a frame recording: " + file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported recording version " + header.getInt(4) + ": " + file);
+            }
+            int capacity = header.getInt(8);
+            int count = header.getInt(COUNT_OFFSET);
+            long indexSize = HEADER_SIZE + (long) capacity * ENTRY_SIZE;
+            if (count < 0 || count > capacity || indexSize > size || indexSize > MAX_WINDOW) {
+                throw new IOException("Corrupt recording index: " + file);
+            }
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, indexSize);
+            // A new window wherever the next frame would not fit in the current one
+            List<ByteBuffer> windows = new ArrayList<>();
+            int[] frameWindows = new int[count];
+            int[] frameOffsets = new int[count];
+            long windowStart = -1L;
+            long windowEnd = -1L;
+            for (int i = 0; i < count; i++) {
+                int entry = HEADER_SIZE + i * ENTRY_SIZE;
+                long offset = index.getLong(entry);
+                long end = offset + frameLength(index.getInt(entry + 16), index.getInt(entry + 20));
+                if (offset < indexSize || end > size || end - offset > maxWindow) {
+                    throw new IOException("Frame " + i + " is cut short: " + file);
+                }
+                if (windowStart < 0L || offset < windowStart || end - windowStart > maxWindow) {
+                    if (windowStart >= 0L) {
+                        windows.add(channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                                windowEnd - windowStart));
+                    }
+                    windowStart = offset;
+                    windowEnd = end;
+                }
+                windowEnd = Math.max(windowEnd, end);
+                frameWindows[i] = windows.size();
+                frameOffsets[i] = (int) (offset - windowStart);
+            }
+            if (windowStart >= 0L) {
+                windows.add(channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart));
+            }
+            return new FrameRecording(index, count, windows.toArray(new ByteBuffer[windows.size()]),
+                    frameWindows, frameOffsets);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the number of complete frames.
+     */
+    public int getFrameCount() {
+        return count;
+    }
+
+    /**
+     * @return when the camera delivered the frame, on the recording device's monotonic clock.
+     */
+    public long getTimestampNanos(int frame) {
+        return index.getLong(entry(frame) + 8);
+    }
+
+    public int getWidth(int frame) {
+        return index.getInt(entry(frame) + 16);
+    }
+
+    public int getHeight(int frame) {
+        return index.getInt(entry(frame) + 20);
+    }
+
+    /**
+     * @return the framing rect in preview coordinates at the time, i.e. what the scanner decoded;
+     * the whole frame if it was not known.
+     */
+    public CropRect getCrop(int frame) {
+        int entry = entry(frame);
+        int width = index.getInt(entry + 32);
+        int height = index.getInt(entry + 36);
+        if (width <= 0 || height <= 0) {
+            return new CropRect(0, 0, getWidth(frame), getHeight(frame));
+        }
+        return new CropRect(index.getInt(entry + 24), index.getInt(entry + 28), width, height);
+    }
+
+    /**
+     * @return the NV21 frame, Y plane first with a row stride of its width, starting at the
+     * returned buffer's position. A view of its own, which may be read from any one thread.
+     */
+    public ByteBuffer getFrame(int frame) {
+        // Checks the frame number first
+        int length = (int) frameLength(getWidth(frame), getHeight(frame));
+        ByteBuffer view = windows[frameWindows[frame]].duplicate();
+        int offset = frameOffsets[frame];
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice();
+    }
+
+    /**
+     * @return the number of buffers the frames are mapped in.
+     */
+    int getWindowCount() {
+        return windows.length;
+    }
+
+    private static long frameLength(int width, int height) {
+        return (long) width * height * 3 / 2;
+    }
+
+    private int entry(int frame) {
+        if (frame < 0 || frame >= count) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + count);
+        }
+        return HEADER_SIZE + frame * ENTRY_SIZE;
+    }
+
+}
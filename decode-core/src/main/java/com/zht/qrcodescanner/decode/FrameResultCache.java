@@ -0,0 +1,229 @@
+package com.zht.qrcodescanner.decode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Remembers the codes the decoder found in the last few frames, by a perceptual hash of their
+ * crop, so that a frame which looks like one of them is not decoded again: with the phone held
+ * still over a code one frame is much like the next. Frames in which nothing was found are not
+ * remembered: the next, sharper frame of the same scene may well be read.
+ * <p>
+ * The hash is a difference hash (dHash) of block averages: the crop is split into a grid of
+ * {@link #GRID_WIDTH} by {@link #GRID_HEIGHT} blocks, every {@link #SAMPLE_STEP}th pixel of every
+ * {@link #SAMPLE_STEP}th row is averaged per block, and each of the 64 bits tells whether a block
+ * is brighter than its right neighbour by at least {@link #MIN_DIFFERENCE}. It ignores the
+ * exposure and the noise, and mostly the focus; it changes as soon as the picture moves by a
+ * fraction of a block. Two frames match if their hashes differ in at most {@code maxDistance}
+ * bits: a code shaken by a pixel or two differs in about 5, another code in about 16.
+ * <p>
+ * An outcome is only trusted for {@code ttlMillis} after the frame it came from was decoded. At
+ * most {@code maxEntries} outcomes are kept, the least recently matched are forgotten first.
+ * <p>
+ * Not thread safe, use one per decoder.
+ * <p>
+ * 解码结果缓存：以扫码框内图像的感知哈希（dHash）为键，几乎相同的帧直接使用上次成功的解码结果。
+ *
+ * @param <V> what the decoder returned when it found something.
+ */
+public final class FrameResultCache<V> {
+
+    static final int GRID_WIDTH = 9;
+    static final int GRID_HEIGHT = 8;
+    static final int SAMPLE_STEP = 2;
+    /**
+     * How much brighter, in luminance levels, a block must be than its neighbour for its bit to
+     * be set; blocks about as bright as their neighbour, e.g. plain background, leave it clear
+     * rather than flip it with the sensor noise.
+     */
+    static final int MIN_DIFFERENCE = 2;
+
+    private final int maxDistance;
+    private final long ttlMillis;
+    /**
+     * Hash to outcome, least recently matched first.
+     */
+    private final LinkedHashMap<Long, Outcome<V>> outcomes;
+    private final int[] blockSums = new int[GRID_WIDTH * GRID_HEIGHT];
+    private final int[] blockCounts = new int[GRID_WIDTH * GRID_HEIGHT];
+    /**
+     * The grid column of each sampled pixel of a crop row, for crops {@link #columnsWidth} wide.
+     */
+    private int[] columns;
+    private int columnsWidth = -1;
+    private long lastHash;
+    private boolean pending;
+    private V value;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxEntries  the most outcomes remembered at once.
+     * @param maxDistance the most hash bits, of 64, in which a frame may differ from a remembered
+     *                    one and still match it.
+     * @param ttlMillis   how long an outcome is used for after its frame was decoded.
+     */
+    public FrameResultCache(final int maxEntries, int maxDistance, long ttlMillis) {
+        this.maxDistance = maxDistance;
+        this.ttlMillis = ttlMillis;
+        outcomes = new LinkedHashMap<Long, Outcome<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Outcome<V>> eldest) {
+                return size() > Math.max(1, maxEntries);
+            }
+        };
+    }
+
+    /**
+     * Looks for a remembered frame like this one. On a hit its outcome is in {@link #getValue()};
+     * on a miss, decode the frame and hand the outcome to {@link #put}.
+     *
+     * @param data      The YUV frame, Y plane first.
+     * @param width     The width of the frame.
+     * @param crop      The part of the frame which would be decoded.
+     * @param nowMillis the current time, from a monotonic clock.
+     * @return whether the frame matched one decoded within the TTL.
+     */
+    public boolean lookup(byte[] data, int width, CropRect crop, long nowMillis) {
+        lastHash = hash(data, width, crop);
+        Long match = null;
+        int bestDistance = maxDistance + 1;
+        Iterator<Map.Entry<Long, Outcome<V>>> iterator = outcomes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Outcome<V>> entry = iterator.next();
+            if (nowMillis - entry.getValue().decodedMillis >= ttlMillis) {
+                iterator.remove();
+                continue;
+            }
+            int distance = distance(lastHash, entry.getKey());
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                match = entry.getKey();
+            }
+        }
+        if (match == null) {
+            misses++;
+            pending = true;
+            value = null;
+            return false;
+        }
+        hits++;
+        pending = false;
+        // Moves it to the end, as the most recently matched
+        value = outcomes.get(match).value;
+        return true;
+    }
+
+    /**
+     * @return the outcome of the frame the last {@link #lookup} matched.
+     */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * Remembers the outcome of decoding the frame the last {@link #lookup} missed; ignored after
+     * a hit, and if nothing was found.
+     *
+     * @param value     what the decoder returned, {@code null} for nothing found.
+     * @param nowMillis the current time, from a monotonic clock.
+     */
+    public void put(V value, long nowMillis) {
+        if (!pending) {
+            return;
+        }
+        pending = false;
+        if (value == null) {
+            return;
+        }
+        outcomes.put(lastHash, new Outcome<>(value, nowMillis));
+    }
+
+    public void clear() {
+        outcomes.clear();
+        pending = false;
+        value = null;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the hash of the frame the last {@link #lookup} looked at.
+     */
+    public long getLastHash() {
+        return lastHash;
+    }
+
+    /**
+     * The dHash of the crop, see above.
+     */
+    long hash(byte[] data, int width, CropRect crop) {
+        int cropWidth = crop.getWidth();
+        int cropHeight = crop.getHeight();
+        if (columnsWidth != cropWidth) {
+            columns = new int[(cropWidth + SAMPLE_STEP - 1) / SAMPLE_STEP];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = i * SAMPLE_STEP * GRID_WIDTH / cropWidth;
+            }
+            columnsWidth = cropWidth;
+        }
+        int[] columns = this.columns;
+        int[] blockSums = this.blockSums;
+        int[] blockCounts = this.blockCounts;
+        for (int i = 0; i < blockSums.length; i++) {
+            blockSums[i] = 0;
+            blockCounts[i] = 0;
+        }
+        for (int y = 0; y < cropHeight; y += SAMPLE_STEP) {
+            int offset = (crop.getTop() + y) * width + crop.getLeft();
+            int row = y * GRID_HEIGHT / cropHeight * GRID_WIDTH;
+            for (int i = 0; i < columns.length; i++) {
+                int block = row + columns[i];
+                blockSums[block] += data[offset + i * SAMPLE_STEP] & 0xff;
+                blockCounts[block]++;
+            }
+        }
+        long hash = 0L;
+        for (int row = 0; row < GRID_HEIGHT; row++) {
+            for (int column = 0; column < GRID_WIDTH - 1; column++) {
+                int block = row * GRID_WIDTH + column;
+                // Compares the averages without dividing: a / n - b / m > d
+                long count = (long) blockCounts[block] * blockCounts[block + 1];
+                long left = (long) blockSums[block] * blockCounts[block + 1];
+                long right = (long) blockSums[block + 1] * blockCounts[block];
+                hash = (hash << 1) | (left - right > MIN_DIFFERENCE * count ? 1L : 0L);
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long hash, long other) {
+        return Long.bitCount(hash ^ other);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d hits, %d misses", hits, misses);
+    }
+
+    private static final class Outcome<V> {
+
+        final V value;
+        final long decodedMillis;
+
+        Outcome(V value, long decodedMillis) {
+            this.value = value;
+            this.decodedMillis = decodedMillis;
+        }
+
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * When to retry a frame the cheap hints found nothing in with {@link DecodeHintType#TRY_HARDER}:
+ * only if the readers saw something of a code, at least {@link #MIN_EVIDENCE_POINTS} possible
+ * result points (e.g. QR finder patterns) reported through the result point callback, and only if
+ * the retry is expected to end within the frame's time budget. What a retry costs is learned as
+ * it goes, a moving average. Every frame starts with the cheap hints again.
+ * <p>
+ * So a frame without a code never pays for the slow hints, and a frame with one the cheap pass
+ * almost read gets a second chance in the same frame, rather than the next frame failing the
+ * same way.
+ * <p>
+ * Not thread safe, one per {@link FrameDecoder}.
+ * <p>
+ * 解码参数逐级升级：先用开销小的参数解码；若发现了定位点却未能解码，在每帧的时间预算内用 TRY_HARDER 重试同一帧。
+ */
+public final class HintEscalation {
+
+    static final int MIN_EVIDENCE_POINTS = 2;
+    /**
+     * How far the expected retry time moves towards the latest retry: by 1 / COST_HISTORY of the
+     * difference, a moving average over about this many retries.
+     */
+    private static final int COST_HISTORY = 4;
+
+    private final long budgetNanos;
+    private final MultiFormatReader reader;
+    private final QRCodeFastPath qrCodeFastPath;
+    private long expectedNanos;
+    private long retries;
+    private long retrySuccesses;
+    private long overBudget;
+
+    /**
+     * @param hints       the cheap hints, already wrapped for the result point callback; the
+     *                    retry uses a copy with {@link DecodeHintType#TRY_HARDER} on.
+     * @param budgetNanos how long a frame may take, the cheap pass and the retry together.
+     */
+    HintEscalation(Map<DecodeHintType, ?> hints, long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        Map<DecodeHintType, Object> hardHints = new EnumMap<>(DecodeHintType.class);
+        if (hints != null) {
+            hardHints.putAll(hints);
+        }
+        hardHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        reader = new MultiFormatReader();
+        reader.setHints(hardHints);
+        qrCodeFastPath = QRCodeFastPath.supports(hardHints) ? new QRCodeFastPath(hardHints) : null;
+    }
+
+    /**
+     * @return whether the hints are cheap enough to escalate from.
+     */
+    static boolean supports(Map<DecodeHintType, ?> hints) {
+        return hints == null || !Boolean.TRUE.equals(hints.get(DecodeHintType.TRY_HARDER));
+    }
+
+    /**
+     * @param frameStart     when the frame's cheap pass started, in {@link System#nanoTime()} time.
+     * @param evidencePoints the possible result points the cheap pass reported.
+     * @return whether to retry the frame with the slow hints now.
+     */
+    boolean shouldRetry(long frameStart, int evidencePoints) {
+        if (evidencePoints < MIN_EVIDENCE_POINTS) {
+            return false;
+        }
+        if (System.nanoTime() - frameStart + expectedNanos > budgetNanos) {
+            overBudget++;
+            return false;
+        }
+        retries++;
+        return true;
+    }
+
+    /**
+     * Records a retry.
+     *
+     * @param nanos how long it took.
+     * @param found whether it found the code.
+     */
+    void retryDone(long nanos, boolean found) {
+        expectedNanos = expectedNanos == 0L ? nanos : expectedNanos + (nanos - expectedNanos) / COST_HISTORY;
+        if (found) {
+            retrySuccesses++;
+        }
+    }
+
+    MultiFormatReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return the fast path with the slow hints, or {@code null} if the decoder uses the reader.
+     */
+    QRCodeFastPath getQRCodeFastPath() {
+        return qrCodeFastPath;
+    }
+
+    /**
+     * @return the frames retried with the slow hints.
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return the frames the retry found a code in.
+     */
+    public long getRetrySuccesses() {
+        return retrySuccesses;
+    }
+
+    /**
+     * @return the frames with evidence of a code which were not retried, as there was no time.
+     */
+    public long getOverBudget() {
+        return overBudget;
+    }
+
+    /**
+     * @return what a retry is expected to cost, from the last few.
+     */
+    public long getExpectedNanos() {
+        return expectedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d/%d retries found a code, %d over budget, %.1f ms per retry",
+                retrySuccesses, retries, overBudget, expectedNanos / 1e6);
+    }
+
+}
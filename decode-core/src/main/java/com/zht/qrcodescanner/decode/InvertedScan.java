@@ -0,0 +1,104 @@
+package com.zht.qrcodescanner.decode;
+
+import java.util.Locale;
+
+/**
+ * When to look for inverted codes, light modules on a dark background, in software: a frame is
+ * decoded with one polarity, and only if that finds nothing, and only every
+ * {@link #FALLBACK_INTERVAL}th such frame, once more with the other one, at full resolution with
+ * the hybrid binarizer, which reads the luminance inverted, see
+ * {@link ReusableHybridBinarizer#setInverted(boolean)}. The polarity which found the last code
+ * goes first, so while the user scans inverted codes those are found in the first pass too.
+ * <p>
+ * So a frame with a code of the expected polarity costs nothing more, a frame without a code at
+ * most one more pass, every other frame, and a code of the other polarity is found within a few
+ * frames. Unlike the camera's negative color effect this works on every device, and does not
+ * invert every frame.
+ * <p>
+ * Not thread safe, one per {@link FrameDecoder}.
+ * <p>
+ * 反色码识别：先按上一个码的极性解码，失败时每隔一帧再以反色方式解码一次（只反转读取的亮度，不复制帧数据）。
+ */
+public final class InvertedScan {
+
+    static final int FALLBACK_INTERVAL = 2;
+
+    private boolean invertedFirst;
+    private int missesSinceFallback;
+    private long fallbacks;
+    private long fallbackSuccesses;
+    private long invertedFound;
+
+    InvertedScan() {
+    }
+
+    /**
+     * @return whether to decode the next frame inverted first, as the last code was.
+     */
+    boolean isInvertedFirst() {
+        return invertedFirst;
+    }
+
+    /**
+     * Called when the first polarity found nothing.
+     *
+     * @return whether to try the other one on this frame.
+     */
+    boolean shouldTryOther() {
+        if (++missesSinceFallback < FALLBACK_INTERVAL) {
+            return false;
+        }
+        missesSinceFallback = 0;
+        fallbacks++;
+        return true;
+    }
+
+    /**
+     * Records the outcome of a frame.
+     *
+     * @param found    whether a code was found.
+     * @param inverted whether it was found inverted.
+     * @param fallback whether it was found by the fallback pass, with the other polarity.
+     */
+    void frameDone(boolean found, boolean inverted, boolean fallback) {
+        if (!found) {
+            return;
+        }
+        invertedFirst = inverted;
+        missesSinceFallback = 0;
+        if (inverted) {
+            invertedFound++;
+        }
+        if (fallback) {
+            fallbackSuccesses++;
+        }
+    }
+
+    /**
+     * @return the frames tried with the other polarity after the first one found nothing.
+     */
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    /**
+     * @return the frames the other polarity found a code in.
+     */
+    public long getFallbackSuccesses() {
+        return fallbackSuccesses;
+    }
+
+    /**
+     * @return the inverted codes found, in either pass.
+     */
+    public long getInvertedFound() {
+        return invertedFound;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d/%d fallbacks found a code, %d inverted codes, %s first",
+                fallbackSuccesses, fallbacks, invertedFound, invertedFirst ? "inverted" : "normal");
+    }
+
+}
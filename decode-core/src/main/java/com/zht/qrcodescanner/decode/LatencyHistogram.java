@@ -0,0 +1,137 @@
+package com.zht.qrcodescanner.decode;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds which any number of threads may record into without
+ * locking. Every power of two is split into {@value #SUB_BUCKETS} buckets, so a percentile is off
+ * by at most a quarter of its value; that is plenty to tell a 2 ms stage from a 20 ms one, and
+ * the whole range of a long fits in a fixed {@link AtomicLongArray}.
+ * <p>
+ * Reading while others record gives a view which may be a few samples behind in some buckets,
+ * never a torn one.
+ * <p>
+ * 无锁耗时直方图：多个线程可以同时记录，读取时不会阻塞记录。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos the duration, negative values are ignored.
+     */
+    public void record(long nanos) {
+        if (nanos < 0L) {
+            return;
+        }
+        buckets.incrementAndGet(bucketOf(nanos));
+        totalNanos.addAndGet(nanos);
+        count.incrementAndGet();
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0L ? 0L : totalNanos.get() / n;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param percentile 0 to 100, e.g. 50 for the median or 99.
+     * @return the upper edge of the bucket holding the sample of that rank, but no more than the
+     * largest sample; 0 if nothing was recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        long n = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            n += buckets.get(i);
+        }
+        if (n == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Forgets all samples. Samples recorded at the same time may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+    }
+
+    /**
+     * Values below {@value #SUB_BUCKETS} get a bucket each, above that every power of two is
+     * split by the bits just below its highest one.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | sub;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1L;
+    }
+
+    /**
+     * e.g. {@code n=120 mean=3.1 p50=2.9 p90=5.5 p99=9.0 max=11.2 ms}
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "n=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f ms",
+                getCount(),
+                toMillis(getMeanNanos()),
+                toMillis(getPercentileNanos(50)),
+                toMillis(getPercentileNanos(90)),
+                toMillis(getPercentileNanos(99)),
+                toMillis(getMaxNanos()));
+    }
+
+    private static double toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+
+}
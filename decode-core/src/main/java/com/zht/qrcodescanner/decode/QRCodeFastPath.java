@@ -0,0 +1,206 @@
+/*
+ * Copyright 2007 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.common.DetectorResult;
+import com.google.zxing.qrcode.decoder.Decoder;
+import com.google.zxing.qrcode.decoder.QRCodeDecoderMetaData;
+import com.google.zxing.qrcode.detector.Detector;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes a QR Code the way {@link com.google.zxing.qrcode.QRCodeReader} does, but called
+ * directly rather than through {@link com.google.zxing.MultiFormatReader}, for decoders which
+ * look for nothing else. A miss returns {@code null} rather than a {@code NotFoundException}
+ * thrown by the reader, caught and thrown again by MultiFormatReader.
+ * <p>
+ * Most frames hold no code at all; those don't reach the detector: first every
+ * {@link #ROW_STEP}th row of the black matrix is scanned for the 1:1:3:1:1 run of a finder
+ * pattern, as the finder pattern finder would do first, and unless {@link #MIN_CANDIDATE_ROWS}
+ * rows have one, the frame is given up without an exception. A frame with a code the detector
+ * or decoder fails on still costs one.
+ * <p>
+ * Not thread safe, use one per decoder.
+ * <p>
+ * 仅识别二维码时的快速路径：直接调用二维码的检测与解码，不经过 MultiFormatReader；没有定位图案的帧不抛出异常。
+ */
+final class QRCodeFastPath {
+
+    private static final ResultPoint[] NO_POINTS = new ResultPoint[0];
+
+    /**
+     * The finder pattern finder's smallest row step.
+     */
+    static final int ROW_STEP = 3;
+    /**
+     * A finder pattern of even one pixel modules spans seven rows, so it is seen at least twice.
+     */
+    static final int MIN_CANDIDATE_ROWS = 2;
+
+    private final Map<DecodeHintType, ?> hints;
+    private final Decoder decoder = new Decoder();
+    private final int[] stateCount = new int[5];
+    private BitArray row;
+
+    /**
+     * @param hints the reader hints, see {@link #supports(Map)}. Kept by reference.
+     */
+    QRCodeFastPath(Map<DecodeHintType, ?> hints) {
+        this.hints = hints;
+    }
+
+    /**
+     * @return whether the hints ask for QR Codes only, and nothing the fast path does not do.
+     */
+    static boolean supports(Map<DecodeHintType, ?> hints) {
+        if (hints == null || hints.containsKey(DecodeHintType.PURE_BARCODE)) {
+            return false;
+        }
+        Object formats = hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        return formats instanceof Collection
+                && ((Collection<?>) formats).size() == 1
+                && ((Collection<?>) formats).contains(BarcodeFormat.QR_CODE);
+    }
+
+    /**
+     * @param image the black matrix of the frame.
+     * @return the QR Code found, or {@code null}.
+     */
+    Result decode(BitMatrix image) {
+        if (!hasFinderPatternCandidates(image)) {
+            return null;
+        }
+        DetectorResult detectorResult;
+        DecoderResult decoderResult;
+        try {
+            detectorResult = new Detector(image).detect(hints);
+            decoderResult = decoder.decode(detectorResult.getBits(), hints);
+        } catch (ReaderException re) {
+            return null;
+        }
+        ResultPoint[] points = detectorResult.getPoints();
+        if (points == null) {
+            points = NO_POINTS;
+        }
+
+        // If the code was mirrored: swap the bottom-left and the top-right points.
+        if (decoderResult.getOther() instanceof QRCodeDecoderMetaData) {
+            ((QRCodeDecoderMetaData) decoderResult.getOther()).applyMirroredCorrection(points);
+        }
+
+        Result result = new Result(decoderResult.getText(), decoderResult.getRawBytes(), points, BarcodeFormat.QR_CODE);
+        List<byte[]> byteSegments = decoderResult.getByteSegments();
+        if (byteSegments != null) {
+            result.putMetadata(ResultMetadataType.BYTE_SEGMENTS, byteSegments);
+        }
+        String ecLevel = decoderResult.getECLevel();
+        if (ecLevel != null) {
+            result.putMetadata(ResultMetadataType.ERROR_CORRECTION_LEVEL, ecLevel);
+        }
+        if (decoderResult.hasStructuredAppend()) {
+            result.putMetadata(ResultMetadataType.STRUCTURED_APPEND_SEQUENCE,
+                    decoderResult.getStructuredAppendSequenceNumber());
+            result.putMetadata(ResultMetadataType.STRUCTURED_APPEND_PARITY,
+                    decoderResult.getStructuredAppendParity());
+        }
+        return result;
+    }
+
+    /**
+     * @return whether at least {@link #MIN_CANDIDATE_ROWS} of the rows looked at hold a run of
+     * black, white, black, white, black in about 1:1:3:1:1 proportions.
+     */
+    boolean hasFinderPatternCandidates(BitMatrix image) {
+        int width = image.getWidth();
+        int candidateRows = 0;
+        for (int y = ROW_STEP - 1; y < image.getHeight(); y += ROW_STEP) {
+            row = image.getRow(y, row);
+            if (hasFinderPatternCandidate(row, width) && ++candidateRows >= MIN_CANDIDATE_ROWS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasFinderPatternCandidate(BitArray row, int width) {
+        int[] stateCount = this.stateCount;
+        int x = row.getNextSet(0);
+        if (x >= width) {
+            return false;
+        }
+        // The last five runs, the oldest first; the first of them black when full
+        int runs = 0;
+        boolean black = true;
+        while (x < width) {
+            int end = black ? row.getNextUnset(x) : row.getNextSet(x);
+            if (runs == 5) {
+                System.arraycopy(stateCount, 1, stateCount, 0, 4);
+                stateCount[4] = end - x;
+            } else {
+                stateCount[runs++] = end - x;
+            }
+            // A full window ending on a black run starts on one
+            if (runs == 5 && black && foundPatternCross(stateCount)) {
+                return true;
+            }
+            x = end;
+            black = !black;
+        }
+        return false;
+    }
+
+    /**
+     * @param stateCount count of black/white/black/white/black pixels just read
+     * @return true iff the proportions of the counts is close enough to the 1/1/3/1/1 ratios
+     * used by finder patterns to be considered a match
+     */
+    static boolean foundPatternCross(int[] stateCount) {
+        int totalModuleSize = 0;
+        for (int i = 0; i < 5; i++) {
+            int count = stateCount[i];
+            if (count == 0) {
+                return false;
+            }
+            totalModuleSize += count;
+        }
+        if (totalModuleSize < 7) {
+            return false;
+        }
+        float moduleSize = totalModuleSize / 7.0f;
+        float maxVariance = moduleSize / 2.0f;
+        // Allow less than 50% variance from 1-1-3-1-1 proportions
+        return
+                Math.abs(moduleSize - stateCount[0]) < maxVariance &&
+                        Math.abs(moduleSize - stateCount[1]) < maxVariance &&
+                        Math.abs(3.0f * moduleSize - stateCount[2]) < 3 * maxVariance &&
+                        Math.abs(moduleSize - stateCount[3]) < maxVariance &&
+                        Math.abs(moduleSize - stateCount[4]) < maxVariance;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+/**
+ * The search of {@link com.google.zxing.multi.GenericMultipleBarcodeReader}: after a code is
+ * found, the strips left of, above, right of and below it are searched in turn, recursively.
+ * <p>
+ * Unlike the ZXing reader the search can also start from codes which are already known, e.g.
+ * found by {@link com.google.zxing.multi.qrcode.QRCodeMultiReader}. On a label with several codes
+ * the whole frame often decodes to nothing, so a search which needs a first hit on the whole
+ * frame never gets going. It also stops when the {@link ResultCollector} is full or the
+ * {@link BudgetReader}'s time is up.
+ */
+final class RegionSearch {
+
+    private static final int MIN_DIMENSION_TO_RECUR = 100;
+    private static final int MAX_DEPTH = 4;
+
+    private final BudgetReader reader;
+
+    RegionSearch(BudgetReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Searches around every code in the collector, or the whole image if it is empty.
+     */
+    void search(BinaryBitmap image, ResultCollector collector) {
+        Result[] seeds = collector.toArray();
+        if (seeds.length == 0) {
+            decodeRegion(image, 0, 0, 0, collector);
+            return;
+        }
+        for (Result seed : seeds) {
+            searchAround(image, seed.getResultPoints(), 0, 0, 0, collector);
+        }
+    }
+
+    private void decodeRegion(BinaryBitmap image, int xOffset, int yOffset, int depth,
+                              ResultCollector collector) {
+        if (depth > MAX_DEPTH || collector.isFull() || reader.isExpired()) {
+            return;
+        }
+        Result result;
+        try {
+            result = reader.decode(image);
+        } catch (ReaderException ignored) {
+            return;
+        }
+        if (!collector.add(ResultPoints.transform(result, 1, xOffset, yOffset))) {
+            // Already known, so is what lies around it.
+            return;
+        }
+        searchAround(image, result.getResultPoints(), xOffset, yOffset, depth, collector);
+    }
+
+    /**
+     * @param points where the code is in {@code image}.
+     */
+    private void searchAround(BinaryBitmap image, ResultPoint[] points, int xOffset, int yOffset,
+                              int depth, ResultCollector collector) {
+        if (points == null || points.length == 0) {
+            return;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        float minX = width;
+        float minY = height;
+        float maxX = 0.0f;
+        float maxY = 0.0f;
+        for (ResultPoint point : points) {
+            if (point == null) {
+                continue;
+            }
+            float x = point.getX();
+            float y = point.getY();
+            if (x < minX) {
+                minX = x;
+            }
+            if (y < minY) {
+                minY = y;
+            }
+            if (x > maxX) {
+                maxX = x;
+            }
+            if (y > maxY) {
+                maxY = y;
+            }
+        }
+
+        // Decode left of barcode
+        if (minX > MIN_DIMENSION_TO_RECUR) {
+            decodeRegion(image.crop(0, 0, (int) minX, height),
+                    xOffset, yOffset, depth + 1, collector);
+        }
+        // Decode above barcode
+        if (minY > MIN_DIMENSION_TO_RECUR) {
+            decodeRegion(image.crop(0, 0, width, (int) minY),
+                    xOffset, yOffset, depth + 1, collector);
+        }
+        // Decode right of barcode
+        if (maxX < width - MIN_DIMENSION_TO_RECUR) {
+            decodeRegion(image.crop((int) maxX, 0, width - (int) maxX, height),
+                    xOffset + (int) maxX, yOffset, depth + 1, collector);
+        }
+        // Decode below barcode
+        if (maxY < height - MIN_DIMENSION_TO_RECUR) {
+            decodeRegion(image.crop(0, (int) maxY, width, height - (int) maxY),
+                    xOffset, yOffset + (int) maxY, depth + 1, collector);
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gathers the codes found in one frame, dropping repeats of the same code. Two results are the
+ * same code when they have the same format and text and their centers are closer than half the
+ * size of the larger one; the same text printed twice, side by side, stays two codes.
+ * <p>
+ * 多码识别的结果去重（内容 + 位置）。
+ */
+final class ResultCollector {
+
+    private final int maxResults;
+    private final List<Result> results = new ArrayList<>();
+    private final List<float[]> boxes = new ArrayList<>();
+
+    ResultCollector(int maxResults) {
+        this.maxResults = Math.max(1, maxResults);
+    }
+
+    boolean isFull() {
+        return results.size() >= maxResults;
+    }
+
+    /**
+     * @return whether the result was new and has been kept.
+     */
+    boolean add(Result result) {
+        if (result == null || isFull()) {
+            return false;
+        }
+        float[] box = boundingBox(result.getResultPoints());
+        for (int i = 0; i < results.size(); i++) {
+            Result other = results.get(i);
+            if (other.getBarcodeFormat() == result.getBarcodeFormat()
+                    && other.getText().equals(result.getText())
+                    && samePlace(boxes.get(i), box)) {
+                return false;
+            }
+        }
+        results.add(result);
+        boxes.add(box);
+        return true;
+    }
+
+    Result[] toArray() {
+        return results.toArray(new Result[results.size()]);
+    }
+
+    /**
+     * @return {minX, minY, maxX, maxY}, or {@code null} if the result has no points.
+     */
+    private static float[] boundingBox(ResultPoint[] points) {
+        if (points == null) {
+            return null;
+        }
+        float[] box = null;
+        for (ResultPoint point : points) {
+            if (point == null) {
+                continue;
+            }
+            if (box == null) {
+                box = new float[]{point.getX(), point.getY(), point.getX(), point.getY()};
+            } else {
+                box[0] = Math.min(box[0], point.getX());
+                box[1] = Math.min(box[1], point.getY());
+                box[2] = Math.max(box[2], point.getX());
+                box[3] = Math.max(box[3], point.getY());
+            }
+        }
+        return box;
+    }
+
+    private static boolean samePlace(float[] a, float[] b) {
+        if (a == null || b == null) {
+            // Nothing to tell them apart by
+            return true;
+        }
+        float dx = (a[0] + a[2] - b[0] - b[2]) / 2;
+        float dy = (a[1] + a[3] - b[1] - b[3]) / 2;
+        float size = Math.max(Math.max(a[2] - a[0], a[3] - a[1]), Math.max(b[2] - b[0], b[3] - b[1]));
+        return dx * dx + dy * dy < size * size / 4;
+    }
+
+}
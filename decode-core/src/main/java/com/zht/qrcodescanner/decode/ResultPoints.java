@@ -0,0 +1,104 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+/**
+ * Moves the points of a result found in part of an image, possibly at a reduced resolution or in
+ * a rotated view of it, into the coordinates of the whole image.
+ */
+final class ResultPoints {
+
+    private ResultPoints() {
+    }
+
+    /**
+     * @param scale   how many image pixels one pixel of the part covers.
+     * @param xOffset where the part starts in the image.
+     * @param yOffset where the part starts in the image.
+     * @return a copy of {@code result} with the moved points, or {@code result} if nothing moves.
+     */
+    static Result transform(Result result, int scale, int xOffset, int yOffset) {
+        ResultPoint[] oldResultPoints = result.getResultPoints();
+        if (oldResultPoints == null || (scale == 1 && xOffset == 0 && yOffset == 0)) {
+            return result;
+        }
+        ResultPoint[] newResultPoints = new ResultPoint[oldResultPoints.length];
+        for (int i = 0; i < oldResultPoints.length; i++) {
+            ResultPoint oldPoint = oldResultPoints[i];
+            if (oldPoint != null) {
+                // A reduced pixel's center is in the middle of the block it covers
+                float center = (scale - 1) / 2f;
+                newResultPoints[i] = new ResultPoint(oldPoint.getX() * scale + center + xOffset,
+                        oldPoint.getY() * scale + center + yOffset);
+            }
+        }
+        return withPoints(result, newResultPoints);
+    }
+
+    /**
+     * @param rotation how far the view the result was found in was turned clockwise, see
+     *                 {@link RotatedLuminanceSource}.
+     * @param width    the width of the image, before the rotation.
+     * @param height   the height of the image, before the rotation.
+     * @return a copy of {@code result} with the points turned back, or {@code result} if nothing
+     * moves.
+     */
+    static Result rotate(Result result, int rotation, int width, int height) {
+        ResultPoint[] oldResultPoints = result.getResultPoints();
+        if (oldResultPoints == null || rotation == 0) {
+            return result;
+        }
+        ResultPoint[] newResultPoints = new ResultPoint[oldResultPoints.length];
+        for (int i = 0; i < oldResultPoints.length; i++) {
+            ResultPoint oldPoint = oldResultPoints[i];
+            if (oldPoint == null) {
+                continue;
+            }
+            float x = oldPoint.getX();
+            float y = oldPoint.getY();
+            switch (rotation) {
+                case 90:
+                    newResultPoints[i] = new ResultPoint(y, height - 1 - x);
+                    break;
+                case 180:
+                    newResultPoints[i] = new ResultPoint(width - 1 - x, height - 1 - y);
+                    break;
+                case 270:
+                    newResultPoints[i] = new ResultPoint(width - 1 - y, x);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Bad rotation: " + rotation);
+            }
+        }
+        return withPoints(result, newResultPoints);
+    }
+
+    private static Result withPoints(Result result, ResultPoint[] newResultPoints) {
+        Result newResult = new Result(result.getText(),
+                result.getRawBytes(),
+                result.getNumBits(),
+                newResultPoints,
+                result.getBarcodeFormat(),
+                result.getTimestamp());
+        newResult.putAllMetadata(result.getResultMetadata());
+        return newResult;
+    }
+
+}
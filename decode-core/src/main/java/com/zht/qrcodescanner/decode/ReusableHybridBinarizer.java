@@ -0,0 +1,419 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * The {@link HybridBinarizer} algorithm, but bound to a {@link ReusableYUVLuminanceSource} and
+ * keeping its block, histogram and matrix arrays from one frame to the next. Unlike
+ * HybridBinarizer it does not cache the matrix itself: every call to {@link #getBlackMatrix()}
+ * binarizes whatever frame the source currently points at, into the same {@link BitMatrix}.
+ * Wrap it in a new {@link com.google.zxing.BinaryBitmap} per frame, which does the caching.
+ * <p>
+ * It can also binarize with the cheaper {@link com.google.zxing.common.GlobalHistogramBinarizer}
+ * algorithm, see {@link #setGlobalHistogram(boolean)}, which HybridBinarizer extends and falls
+ * back to for small images anyway.
+ * <p>
+ * And it can binarize the frame as if it was inverted, light codes on a dark background, see
+ * {@link #setInverted(boolean)}, reading the luminance through an inverting view rather than
+ * building an inverted copy of it.
+ * <p>
+ * Not thread safe, each decode worker keeps its own instance.
+ * <p>
+ * 可复用的二值化器：算法与 HybridBinarizer 相同（也可切换为 GlobalHistogramBinarizer），但内部数组在帧之间复用。
+ */
+public final class ReusableHybridBinarizer extends Binarizer {
+
+    // This class uses 5x5 blocks to compute local luminance, where each block is 8x8 pixels.
+    // So this is the smallest dimension in each axis we can accept.
+    private static final int BLOCK_SIZE_POWER = 3;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER; // ...0100...00
+    private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;   // ...0011...11
+    private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+    private static final int MIN_DYNAMIC_RANGE = 24;
+
+    private static final int LUMINANCE_BITS = 5;
+    private static final int LUMINANCE_SHIFT = 8 - LUMINANCE_BITS;
+    private static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
+
+    private final int[] buckets = new int[LUMINANCE_BUCKETS];
+    private byte[] rowLuminances = new byte[0];
+    private int[][] blackPoints;
+    private BitMatrix matrix;
+    private boolean globalHistogram;
+    /**
+     * XORed into every luminance read: 0, or 0xff to read 255 - luminance.
+     */
+    private int invertMask;
+
+    public ReusableHybridBinarizer(LuminanceSource source) {
+        super(source);
+    }
+
+    /**
+     * @param globalHistogram whether {@link #getBlackMatrix()} uses a single threshold for the
+     *                        whole image, from a histogram of a few rows, rather than one per block.
+     */
+    public void setGlobalHistogram(boolean globalHistogram) {
+        this.globalHistogram = globalHistogram;
+    }
+
+    public boolean isGlobalHistogram() {
+        return globalHistogram;
+    }
+
+    /**
+     * @param inverted whether to binarize the frame as if it was inverted, so that light modules
+     *                 on a dark background come out black. The luminance source is left alone.
+     */
+    public void setInverted(boolean inverted) {
+        invertMask = inverted ? 0xff : 0;
+    }
+
+    public boolean isInverted() {
+        return invertMask != 0;
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        BitMatrix theMatrix = matrix;
+        if (theMatrix == null) {
+            theMatrix = new BitMatrix(width, height);
+            matrix = theMatrix;
+        } else {
+            theMatrix.clear();
+        }
+        if (!globalHistogram && width >= MINIMUM_DIMENSION && height >= MINIMUM_DIMENSION) {
+            byte[] luminances = source.getMatrix();
+            int subWidth = width >> BLOCK_SIZE_POWER;
+            if ((width & BLOCK_SIZE_MASK) != 0) {
+                subWidth++;
+            }
+            int subHeight = height >> BLOCK_SIZE_POWER;
+            if ((height & BLOCK_SIZE_MASK) != 0) {
+                subHeight++;
+            }
+            if (blackPoints == null) {
+                blackPoints = new int[subHeight][subWidth];
+            }
+            calculateBlackPoints(luminances, subWidth, subHeight, width, height, invertMask, blackPoints);
+            calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, invertMask, blackPoints,
+                    theMatrix);
+        } else {
+            // If the image is too small, or if asked to, fall back to the global histogram approach.
+            globalHistogramBlackMatrix(source, width, height, theMatrix);
+        }
+        return theMatrix;
+    }
+
+    // Applies simple sharpening to the row data to improve performance of the 1D Readers.
+    @Override
+    public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        if (row == null || row.getSize() < width) {
+            row = new BitArray(width);
+        } else {
+            row.clear();
+        }
+
+        initArrays(width);
+        byte[] localLuminances = source.getRow(y, rowLuminances);
+        int[] localBuckets = buckets;
+        int invert = invertMask;
+        for (int x = 0; x < width; x++) {
+            localBuckets[((localLuminances[x] & 0xff) ^ invert) >> LUMINANCE_SHIFT]++;
+        }
+        int blackPoint = estimateBlackPoint(localBuckets);
+
+        if (width < 3) {
+            // Special case for very small images
+            for (int x = 0; x < width; x++) {
+                if (((localLuminances[x] & 0xff) ^ invert) < blackPoint) {
+                    row.set(x);
+                }
+            }
+        } else {
+            int left = (localLuminances[0] & 0xff) ^ invert;
+            int center = (localLuminances[1] & 0xff) ^ invert;
+            for (int x = 1; x < width - 1; x++) {
+                int right = (localLuminances[x + 1] & 0xff) ^ invert;
+                // A simple -1 4 -1 box filter with a weight of 2.
+                if (((center * 4) - left - right) / 2 < blackPoint) {
+                    row.set(x);
+                }
+                left = center;
+                center = right;
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        // E.g. for a rotated view of the frame: binarized the same way
+        ReusableHybridBinarizer binarizer = new ReusableHybridBinarizer(source);
+        binarizer.globalHistogram = globalHistogram;
+        binarizer.invertMask = invertMask;
+        return binarizer;
+    }
+
+    private void globalHistogramBlackMatrix(LuminanceSource source,
+                                            int width,
+                                            int height,
+                                            BitMatrix matrix) throws NotFoundException {
+        // Quickly calculates the histogram by sampling four rows from the image.
+        initArrays(width);
+        int[] localBuckets = buckets;
+        int invert = invertMask;
+        for (int y = 1; y < 5; y++) {
+            int row = height * y / 5;
+            byte[] localLuminances = source.getRow(row, rowLuminances);
+            int right = (width * 4) / 5;
+            for (int x = width / 5; x < right; x++) {
+                int pixel = (localLuminances[x] & 0xff) ^ invert;
+                localBuckets[pixel >> LUMINANCE_SHIFT]++;
+            }
+        }
+        int blackPoint = estimateBlackPoint(localBuckets);
+
+        byte[] localLuminances = source.getMatrix();
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = (localLuminances[offset + x] & 0xff) ^ invert;
+                if (pixel < blackPoint) {
+                    matrix.set(x, y);
+                }
+            }
+        }
+    }
+
+    private void initArrays(int luminanceSize) {
+        if (rowLuminances.length < luminanceSize) {
+            rowLuminances = new byte[luminanceSize];
+        }
+        for (int x = 0; x < LUMINANCE_BUCKETS; x++) {
+            buckets[x] = 0;
+        }
+    }
+
+    private static int estimateBlackPoint(int[] buckets) throws NotFoundException {
+        // Find the tallest peak in the histogram.
+        int numBuckets = buckets.length;
+        int maxBucketCount = 0;
+        int firstPeak = 0;
+        int firstPeakSize = 0;
+        for (int x = 0; x < numBuckets; x++) {
+            if (buckets[x] > firstPeakSize) {
+                firstPeak = x;
+                firstPeakSize = buckets[x];
+            }
+            if (buckets[x] > maxBucketCount) {
+                maxBucketCount = buckets[x];
+            }
+        }
+
+        // Find the second-tallest peak which is somewhat far from the tallest peak.
+        int secondPeak = 0;
+        int secondPeakScore = 0;
+        for (int x = 0; x < numBuckets; x++) {
+            int distanceToBiggest = x - firstPeak;
+            // Encourage more distant second peaks by multiplying by square of distance.
+            int score = buckets[x] * distanceToBiggest * distanceToBiggest;
+            if (score > secondPeakScore) {
+                secondPeak = x;
+                secondPeakScore = score;
+            }
+        }
+
+        // Make sure firstPeak corresponds to the black peak.
+        if (firstPeak > secondPeak) {
+            int temp = firstPeak;
+            firstPeak = secondPeak;
+            secondPeak = temp;
+        }
+
+        // If there is too little contrast in the image to pick a meaningful black point, throw rather
+        // than waste time trying to decode the image, and risk false positives.
+        if (secondPeak - firstPeak <= numBuckets / 16) {
+            throw NotFoundException.getNotFoundInstance();
+        }
+
+        // Find a valley between them that is low and closer to the white peak.
+        int bestValley = secondPeak - 1;
+        int bestValleyScore = -1;
+        for (int x = secondPeak - 1; x > firstPeak; x--) {
+            int fromFirst = x - firstPeak;
+            int score = fromFirst * fromFirst * (secondPeak - x) * (maxBucketCount - buckets[x]);
+            if (score > bestValleyScore) {
+                bestValley = x;
+                bestValleyScore = score;
+            }
+        }
+
+        return bestValley << LUMINANCE_SHIFT;
+    }
+
+    /**
+     * For each block in the image, calculate the average black point using a 5x5 grid
+     * of the blocks around it. Also handles the corner cases (fractional blocks are computed based
+     * on the last pixels in the row/column which are also used in the previous block).
+     */
+    private static void calculateThresholdForBlock(byte[] luminances,
+                                                   int subWidth,
+                                                   int subHeight,
+                                                   int width,
+                                                   int height,
+                                                   int invert,
+                                                   int[][] blackPoints,
+                                                   BitMatrix matrix) {
+        int maxYOffset = height - BLOCK_SIZE;
+        int maxXOffset = width - BLOCK_SIZE;
+        for (int y = 0; y < subHeight; y++) {
+            int yoffset = y << BLOCK_SIZE_POWER;
+            if (yoffset > maxYOffset) {
+                yoffset = maxYOffset;
+            }
+            int top = cap(y, 2, subHeight - 3);
+            for (int x = 0; x < subWidth; x++) {
+                int xoffset = x << BLOCK_SIZE_POWER;
+                if (xoffset > maxXOffset) {
+                    xoffset = maxXOffset;
+                }
+                int left = cap(x, 2, subWidth - 3);
+                int sum = 0;
+                for (int z = -2; z <= 2; z++) {
+                    int[] blackRow = blackPoints[top + z];
+                    sum += blackRow[left - 2] + blackRow[left - 1] + blackRow[left] + blackRow[left + 1] + blackRow[left + 2];
+                }
+                int average = sum / 25;
+                thresholdBlock(luminances, xoffset, yoffset, average, width, invert, matrix);
+            }
+        }
+    }
+
+    private static int cap(int value, int min, int max) {
+        return value < min ? min : value > max ? max : value;
+    }
+
+    /**
+     * Applies a single threshold to a block of pixels.
+     */
+    private static void thresholdBlock(byte[] luminances,
+                                       int xoffset,
+                                       int yoffset,
+                                       int threshold,
+                                       int stride,
+                                       int invert,
+                                       BitMatrix matrix) {
+        for (int y = 0, offset = yoffset * stride + xoffset; y < BLOCK_SIZE; y++, offset += stride) {
+            for (int x = 0; x < BLOCK_SIZE; x++) {
+                // Comparison needs to be <= so that black == 0 pixels are black even if the threshold is 0.
+                if (((luminances[offset + x] & 0xFF) ^ invert) <= threshold) {
+                    matrix.set(xoffset + x, yoffset + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates a single black point for each block of pixels and saves it away, into the
+     * caller's array.
+     */
+    private static void calculateBlackPoints(byte[] luminances,
+                                             int subWidth,
+                                             int subHeight,
+                                             int width,
+                                             int height,
+                                             int invert,
+                                             int[][] blackPoints) {
+        int maxYOffset = height - BLOCK_SIZE;
+        int maxXOffset = width - BLOCK_SIZE;
+        for (int y = 0; y < subHeight; y++) {
+            int yoffset = y << BLOCK_SIZE_POWER;
+            if (yoffset > maxYOffset) {
+                yoffset = maxYOffset;
+            }
+            for (int x = 0; x < subWidth; x++) {
+                int xoffset = x << BLOCK_SIZE_POWER;
+                if (xoffset > maxXOffset) {
+                    xoffset = maxXOffset;
+                }
+                int sum = 0;
+                int min = 0xFF;
+                int max = 0;
+                for (int yy = 0, offset = yoffset * width + xoffset; yy < BLOCK_SIZE; yy++, offset += width) {
+                    for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                        int pixel = (luminances[offset + xx] & 0xFF) ^ invert;
+                        sum += pixel;
+                        // still looking for good contrast
+                        if (pixel < min) {
+                            min = pixel;
+                        }
+                        if (pixel > max) {
+                            max = pixel;
+                        }
+                    }
+                    // short-circuit min/max tests once dynamic range is met
+                    if (max - min > MIN_DYNAMIC_RANGE) {
+                        // finish the rest of the rows quickly
+                        for (yy++, offset += width; yy < BLOCK_SIZE; yy++, offset += width) {
+                            for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                                sum += (luminances[offset + xx] & 0xFF) ^ invert;
+                            }
+                        }
+                    }
+                }
+
+                // The default estimate is the average of the values in the block.
+                int average = sum >> (BLOCK_SIZE_POWER * 2);
+                if (max - min <= MIN_DYNAMIC_RANGE) {
+                    // If variation within the block is low, assume this is a block with only light or only
+                    // dark pixels. In that case we do not want to use the average, as it would divide this
+                    // low contrast area into black and white pixels, essentially creating data out of noise.
+                    //
+                    // The default assumption is that the block is light/background. Since no estimate for
+                    // the level of dark pixels exists locally, use half the min for the block.
+                    average = min / 2;
+
+                    if (y > 0 && x > 0) {
+                        // Correct the "white background" assumption for blocks that have neighbors by comparing
+                        // the pixels in this block to the previously calculated black points. The (min < bp)
+                        // is arbitrary but works better than other heuristics that were tried.
+                        int averageNeighborBlackPoint =
+                                (blackPoints[y - 1][x] + (2 * blackPoints[y][x - 1]) + blackPoints[y - 1][x - 1]) / 4;
+                        if (min < averageNeighborBlackPoint) {
+                            average = averageNeighborBlackPoint;
+                        }
+                    }
+                }
+                blackPoints[y][x] = average;
+            }
+        }
+    }
+
+}
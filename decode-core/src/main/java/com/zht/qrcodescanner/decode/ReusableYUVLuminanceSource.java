@@ -0,0 +1,199 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+/**
+ * A {@link PlanarYUVLuminanceSource} which can be pointed at a new frame with
+ * {@link #reset(byte[], int, int, int, int)} instead of being created again for every frame.
+ * The crop size is fixed for the lifetime of the object; the cropped luminance matrix is kept and
+ * reused, so frames of the same crop size are served without allocating. It is copied out of the
+ * frame once per reset, however often it is asked for.
+ * <p>
+ * Not thread safe, and the array returned by {@link #getMatrix()} is only valid until the next
+ * reset. Each decode worker keeps its own instance.
+ * <p>
+ * 可复用的亮度源：裁剪尺寸不变时，每一帧只需调用 reset()，不再重新分配对象和数组。
+ */
+public final class ReusableYUVLuminanceSource extends LuminanceSource {
+
+    private static final int THUMBNAIL_SCALE_FACTOR = 2;
+
+    private byte[] yuvData;
+    private int dataWidth;
+    private int dataHeight;
+    private int left;
+    private int top;
+    private byte[] matrix;
+    private boolean matrixValid;
+    private RotatedLuminanceSource counterClockwise;
+
+    /**
+     * @param width  The width of the crop rectangle.
+     * @param height The height of the crop rectangle.
+     */
+    public ReusableYUVLuminanceSource(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Points this source at a new frame.
+     *
+     * @param yuvData    The YUV frame, Y plane first.
+     * @param dataWidth  The width of the frame.
+     * @param dataHeight The height of the frame.
+     * @param left       The left edge of the crop rectangle within the frame.
+     * @param top        The top edge of the crop rectangle within the frame.
+     */
+    public void reset(byte[] yuvData, int dataWidth, int dataHeight, int left, int top) {
+        if (left < 0 || top < 0 || left + getWidth() > dataWidth || top + getHeight() > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        this.yuvData = yuvData;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+        matrixValid = false;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        int offset = (y + top) * dataWidth + left;
+        System.arraycopy(yuvData, offset, row, 0, width);
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+
+        // If the caller asks for the entire underlying image, save the copy and give them the
+        // original data. The docs specifically warn that result.length must be ignored.
+        if (width == dataWidth && height == dataHeight) {
+            return yuvData;
+        }
+
+        if (matrixValid) {
+            return matrix;
+        }
+        int area = width * height;
+        if (matrix == null) {
+            matrix = new byte[area];
+        }
+        int inputOffset = top * dataWidth + left;
+        matrixValid = true;
+
+        // If the width matches the full width of the underlying data, perform a single copy.
+        if (width == dataWidth) {
+            System.arraycopy(yuvData, inputOffset, matrix, 0, area);
+            return matrix;
+        }
+
+        // Otherwise copy one cropped row at a time.
+        for (int y = 0; y < height; y++) {
+            int outputOffset = y * width;
+            System.arraycopy(yuvData, inputOffset, matrix, outputOffset, width);
+            inputOffset += dataWidth;
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    /**
+     * @return a view of the current frame turned by 90 degrees counterclockwise, without a copy,
+     * see {@link RotatedLuminanceSource}. The 1D readers scan it with {@code TRY_HARDER}. Valid
+     * until the next reset, and the same object every time.
+     */
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        if (counterClockwise == null) {
+            counterClockwise = new RotatedLuminanceSource(getWidth(), getHeight(), 270);
+        }
+        counterClockwise.reset(yuvData, dataWidth, dataHeight, left, top);
+        return counterClockwise;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new PlanarYUVLuminanceSource(yuvData,
+                dataWidth,
+                dataHeight,
+                this.left + left,
+                this.top + top,
+                width,
+                height,
+                false);
+    }
+
+    /**
+     * Copies a half-size greyscale thumbnail of the crop out of the current frame, so it stays
+     * valid after the frame buffer is reused. Rendering it to a bitmap is left to the caller.
+     *
+     * @return the luminance of each thumbnail pixel, row by row.
+     */
+    public byte[] copyThumbnailLuminance() {
+        int width = getWidth() / THUMBNAIL_SCALE_FACTOR;
+        int height = getHeight() / THUMBNAIL_SCALE_FACTOR;
+        byte[] pixels = new byte[width * height];
+        byte[] yuv = yuvData;
+        int inputOffset = top * dataWidth + left;
+
+        for (int y = 0; y < height; y++) {
+            int outputOffset = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[outputOffset + x] = yuv[inputOffset + x * THUMBNAIL_SCALE_FACTOR];
+            }
+            inputOffset += dataWidth * THUMBNAIL_SCALE_FACTOR;
+        }
+        return pixels;
+    }
+
+    /**
+     * @return width of image from {@link #copyThumbnailLuminance()}
+     */
+    public int getThumbnailWidth() {
+        return getWidth() / THUMBNAIL_SCALE_FACTOR;
+    }
+
+    /**
+     * @return height of image from {@link #copyThumbnailLuminance()}
+     */
+    public int getThumbnailHeight() {
+        return getHeight() / THUMBNAIL_SCALE_FACTOR;
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Narrows the crop of the next frames down to a window around where a code was last seen:
+ * around the points of the last result, or the possible result points (e.g. QR finder patterns)
+ * reported while decoding a frame which failed. Binarizing and detecting cost grows with the
+ * number of pixels, so a window of half the crop's side decodes in about a quarter of the time.
+ * <p>
+ * The window is a square of half or three quarters of the crop's short side, so that the
+ * decoder only ever sees a few crop sizes and can keep its buffers. A sighting is trusted for
+ * {@link #EVIDENCE_FRAMES} frames, and every {@link #FULL_FRAME_INTERVAL}th frame decodes the
+ * whole crop anyway, so a code elsewhere in the crop is not missed for long.
+ * <p>
+ * Points are recorded through the reader's {@link ResultPointCallback}, see {@link #wrapHints};
+ * the callback given by the caller still gets every point, in the coordinates of the whole crop.
+ * With tracking off only that mapping is done, for the reduced levels of a pyramid decode.
+ * One instance per decoder, not thread safe.
+ * <p>
+ * 感兴趣区域（ROI）跟踪：根据上一帧的定位点，只解码条码附近的小窗口，定期回退到完整的解码范围。
+ */
+final class RoiTracker implements ResultPointCallback {
+
+    static final int FULL_FRAME_INTERVAL = 5;
+    private static final int EVIDENCE_FRAMES = 3;
+    /**
+     * The window is this many times the extent of the points, the code plus some margin.
+     */
+    private static final float WINDOW_SCALE = 2.0f;
+
+    private final boolean tracking;
+    private ResultPointCallback forward;
+    private CropRect base;
+    private CropRect current;
+    private int framesSinceFull;
+    private int scale = 1;
+
+    // Points reported for the frame being decoded, in frame coordinates
+    private int pointCount;
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+
+    // Where the code was last seen, in frame coordinates
+    private boolean hasEvidence;
+    private int evidenceAge;
+    private float centerX;
+    private float centerY;
+    private float extent;
+
+    /**
+     * @param tracking whether to narrow the crop, or only map the points.
+     */
+    RoiTracker(boolean tracking) {
+        this.tracking = tracking;
+    }
+
+    /**
+     * @return a copy of {@code hints} whose point callback goes through this tracker.
+     */
+    Map<DecodeHintType, Object> wrapHints(Map<DecodeHintType, ?> hints) {
+        Map<DecodeHintType, Object> wrapped = new EnumMap<>(DecodeHintType.class);
+        if (hints != null) {
+            wrapped.putAll(hints);
+        }
+        forward = (ResultPointCallback) wrapped.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+        wrapped.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, this);
+        return wrapped;
+    }
+
+    /**
+     * @param base the crop the caller asked for.
+     * @return the part of it to decode this frame.
+     */
+    CropRect nextCrop(CropRect base) {
+        if (!base.equals(this.base)) {
+            // The framing rect changed, what we knew is no longer where it was.
+            this.base = base;
+            hasEvidence = false;
+        }
+        pointCount = 0;
+        scale = 1;
+        current = base;
+        if (!tracking || !hasEvidence || evidenceAge >= EVIDENCE_FRAMES || ++framesSinceFull >= FULL_FRAME_INTERVAL) {
+            framesSinceFull = 0;
+            return current;
+        }
+        int side = Math.min(base.getWidth(), base.getHeight());
+        float needed = extent * WINDOW_SCALE;
+        int size;
+        if (needed <= side / 2) {
+            size = side / 2;
+        } else if (needed <= side * 3 / 4) {
+            size = side * 3 / 4;
+        } else {
+            return current;
+        }
+        int left = clamp(Math.round(centerX - size / 2f), base.getLeft(), base.getRight() - size);
+        int top = clamp(Math.round(centerY - size / 2f), base.getTop(), base.getBottom() - size);
+        current = new CropRect(left, top, size, size);
+        return current;
+    }
+
+    /**
+     * @param scale how many pixels of the crop one pixel of the image being decoded covers, for
+     *              the reduced levels of a pyramid decode.
+     */
+    void setScale(int scale) {
+        this.scale = scale;
+    }
+
+    /**
+     * @return how many possible result points the readers reported for the frame being decoded
+     * so far.
+     */
+    int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * @return the crop returned by the last {@link #nextCrop}.
+     */
+    CropRect getCurrentCrop() {
+        return current;
+    }
+
+    /**
+     * Learns from the frame just decoded.
+     *
+     * @param result the code found, points relative to {@link #getCurrentCrop()} at full
+     *               resolution, or {@code null}.
+     */
+    void frameDone(Result result) {
+        if (result != null && setBounds(result.getResultPoints())) {
+            setEvidence();
+        } else if (pointCount >= 2) {
+            setEvidence();
+        } else {
+            evidenceAge++;
+        }
+        pointCount = 0;
+    }
+
+    /**
+     * Forgets the points of the current frame, e.g. when it was searched piece by piece and
+     * the points are not relative to the crop.
+     */
+    void discardFrame() {
+        pointCount = 0;
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+        if (scale != 1) {
+            float center = (scale - 1) / 2f;
+            point = new ResultPoint(point.getX() * scale + center, point.getY() * scale + center);
+        }
+        if (current != null) {
+            addPoint(point.getX() + current.getLeft(), point.getY() + current.getTop());
+        }
+        if (forward != null) {
+            if (current != null && base != null && current != base) {
+                // Tell the caller where it is in the crop it asked for
+                point = new ResultPoint(point.getX() + current.getLeft() - base.getLeft(),
+                        point.getY() + current.getTop() - base.getTop());
+            }
+            forward.foundPossibleResultPoint(point);
+        }
+    }
+
+    private boolean setBounds(ResultPoint[] points) {
+        pointCount = 0;
+        if (points == null) {
+            return false;
+        }
+        for (ResultPoint point : points) {
+            if (point != null) {
+                addPoint(point.getX() + current.getLeft(), point.getY() + current.getTop());
+            }
+        }
+        return pointCount > 0;
+    }
+
+    private void addPoint(float x, float y) {
+        if (pointCount == 0) {
+            minX = maxX = x;
+            minY = maxY = y;
+        } else {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        pointCount++;
+    }
+
+    private void setEvidence() {
+        hasEvidence = true;
+        evidenceAge = 0;
+        centerX = (minX + maxX) / 2;
+        centerY = (minY + maxY) / 2;
+        extent = Math.max(maxX - minX, maxY - minY);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : value > max ? max : value;
+    }
+
+}
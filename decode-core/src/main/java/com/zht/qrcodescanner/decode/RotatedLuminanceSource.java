@@ -0,0 +1,139 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * The crop of a YUV frame's Y plane turned clockwise by 0, 90, 180 or 270 degrees, without a
+ * rotated copy of the frame: a pixel of the view is read straight from the frame, at an index
+ * which is linear in its coordinates, {@code origin + x * xStep + y * yStep}. Like
+ * {@link ReusableYUVLuminanceSource} it is pointed at each new frame with
+ * {@link #reset(byte[], int, int, int, int)}.
+ * <p>
+ * Meant for the 1D readers, which only read rows, see {@link #getRow(int, byte[])}: turning a
+ * frame by 90 degrees makes them scan its columns. {@link #getMatrix()} works too, for readers
+ * which need it, but builds the rotated matrix, once per frame, into an array kept for the next.
+ * <p>
+ * Not thread safe, each decoder keeps its own instance.
+ * <p>
+ * 旋转视图亮度源：按下标换算直接读取原始帧，不复制、不旋转帧数据，供一维码识别器按旋转后的方向逐行扫描。
+ */
+public final class RotatedLuminanceSource extends LuminanceSource {
+
+    private final int rotation;
+    private final int cropWidth;
+    private final int cropHeight;
+    private byte[] yuvData;
+    private int origin;
+    private int xStep;
+    private int yStep;
+    private byte[] matrix;
+    private boolean matrixValid;
+
+    /**
+     * @param cropWidth  The width of the crop rectangle, before the rotation.
+     * @param cropHeight The height of the crop rectangle, before the rotation.
+     * @param rotation   How far to turn the crop clockwise: 0, 90, 180 or 270 degrees.
+     */
+    public RotatedLuminanceSource(int cropWidth, int cropHeight, int rotation) {
+        super(rotation == 90 || rotation == 270 ? cropHeight : cropWidth,
+                rotation == 90 || rotation == 270 ? cropWidth : cropHeight);
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("Bad rotation: " + rotation);
+        }
+        this.rotation = rotation;
+        this.cropWidth = cropWidth;
+        this.cropHeight = cropHeight;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Points this source at a new frame.
+     *
+     * @param yuvData    The YUV frame, Y plane first.
+     * @param dataWidth  The width of the frame.
+     * @param dataHeight The height of the frame.
+     * @param left       The left edge of the crop rectangle within the frame.
+     * @param top        The top edge of the crop rectangle within the frame.
+     */
+    public void reset(byte[] yuvData, int dataWidth, int dataHeight, int left, int top) {
+        if (left < 0 || top < 0 || left + cropWidth > dataWidth || top + cropHeight > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        this.yuvData = yuvData;
+        int topLeft = top * dataWidth + left;
+        int right = cropWidth - 1;
+        int bottom = (cropHeight - 1) * dataWidth;
+        // The frame pixel shown at the view's top left corner, and how far the next pixel of a
+        // view row, and of a view column, is from it in the frame
+        switch (rotation) {
+            case 90:
+                origin = topLeft + bottom;
+                xStep = -dataWidth;
+                yStep = 1;
+                break;
+            case 180:
+                origin = topLeft + bottom + right;
+                xStep = -1;
+                yStep = -dataWidth;
+                break;
+            case 270:
+                origin = topLeft + right;
+                xStep = dataWidth;
+                yStep = -1;
+                break;
+            default:
+                origin = topLeft;
+                xStep = 1;
+                yStep = dataWidth;
+                break;
+        }
+        matrixValid = false;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        byte[] yuv = yuvData;
+        int xStep = this.xStep;
+        int offset = origin + y * yStep;
+        for (int x = 0; x < width; x++, offset += xStep) {
+            row[x] = yuv[offset];
+        }
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        if (matrixValid) {
+            return matrix;
+        }
+        int width = getWidth();
+        int height = getHeight();
+        if (matrix == null) {
+            matrix = new byte[width * height];
+        }
+        byte[] yuv = yuvData;
+        byte[] matrix = this.matrix;
+        int xStep = this.xStep;
+        int outputOffset = 0;
+        for (int y = 0; y < height; y++) {
+            int offset = origin + y * yStep;
+            for (int x = 0; x < width; x++, offset += xStep) {
+                matrix[outputOffset + x] = yuv[offset];
+            }
+            outputOffset += width;
+        }
+        matrixValid = true;
+        return matrix;
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * A reduced copy of the crop of a YUV frame's Y plane: every pixel is the average of a
+ * {@code factor} x {@code factor} block. Decoding a large code at half resolution costs about a
+ * quarter of decoding it at full resolution. Like {@link ReusableYUVLuminanceSource} it is pointed
+ * at each new frame with {@link #reset(byte[], int, int, int, int)} and keeps its matrix; the
+ * matrix is built once per frame, when first asked for.
+ * <p>
+ * 降采样的亮度源（图像金字塔的一层）：每个像素取 factor x factor 区域的平均值。
+ */
+public final class SubsampledLuminanceSource extends LuminanceSource {
+
+    private final int factor;
+    private final byte[] matrix;
+    private byte[] yuvData;
+    private int dataWidth;
+    private int left;
+    private int top;
+    private boolean matrixValid;
+
+    /**
+     * @param cropWidth  The width of the crop rectangle, at full resolution.
+     * @param cropHeight The height of the crop rectangle, at full resolution.
+     * @param factor     How many full resolution pixels each side of a pixel covers.
+     */
+    public SubsampledLuminanceSource(int cropWidth, int cropHeight, int factor) {
+        super(cropWidth / factor, cropHeight / factor);
+        this.factor = factor;
+        matrix = new byte[getWidth() * getHeight()];
+    }
+
+    public int getFactor() {
+        return factor;
+    }
+
+    /**
+     * Points this source at a new frame.
+     *
+     * @param yuvData    The YUV frame, Y plane first.
+     * @param dataWidth  The width of the frame.
+     * @param dataHeight The height of the frame.
+     * @param left       The left edge of the crop rectangle within the frame.
+     * @param top        The top edge of the crop rectangle within the frame.
+     */
+    public void reset(byte[] yuvData, int dataWidth, int dataHeight, int left, int top) {
+        if (left < 0 || top < 0
+                || left + getWidth() * factor > dataWidth
+                || top + getHeight() * factor > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        this.yuvData = yuvData;
+        this.dataWidth = dataWidth;
+        this.left = left;
+        this.top = top;
+        matrixValid = false;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        System.arraycopy(getMatrix(), y * width, row, 0, width);
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        if (matrixValid) {
+            return matrix;
+        }
+        int width = getWidth();
+        int height = getHeight();
+        int factor = this.factor;
+        byte[] yuv = yuvData;
+        if (factor == 2) {
+            // The common case, without the inner loops
+            int outputOffset = 0;
+            int rowOffset = top * dataWidth + left;
+            for (int y = 0; y < height; y++) {
+                int nextRow = rowOffset + dataWidth;
+                for (int x = 0; x < width; x++) {
+                    int i = x << 1;
+                    int sum = (yuv[rowOffset + i] & 0xff) + (yuv[rowOffset + i + 1] & 0xff)
+                            + (yuv[nextRow + i] & 0xff) + (yuv[nextRow + i + 1] & 0xff);
+                    matrix[outputOffset + x] = (byte) (sum >> 2);
+                }
+                outputOffset += width;
+                rowOffset += dataWidth << 1;
+            }
+            matrixValid = true;
+            return matrix;
+        }
+        int shift = Integer.numberOfTrailingZeros(factor * factor);
+        boolean powerOfTwo = (factor & (factor - 1)) == 0;
+        int area = factor * factor;
+        int outputOffset = 0;
+        int rowOffset = top * dataWidth + left;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                int blockOffset = rowOffset + x * factor;
+                for (int dy = 0; dy < factor; dy++) {
+                    for (int dx = 0; dx < factor; dx++) {
+                        sum += yuv[blockOffset + dx] & 0xff;
+                    }
+                    blockOffset += dataWidth;
+                }
+                matrix[outputOffset + x] = (byte) (powerOfTwo ? sum >> shift : sum / area);
+            }
+            outputOffset += width;
+            rowOffset += dataWidth * factor;
+        }
+        matrixValid = true;
+        return matrix;
+    }
+
+}
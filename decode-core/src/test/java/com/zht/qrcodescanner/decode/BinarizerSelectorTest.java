@@ -0,0 +1,154 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.WriterException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinarizerSelectorTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final CropRect CROP = new CropRect(80, 40, 160, 160);
+    private static final String TEXT = "binarizer";
+
+    /**
+     * A QR Code of {@code dark} on {@code light} modules in the crop, on a background as light.
+     */
+    private static byte[] code(int dark, int light) throws WriterException {
+        byte[] frame = TestFrames.blank(WIDTH, HEIGHT, light);
+        TestFrames.drawQRCode(frame, WIDTH, TEXT, 102, 62, 4, dark, light);
+        return frame;
+    }
+
+    /**
+     * A high contrast code lit from the right: its dark modules on the right are lighter than
+     * the light ones on the left.
+     */
+    private static byte[] unevenlyLitCode() throws WriterException {
+        byte[] frame = code(20, 230);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value = frame[y * WIDTH + x] & 0xff;
+                value = value * (40 + 60 * x / WIDTH) / 100 + 120 * x / WIDTH;
+                frame[y * WIDTH + x] = (byte) Math.min(value, 255);
+            }
+        }
+        return frame;
+    }
+
+    @Test
+    public void triesTheGlobalHistogramOnAnEvenlyLitCode() throws WriterException {
+        BinarizerSelector selector = new BinarizerSelector();
+        selector.select(code(20, 230), WIDTH, CROP);
+        assertEquals(210, selector.getContrast());
+        assertEquals(100, selector.getUniformity());
+        assertTrue(selector.tries(BinarizerSelector.Method.GLOBAL_HISTOGRAM));
+        // Until it proved useless, the hybrid one gets to try what the other one missed
+        assertTrue(selector.tries(BinarizerSelector.Method.HYBRID));
+    }
+
+    @Test
+    public void triesOnlyTheHybridOneOnALowContrastCode() throws WriterException {
+        BinarizerSelector selector = new BinarizerSelector();
+        selector.select(code(110, 150), WIDTH, CROP);
+        assertEquals(40, selector.getContrast());
+        assertTrue(selector.getContrast() < BinarizerSelector.DEFAULT_MIN_CONTRAST);
+        assertFalse(selector.tries(BinarizerSelector.Method.GLOBAL_HISTOGRAM));
+        assertTrue(selector.tries(BinarizerSelector.Method.HYBRID));
+    }
+
+    @Test
+    public void triesOnlyTheHybridOneOnAFlatFrame() {
+        BinarizerSelector selector = new BinarizerSelector();
+        selector.select(TestFrames.blank(WIDTH, HEIGHT, 128), WIDTH, CROP);
+        assertEquals(0, selector.getContrast());
+        assertEquals(0, selector.getUniformity());
+        assertFalse(selector.tries(BinarizerSelector.Method.GLOBAL_HISTOGRAM));
+        assertTrue(selector.tries(BinarizerSelector.Method.HYBRID));
+    }
+
+    @Test
+    public void triesOnlyTheHybridOneUnderUnevenLight() throws WriterException {
+        BinarizerSelector selector = new BinarizerSelector();
+        selector.select(unevenlyLitCode(), WIDTH, CROP);
+        assertTrue(selector.getContrast() >= BinarizerSelector.DEFAULT_MIN_CONTRAST);
+        assertTrue(selector.getUniformity() < BinarizerSelector.DEFAULT_MIN_UNIFORMITY);
+        assertFalse(selector.tries(BinarizerSelector.Method.GLOBAL_HISTOGRAM));
+        assertTrue(selector.tries(BinarizerSelector.Method.HYBRID));
+    }
+
+    @Test
+    public void stopsEscalatingOnceTheHybridOneStopsHelping() throws WriterException {
+        BinarizerSelector selector = new BinarizerSelector();
+        byte[] frame = code(20, 230);
+        // Neither finds anything, frame after frame: the rescue rate decays below 10 %
+        int frames = 0;
+        do {
+            selector.select(frame, WIDTH, CROP);
+            selector.frameDone(null);
+            frames++;
+        } while (selector.getEscalations() == frames && frames < 100);
+        assertEquals(18, selector.getEscalations());
+        assertEquals(frames, selector.getAttempts(BinarizerSelector.Method.GLOBAL_HISTOGRAM));
+        // Frame 19 was not escalated; then every PROBE_INTERVAL th frame is, to find out
+        for (int i = 2; i < BinarizerSelector.PROBE_INTERVAL; i++) {
+            selector.select(frame, WIDTH, CROP);
+            assertFalse(selector.tries(BinarizerSelector.Method.HYBRID));
+            selector.frameDone(null);
+        }
+        selector.select(frame, WIDTH, CROP);
+        assertTrue(selector.tries(BinarizerSelector.Method.HYBRID));
+        // The probe finds a code the global histogram binarizer missed: every frame again
+        selector.frameDone(BinarizerSelector.Method.HYBRID);
+        assertEquals(19, selector.getEscalations());
+        assertEquals(1, selector.getSuccesses(BinarizerSelector.Method.HYBRID));
+        selector.select(frame, WIDTH, CROP);
+        assertTrue(selector.tries(BinarizerSelector.Method.HYBRID));
+    }
+
+    @Test
+    public void doesNotEscalateWhenTheGlobalHistogramFound() throws WriterException {
+        BinarizerSelector selector = new BinarizerSelector();
+        byte[] frame = code(20, 230);
+        for (int i = 0; i < 50; i++) {
+            selector.select(frame, WIDTH, CROP);
+            selector.frameDone(BinarizerSelector.Method.GLOBAL_HISTOGRAM);
+        }
+        assertEquals(0, selector.getEscalations());
+        assertEquals(50, selector.getSuccesses(BinarizerSelector.Method.GLOBAL_HISTOGRAM));
+        assertEquals(0, selector.getAttempts(BinarizerSelector.Method.HYBRID));
+        // A success is no miss: the rescue rate is where it started
+        selector.select(frame, WIDTH, CROP);
+        assertTrue(selector.tries(BinarizerSelector.Method.HYBRID));
+    }
+
+    @Test
+    public void isUsedByTheDecoderWhenAskedFor() throws WriterException {
+        assertNull(new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE)).getBinarizerSelector());
+        FrameDecoder decoder = new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE),
+                new FrameDecoder.Options().setAdaptiveBinarizer(true));
+        BinarizerSelector selector = decoder.getBinarizerSelector();
+        assertNotNull(selector);
+
+        Result result = decoder.decode(code(20, 230), WIDTH, HEIGHT, CROP);
+        assertNotNull(result);
+        assertEquals(TEXT, result.getText());
+        assertEquals(1, selector.getSuccesses(BinarizerSelector.Method.GLOBAL_HISTOGRAM));
+        assertEquals(0, selector.getAttempts(BinarizerSelector.Method.HYBRID));
+
+        result = decoder.decode(unevenlyLitCode(), WIDTH, HEIGHT, CROP);
+        assertNotNull(result);
+        assertEquals(TEXT, result.getText());
+        assertEquals(1, selector.getAttempts(BinarizerSelector.Method.GLOBAL_HISTOGRAM));
+        assertEquals(1, selector.getSuccesses(BinarizerSelector.Method.HYBRID));
+    }
+
+}
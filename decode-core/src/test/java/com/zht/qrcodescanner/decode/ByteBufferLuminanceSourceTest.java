@@ -0,0 +1,129 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ByteBufferLuminanceSourceTest {
+
+    private static final int WIDTH = 12;
+    private static final int HEIGHT = 8;
+
+    private static int luminance(int x, int y) {
+        return x + 16 * y;
+    }
+
+    /**
+     * The frame laid out with the given strides, after {@code offset} bytes of something else;
+     * the bytes between pixels are 0xff.
+     */
+    private static ByteBuffer frame(int rowStride, int pixelStride, int offset, boolean direct) {
+        int size = offset + (HEIGHT - 1) * rowStride + (WIDTH - 1) * pixelStride + 1;
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put(i, (byte) 0xff);
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                buffer.put(offset + y * rowStride + x * pixelStride, (byte) luminance(x, y));
+            }
+        }
+        buffer.position(offset);
+        return buffer;
+    }
+
+    private static byte[] expectedCrop(int left, int top, int width, int height) {
+        byte[] expected = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                expected[y * width + x] = (byte) luminance(left + x, top + y);
+            }
+        }
+        return expected;
+    }
+
+    private static void assertCrop(ByteBuffer data, int rowStride, int pixelStride) {
+        ByteBufferLuminanceSource source = new ByteBufferLuminanceSource(5, 4);
+        int position = data.position();
+        source.reset(data, WIDTH, HEIGHT, rowStride, pixelStride, 3, 2);
+        byte[] expected = expectedCrop(3, 2, 5, 4);
+        assertArrayEquals(expected, source.getMatrix());
+        assertArrayEquals(expected, source.getMatrix(new byte[1]));
+        byte[] row = source.getRow(1, new byte[8]);
+        for (int x = 0; x < 5; x++) {
+            assertEquals(expected[5 + x], row[x]);
+        }
+        // The caller's buffer is left alone
+        assertEquals(position, data.position());
+    }
+
+    @Test
+    public void readsAPlane() {
+        assertCrop(frame(WIDTH, 1, 0, false), WIDTH, 1);
+    }
+
+    @Test
+    public void readsPaddedRows() {
+        assertCrop(frame(WIDTH + 4, 1, 0, true), WIDTH + 4, 1);
+    }
+
+    @Test
+    public void readsInterleavedPixels() {
+        assertCrop(frame(2 * WIDTH + 3, 2, 0, true), 2 * WIDTH + 3, 2);
+    }
+
+    @Test
+    public void startsAtTheBufferPosition() {
+        assertCrop(frame(2 * WIDTH + 4, 2, 7, false), 2 * WIDTH + 4, 2);
+    }
+
+    @Test
+    public void cropsWithinTheCrop() {
+        ByteBufferLuminanceSource source = new ByteBufferLuminanceSource(6, 5);
+        source.reset(frame(2 * WIDTH, 2, 0, true), WIDTH, HEIGHT, 2 * WIDTH, 2, 4, 1);
+        LuminanceSource cropped = source.crop(1, 2, 3, 2);
+        assertArrayEquals(expectedCrop(5, 3, 3, 2), cropped.getMatrix());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesRowsShorterThanTheWidth() {
+        new ByteBufferLuminanceSource(5, 4).reset(frame(WIDTH, 1, 0, false), WIDTH, HEIGHT, WIDTH - 1, 1, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesTooShortData() {
+        ByteBuffer data = frame(WIDTH, 1, 0, false);
+        data.limit(data.limit() - 1);
+        new ByteBufferLuminanceSource(WIDTH, HEIGHT).reset(data, WIDTH, HEIGHT, WIDTH, 1, 0, 0);
+    }
+
+    @Test
+    public void decoderReadsAPaddedFrame() throws Exception {
+        int width = 200;
+        int height = 160;
+        int rowStride = 256;
+        BitMatrix code = new MultiFormatWriter().encode("byte buffer", BarcodeFormat.QR_CODE, 120, 120);
+        ByteBuffer data = ByteBuffer.allocateDirect(rowStride * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean dark = x >= 40 && y >= 20 && x < 160 && y < 140 && code.get(x - 40, y - 20);
+                data.put(y * rowStride + x, (byte) (dark ? 30 : 220));
+            }
+        }
+        FrameDecoder decoder = new FrameDecoder(null);
+        Result result = decoder.decode(data, rowStride, 1, width, height, new CropRect(20, 10, 160, 140));
+        assertNotNull(result);
+        assertEquals("byte buffer", result.getText());
+    }
+
+}
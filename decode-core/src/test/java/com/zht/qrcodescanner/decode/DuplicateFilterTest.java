@@ -0,0 +1,64 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DuplicateFilterTest {
+
+    private static Result code(String text) {
+        return new Result(text, null, new ResultPoint[0], BarcodeFormat.QR_CODE);
+    }
+
+    @Test
+    public void suppressesRepeatsWithinTheWindow() {
+        DuplicateFilter filter = new DuplicateFilter(8, 1000L);
+        assertTrue(filter.accept(code("a"), 0L));
+        assertFalse(filter.accept(code("a"), 500L));
+        assertTrue(filter.accept(code("b"), 600L));
+    }
+
+    @Test
+    public void eachSightingRestartsTheWindow() {
+        DuplicateFilter filter = new DuplicateFilter(8, 1000L);
+        assertTrue(filter.accept(code("a"), 0L));
+        assertFalse(filter.accept(code("a"), 900L));
+        assertFalse(filter.accept(code("a"), 1800L));
+        assertTrue(filter.accept(code("a"), 2800L));
+    }
+
+    @Test
+    public void expiredCodesAreReportedAgain() {
+        DuplicateFilter filter = new DuplicateFilter(8, 1000L);
+        assertTrue(filter.accept(code("a"), 0L));
+        assertTrue(filter.accept(code("b"), 500L));
+        // a expires, b is still in its window
+        assertTrue(filter.accept(code("a"), 1200L));
+        assertFalse(filter.accept(code("b"), 1400L));
+    }
+
+    @Test
+    public void leastRecentlySeenIsEvictedFirst() {
+        DuplicateFilter filter = new DuplicateFilter(2, 10000L);
+        assertTrue(filter.accept(code("a"), 0L));
+        assertTrue(filter.accept(code("b"), 1L));
+        assertFalse(filter.accept(code("a"), 2L));
+        // Evicts b, seen less recently than a
+        assertTrue(filter.accept(code("c"), 3L));
+        assertFalse(filter.accept(code("a"), 4L));
+        assertTrue(filter.accept(code("b"), 5L));
+    }
+
+    @Test
+    public void sameTextInAnotherFormatIsAnotherCode() {
+        DuplicateFilter filter = new DuplicateFilter(8, 1000L);
+        assertTrue(filter.accept(code("123"), 0L));
+        assertTrue(filter.accept(new Result("123", null, new ResultPoint[0], BarcodeFormat.CODE_128), 1L));
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.WriterException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameQualityFilterTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final CropRect CROP = new CropRect(40, 20, 240, 200);
+
+    /**
+     * Dark left of {@code edge}, light right of it, with a linear ramp {@code blur} pixels wide
+     * between them.
+     */
+    private static byte[] edge(int edge, int blur, int dark, int light) {
+        byte[] frame = TestFrames.blank(WIDTH, HEIGHT, 0);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value;
+                if (x < edge - blur / 2) {
+                    value = dark;
+                } else if (x >= edge + (blur + 1) / 2) {
+                    value = light;
+                } else {
+                    value = dark + (light - dark) * (x - edge + blur / 2) / Math.max(blur, 1);
+                }
+                frame[y * WIDTH + x] = (byte) value;
+            }
+        }
+        return frame;
+    }
+
+    private static byte[] code(int dark, int light) throws WriterException {
+        byte[] frame = TestFrames.blank(WIDTH, HEIGHT, light);
+        TestFrames.drawQRCode(frame, WIDTH, "quality", 100, 62, 4, dark, light);
+        return frame;
+    }
+
+    @Test
+    public void acceptsASharpCode() throws WriterException {
+        FrameQualityFilter filter = new FrameQualityFilter();
+        assertTrue(filter.accept(code(20, 230), WIDTH, HEIGHT, CROP));
+        assertEquals(210, filter.getContrast());
+        assertEquals(100, filter.getSharpness());
+        assertTrue(filter.getBrightness() > 150);
+    }
+
+    @Test
+    public void acceptsASharpEdge() {
+        FrameQualityFilter filter = new FrameQualityFilter();
+        // Between an even and an odd pixel of the crop, seen in every row read
+        assertTrue(filter.accept(edge(151, 0, 30, 220), WIDTH, HEIGHT, CROP));
+        assertEquals(190, filter.getContrast());
+        assertEquals(100, filter.getSharpness());
+        assertTrue(filter.accept(edge(150, 4, 30, 220), WIDTH, HEIGHT, CROP));
+        assertTrue(filter.getSharpness() >= FrameQualityFilter.DEFAULT_MIN_SHARPNESS);
+    }
+
+    @Test
+    public void rejectsABlurredEdge() {
+        FrameQualityFilter filter = new FrameQualityFilter();
+        assertFalse(filter.accept(edge(150, 96, 30, 220), WIDTH, HEIGHT, CROP));
+        // Plenty of contrast, but no step between two pixels is steep
+        assertTrue(filter.getContrast() >= FrameQualityFilter.DEFAULT_MIN_CONTRAST);
+        assertTrue(filter.getSharpness() < FrameQualityFilter.DEFAULT_MIN_SHARPNESS);
+    }
+
+    @Test
+    public void rejectsADarkFrame() throws WriterException {
+        FrameQualityFilter filter = new FrameQualityFilter();
+        assertFalse(filter.accept(code(0, 14), WIDTH, HEIGHT, CROP));
+        assertTrue(filter.getBrightness() < FrameQualityFilter.DEFAULT_MIN_BRIGHTNESS);
+        assertFalse(filter.accept(TestFrames.blank(WIDTH, HEIGHT, 0), WIDTH, HEIGHT, CROP));
+        assertEquals(0, filter.getBrightness());
+    }
+
+    @Test
+    public void rejectsAFlatFrame() throws WriterException {
+        FrameQualityFilter filter = new FrameQualityFilter();
+        assertFalse(filter.accept(TestFrames.blank(WIDTH, HEIGHT, 128), WIDTH, HEIGHT, CROP));
+        assertEquals(128, filter.getBrightness());
+        assertEquals(0, filter.getContrast());
+        assertEquals(0, filter.getSharpness());
+        // A code, but too faint
+        assertFalse(filter.accept(code(110, 130), WIDTH, HEIGHT, CROP));
+        assertEquals(20, filter.getContrast());
+    }
+
+    @Test
+    public void looksOnlyAtTheCrop() throws WriterException {
+        FrameQualityFilter filter = new FrameQualityFilter();
+        // The edge is left of the crop
+        assertFalse(filter.accept(edge(20, 0, 30, 220), WIDTH, HEIGHT, CROP));
+        assertEquals(0, filter.getContrast());
+        assertTrue(filter.accept(edge(20, 0, 30, 220), WIDTH, HEIGHT, new CropRect(0, 0, 120, 120)));
+    }
+
+    @Test
+    public void letsAFrameThroughAfterTooManyRejects() throws WriterException {
+        FrameQualityFilter filter = new FrameQualityFilter();
+        byte[] flat = TestFrames.blank(WIDTH, HEIGHT, 128);
+        for (int i = 0; i < FrameQualityFilter.MAX_CONSECUTIVE_REJECTS; i++) {
+            assertFalse("frame " + i, filter.accept(flat, WIDTH, HEIGHT, CROP));
+        }
+        assertTrue(filter.accept(flat, WIDTH, HEIGHT, CROP));
+        // And counts again from there
+        assertFalse(filter.accept(flat, WIDTH, HEIGHT, CROP));
+
+        // A good frame starts the count again too
+        for (int i = 1; i < FrameQualityFilter.MAX_CONSECUTIVE_REJECTS; i++) {
+            assertFalse(filter.accept(flat, WIDTH, HEIGHT, CROP));
+        }
+        assertTrue(filter.accept(code(20, 230), WIDTH, HEIGHT, CROP));
+        for (int i = 0; i < FrameQualityFilter.MAX_CONSECUTIVE_REJECTS; i++) {
+            assertFalse("frame " + i, filter.accept(flat, WIDTH, HEIGHT, CROP));
+        }
+        assertTrue(filter.accept(flat, WIDTH, HEIGHT, CROP));
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.zht.qrcodescanner.decode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FrameRecordingTest {
+
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+    private static final int FRAME_LENGTH = WIDTH * HEIGHT * 3 / 2;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * An NV21 frame whose bytes tell which frame it is, followed by {@code padding} bytes which
+     * are not part of it, like a preview buffer.
+     */
+    private static byte[] frame(int number, int width, int height, int padding) {
+        byte[] data = new byte[width * height * 3 / 2 + padding];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (number * 31 + i);
+        }
+        return data;
+    }
+
+    private static void assertFrame(byte[] expected, ByteBuffer actual) {
+        int length = actual.remaining();
+        for (int i = 0; i < length; i++) {
+            assertEquals("byte " + i, expected[i], actual.get(actual.position() + i));
+        }
+    }
+
+    /**
+     * Records {@code count} frames of the same size, frame {@code i} at {@code 1000 * i} ns.
+     */
+    private File record(int count) throws IOException {
+        File file = folder.newFile();
+        FrameRecorder recorder = new FrameRecorder(file, count);
+        try {
+            for (int i = 0; i < count; i++) {
+                assertTrue(recorder.append(frame(i, WIDTH, HEIGHT, 0), WIDTH, HEIGHT, 1000L * i, null));
+            }
+        } finally {
+            recorder.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void readsBackWhatWasRecorded() throws IOException {
+        File file = folder.newFile();
+        int[][] sizes = {{16, 8}, {20, 10}, {12, 6}};
+        CropRect[] crops = {new CropRect(2, 1, 10, 4), null, new CropRect(0, 0, 12, 6)};
+        FrameRecorder recorder = new FrameRecorder(file, 4);
+        try {
+            for (int i = 0; i < sizes.length; i++) {
+                assertTrue(recorder.append(frame(i, sizes[i][0], sizes[i][1], 7), sizes[i][0], sizes[i][1],
+                        5_000_000_000L + 33_000_000L * i, crops[i]));
+            }
+            assertEquals(3, recorder.getFrameCount());
+            assertFalse(recorder.isFull());
+        } finally {
+            recorder.close();
+        }
+
+        FrameRecording recording = FrameRecording.open(file);
+        assertEquals(3, recording.getFrameCount());
+        for (int i = 0; i < sizes.length; i++) {
+            assertEquals(sizes[i][0], recording.getWidth(i));
+            assertEquals(sizes[i][1], recording.getHeight(i));
+            assertEquals(5_000_000_000L + 33_000_000L * i, recording.getTimestampNanos(i));
+            ByteBuffer data = recording.getFrame(i);
+            assertEquals(sizes[i][0] * sizes[i][1] * 3 / 2, data.remaining());
+            assertFrame(frame(i, sizes[i][0], sizes[i][1], 0), data);
+        }
+        assertEquals(crops[0], recording.getCrop(0));
+        // No crop: the whole frame
+        assertEquals(new CropRect(0, 0, 20, 10), recording.getCrop(1));
+        assertEquals(crops[2], recording.getCrop(2));
+    }
+
+    @Test
+    public void refusesFramesOnceFull() throws IOException {
+        File file = folder.newFile();
+        FrameRecorder recorder = new FrameRecorder(file, 2);
+        try {
+            assertTrue(recorder.append(frame(0, WIDTH, HEIGHT, 0), WIDTH, HEIGHT, 0L, null));
+            assertTrue(recorder.append(frame(1, WIDTH, HEIGHT, 0), WIDTH, HEIGHT, 1L, null));
+            assertTrue(recorder.isFull());
+            assertFalse(recorder.append(frame(2, WIDTH, HEIGHT, 0), WIDTH, HEIGHT, 2L, null));
+        } finally {
+            recorder.close();
+        }
+        FrameRecording recording = FrameRecording.open(file);
+        assertEquals(2, recording.getFrameCount());
+        assertFrame(frame(1, WIDTH, HEIGHT, 0), recording.getFrame(1));
+    }
+
+    @Test
+    public void mapsFramesInWindowsOfWholeFrames() throws IOException {
+        File file = record(7);
+        // Two and a half frames per window: a new window every two frames
+        FrameRecording recording = FrameRecording.open(file, FRAME_LENGTH * 5 / 2);
+        assertEquals(7, recording.getFrameCount());
+        assertEquals(4, recording.getWindowCount());
+        for (int i = 0; i < 7; i++) {
+            assertEquals(1000L * i, recording.getTimestampNanos(i));
+            ByteBuffer data = recording.getFrame(i);
+            assertEquals(FRAME_LENGTH, data.remaining());
+            assertFrame(frame(i, WIDTH, HEIGHT, 0), data);
+        }
+    }
+
+    @Test
+    public void mapsOneFramePerWindowOfExactlyOneFrame() throws IOException {
+        FrameRecording recording = FrameRecording.open(record(3), FRAME_LENGTH);
+        assertEquals(3, recording.getWindowCount());
+        for (int i = 0; i < 3; i++) {
+            assertFrame(frame(i, WIDTH, HEIGHT, 0), recording.getFrame(i));
+        }
+        assertEquals(1, FrameRecording.open(record(3), 3 * FRAME_LENGTH).getWindowCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFramesLargerThanAWindow() throws IOException {
+        FrameRecording.open(record(2), FRAME_LENGTH - 1);
+    }
+
+    @Test
+    public void endsAtTheLastCompleteFrame() throws IOException {
+        File file = record(3);
+        // As if the recorder died while writing the last frame, before it counted it
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(FrameRecording.COUNT_OFFSET);
+            raf.writeInt(2);
+            raf.setLength(raf.length() - FRAME_LENGTH / 2);
+        } finally {
+            raf.close();
+        }
+        FrameRecording recording = FrameRecording.open(file);
+        assertEquals(2, recording.getFrameCount());
+        assertFrame(frame(1, WIDTH, HEIGHT, 0), recording.getFrame(1));
+        try {
+            recording.getFrame(2);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // only two frames
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.writeInt(0x12345678);
+            raf.writeInt(FrameRecording.VERSION);
+            raf.writeInt(0);
+            raf.writeInt(0);
+        } finally {
+            raf.close();
+        }
+        FrameRecording.open(file);
+    }
+
+}
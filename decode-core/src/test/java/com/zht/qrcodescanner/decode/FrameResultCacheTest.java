@@ -0,0 +1,135 @@
+package com.zht.qrcodescanner.decode;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameResultCacheTest {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 160;
+    private static final CropRect CROP = new CropRect(10, 0, 180, 160);
+
+    /**
+     * A picture of 20 x 20 pixel patches of random brightness, shifted right by {@code shift}
+     * pixels, with up to {@code noise} levels of noise on each pixel.
+     */
+    private static byte[] picture(long seed, int shift, int noise) {
+        Random patches = new Random(seed);
+        int[] levels = new int[(WIDTH / 20 + 2) * (HEIGHT / 20 + 1)];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = 40 + patches.nextInt(180);
+        }
+        Random pixels = new Random(seed + 1000);
+        byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int patch = (y / 20) * (WIDTH / 20 + 2) + (x - shift + 20) / 20;
+                int value = levels[patch] + (noise == 0 ? 0 : pixels.nextInt(2 * noise + 1) - noise);
+                data[y * WIDTH + x] = (byte) value;
+            }
+        }
+        return data;
+    }
+
+    @Test
+    public void distanceCountsDifferentBits() {
+        assertEquals(0, FrameResultCache.distance(0x1234L, 0x1234L));
+        assertEquals(3, FrameResultCache.distance(0L, 0x2003L));
+        assertEquals(64, FrameResultCache.distance(0L, -1L));
+    }
+
+    @Test
+    public void noiseBarelyChangesTheHash() {
+        FrameResultCache<String> cache = new FrameResultCache<>(8, 6, 500L);
+        long still = cache.hash(picture(1L, 0, 0), WIDTH, CROP);
+        long noisy = cache.hash(picture(1L, 0, 2), WIDTH, CROP);
+        assertTrue(FrameResultCache.distance(still, noisy) <= 2);
+    }
+
+    @Test
+    public void anotherPictureChangesTheHash() {
+        FrameResultCache<String> cache = new FrameResultCache<>(8, 6, 500L);
+        long hash = cache.hash(picture(1L, 0, 0), WIDTH, CROP);
+        assertTrue(FrameResultCache.distance(hash, cache.hash(picture(2L, 0, 0), WIDTH, CROP)) > 6);
+        // Moved by half a grid block
+        assertTrue(FrameResultCache.distance(hash, cache.hash(picture(1L, 10, 0), WIDTH, CROP)) > 6);
+    }
+
+    @Test
+    public void hashesOnlyTheCrop() {
+        FrameResultCache<String> cache = new FrameResultCache<>(8, 6, 500L);
+        byte[] data = picture(1L, 0, 0);
+        long hash = cache.hash(data, WIDTH, CROP);
+        // Outside the crop
+        for (int y = 0; y < HEIGHT; y++) {
+            data[y * WIDTH] = (byte) 255;
+            data[y * WIDTH + WIDTH - 1] = (byte) 0;
+        }
+        assertEquals(hash, cache.hash(data, WIDTH, CROP));
+    }
+
+    @Test
+    public void reusesACodeForALikeFrame() {
+        FrameResultCache<String> cache = new FrameResultCache<>(8, 6, 500L);
+        assertFalse(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 0L));
+        cache.put("code", 0L);
+        assertTrue(cache.lookup(picture(1L, 0, 2), WIDTH, CROP, 100L));
+        assertEquals("code", cache.getValue());
+        assertFalse(cache.lookup(picture(2L, 0, 0), WIDTH, CROP, 200L));
+        assertEquals(1L, cache.getHits());
+        assertEquals(2L, cache.getMisses());
+    }
+
+    @Test
+    public void doesNotRememberFramesWithoutACode() {
+        FrameResultCache<String> cache = new FrameResultCache<>(8, 6, 500L);
+        assertFalse(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 0L));
+        cache.put(null, 0L);
+        // The next frame is decoded, it may be sharper
+        assertFalse(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 10L));
+        assertNull(cache.getValue());
+    }
+
+    @Test
+    public void forgetsACodeAfterTheTtl() {
+        FrameResultCache<String> cache = new FrameResultCache<>(8, 6, 500L);
+        cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 0L);
+        cache.put("code", 0L);
+        assertTrue(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 499L));
+        assertFalse(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 500L));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyMatchedFirst() {
+        FrameResultCache<String> cache = new FrameResultCache<>(2, 6, 10000L);
+        cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 0L);
+        cache.put("one", 0L);
+        cache.lookup(picture(2L, 0, 0), WIDTH, CROP, 1L);
+        cache.put("two", 1L);
+        assertTrue(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 2L));
+        // Evicts two, matched less recently than one
+        cache.lookup(picture(3L, 0, 0), WIDTH, CROP, 3L);
+        cache.put("three", 3L);
+        assertTrue(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 4L));
+        assertFalse(cache.lookup(picture(2L, 0, 0), WIDTH, CROP, 5L));
+        assertTrue(cache.lookup(picture(3L, 0, 0), WIDTH, CROP, 6L));
+    }
+
+    @Test
+    public void ignoresAPutAfterAHit() {
+        FrameResultCache<String> cache = new FrameResultCache<>(8, 6, 500L);
+        cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 0L);
+        cache.put("code", 0L);
+        assertTrue(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 10L));
+        cache.put("other", 10L);
+        assertTrue(cache.lookup(picture(1L, 0, 0), WIDTH, CROP, 20L));
+        assertEquals("code", cache.getValue());
+    }
+
+}
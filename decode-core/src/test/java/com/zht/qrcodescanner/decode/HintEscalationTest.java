@@ -0,0 +1,134 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.WriterException;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HintEscalationTest {
+
+    private static final long BUDGET = TimeUnit.SECONDS.toNanos(1);
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final CropRect CROP = new CropRect(0, 0, WIDTH, HEIGHT);
+    private static final String TEXT = "hint escalation, with a few more words";
+
+    private static HintEscalation escalation() {
+        return new HintEscalation(TestFrames.formats(BarcodeFormat.QR_CODE), BUDGET);
+    }
+
+    /**
+     * A QR Code with its middle painted over: its finder patterns are found, it can't be read.
+     */
+    private static byte[] damagedCode() throws WriterException {
+        byte[] frame = TestFrames.blank(WIDTH, HEIGHT, 255);
+        int size = TestFrames.qrCodeSize(TEXT, 4);
+        int left = (WIDTH - size) / 2;
+        int top = (HEIGHT - size) / 2;
+        TestFrames.drawQRCode(frame, WIDTH, TEXT, left, top, 4, 0, 255);
+        for (int y = top + size / 3; y < top + size * 2 / 3; y++) {
+            for (int x = left + size / 3; x < left + size * 2 / 3; x++) {
+                frame[y * WIDTH + x] = (byte) ((x / 4 + y / 8) % 2 == 0 ? 0 : 255);
+            }
+        }
+        return frame;
+    }
+
+    @Test
+    public void escalatesOnlyCheapHints() {
+        assertTrue(HintEscalation.supports(null));
+        assertTrue(HintEscalation.supports(TestFrames.formats(BarcodeFormat.QR_CODE)));
+        Map<DecodeHintType, Object> hard = TestFrames.formats(BarcodeFormat.QR_CODE);
+        hard.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        assertFalse(HintEscalation.supports(hard));
+
+        assertNull(new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE)).getHintEscalation());
+        assertNotNull(new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE),
+                new FrameDecoder.Options().setEscalationBudgetNanos(BUDGET)).getHintEscalation());
+        assertNull(new FrameDecoder(hard, new FrameDecoder.Options().setEscalationBudgetNanos(BUDGET))
+                .getHintEscalation());
+    }
+
+    @Test
+    public void retriesOnlyWithEvidenceOfACode() {
+        HintEscalation escalation = escalation();
+        long start = System.nanoTime();
+        assertFalse(escalation.shouldRetry(start, 0));
+        assertFalse(escalation.shouldRetry(start, HintEscalation.MIN_EVIDENCE_POINTS - 1));
+        assertEquals(0, escalation.getRetries());
+        assertTrue(escalation.shouldRetry(start, HintEscalation.MIN_EVIDENCE_POINTS));
+        assertEquals(1, escalation.getRetries());
+        assertEquals(0, escalation.getOverBudget());
+    }
+
+    @Test
+    public void retriesOnlyWithinTheBudget() {
+        HintEscalation escalation = escalation();
+        // Nothing learned yet: only the time spent counts
+        assertFalse(escalation.shouldRetry(System.nanoTime() - BUDGET - 1, 3));
+        assertEquals(1, escalation.getOverBudget());
+        assertTrue(escalation.shouldRetry(System.nanoTime(), 3));
+
+        // A retry which takes longer than the budget is not started again
+        escalation.retryDone(BUDGET + TimeUnit.MILLISECONDS.toNanos(100), false);
+        assertFalse(escalation.shouldRetry(System.nanoTime(), 3));
+        assertEquals(2, escalation.getOverBudget());
+        // One which leaves too little of the budget for the cheap pass before it either
+        escalation = escalation();
+        escalation.retryDone(BUDGET / 2, false);
+        assertTrue(escalation.shouldRetry(System.nanoTime(), 3));
+        assertFalse(escalation.shouldRetry(System.nanoTime() - BUDGET * 2 / 3, 3));
+    }
+
+    @Test
+    public void learnsTheCostOfARetry() {
+        HintEscalation escalation = escalation();
+        assertEquals(0L, escalation.getExpectedNanos());
+        escalation.retryDone(8000L, false);
+        assertEquals(8000L, escalation.getExpectedNanos());
+        // A quarter of the way to each new retry
+        escalation.retryDone(4000L, true);
+        assertEquals(7000L, escalation.getExpectedNanos());
+        escalation.retryDone(11000L, true);
+        assertEquals(8000L, escalation.getExpectedNanos());
+        assertEquals(2, escalation.getRetrySuccesses());
+    }
+
+    @Test
+    public void retriesAFrameWithFinderPatternsOnItsBlackMatrix() throws WriterException {
+        FrameDecoder decoder = new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE),
+                new FrameDecoder.Options().setEscalationBudgetNanos(BUDGET));
+        HintEscalation escalation = decoder.getHintEscalation();
+        assertNull(decoder.decode(damagedCode(), WIDTH, HEIGHT, CROP));
+        assertEquals(1, escalation.getRetries());
+        assertEquals(0, escalation.getRetrySuccesses());
+        assertTrue(escalation.getExpectedNanos() > 0L);
+        // The cheap pass binarized the frame, the retry reused its black matrix
+        assertEquals(1, decoder.getLastBinarizations());
+    }
+
+    @Test
+    public void doesNotRetryAFrameWithoutACode() {
+        FrameDecoder decoder = new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE),
+                new FrameDecoder.Options().setEscalationBudgetNanos(BUDGET));
+        byte[] frame = TestFrames.blank(WIDTH, HEIGHT, 255);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                frame[y * WIDTH + x] = (byte) ((x / 9 + y / 5) % 3 == 0 ? 30 : 220);
+            }
+        }
+        assertNull(decoder.decode(frame, WIDTH, HEIGHT, CROP));
+        assertEquals(0, decoder.getHintEscalation().getRetries());
+    }
+
+}
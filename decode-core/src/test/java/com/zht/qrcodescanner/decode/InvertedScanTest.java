@@ -0,0 +1,120 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.WriterException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InvertedScanTest {
+
+    private static final int WIDTH = 240;
+    private static final int HEIGHT = 240;
+    private static final CropRect CROP = new CropRect(0, 0, WIDTH, HEIGHT);
+    private static final String TEXT = "inverted";
+
+    private static byte[] normalCode() throws WriterException {
+        return TestFrames.qrCodeFrame(WIDTH, HEIGHT, TEXT, 4);
+    }
+
+    /**
+     * Light modules on a dark background.
+     */
+    private static byte[] invertedCode() throws WriterException {
+        byte[] frame = TestFrames.blank(WIDTH, HEIGHT, 20);
+        int size = TestFrames.qrCodeSize(TEXT, 4);
+        TestFrames.drawQRCode(frame, WIDTH, TEXT, (WIDTH - size) / 2, (HEIGHT - size) / 2, 4, 235, 20);
+        return frame;
+    }
+
+    private static FrameDecoder decoder() {
+        return new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE),
+                new FrameDecoder.Options().setInvertedScan(true));
+    }
+
+    @Test
+    public void triesTheOtherPolarityEveryOtherMiss() {
+        InvertedScan scan = new InvertedScan();
+        assertFalse(scan.isInvertedFirst());
+        assertFalse(scan.shouldTryOther());
+        assertTrue(scan.shouldTryOther());
+        assertFalse(scan.shouldTryOther());
+        assertTrue(scan.shouldTryOther());
+        assertEquals(2, scan.getFallbacks());
+        // A code found starts the count again
+        assertFalse(scan.shouldTryOther());
+        scan.frameDone(true, false, false);
+        assertFalse(scan.shouldTryOther());
+        assertTrue(scan.shouldTryOther());
+    }
+
+    @Test
+    public void decodesAnInvertedCode() throws WriterException {
+        byte[] frame = invertedCode();
+        assertNull("needs the inverted pass",
+                new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE)).decode(frame, WIDTH, HEIGHT, CROP));
+
+        FrameDecoder decoder = decoder();
+        InvertedScan scan = decoder.getInvertedScan();
+        assertNotNull(scan);
+        // The first miss is not tried inverted, the second one is
+        assertNull(decoder.decode(frame, WIDTH, HEIGHT, CROP));
+        Result result = decoder.decode(frame, WIDTH, HEIGHT, CROP);
+        assertNotNull(result);
+        assertEquals(TEXT, result.getText());
+        assertEquals(1, scan.getFallbacks());
+        assertEquals(1, scan.getFallbackSuccesses());
+        assertEquals(1, scan.getInvertedFound());
+        // From now on inverted first: found without a fallback
+        assertTrue(scan.isInvertedFirst());
+        result = decoder.decode(frame, WIDTH, HEIGHT, CROP);
+        assertNotNull(result);
+        assertEquals(TEXT, result.getText());
+        assertEquals(1, scan.getFallbacks());
+        assertEquals(2, scan.getInvertedFound());
+        assertEquals(1, decoder.getLastBinarizations());
+    }
+
+    @Test
+    public void decodesANormalCodeOnce() throws WriterException {
+        FrameDecoder decoder = decoder();
+        InvertedScan scan = decoder.getInvertedScan();
+        byte[] frame = normalCode();
+        for (int i = 0; i < 3; i++) {
+            Result result = decoder.decode(frame, WIDTH, HEIGHT, CROP);
+            assertNotNull(result);
+            assertEquals(TEXT, result.getText());
+            // One pass, no fallback
+            assertEquals(1, decoder.getLastBinarizations());
+        }
+        assertEquals(0, scan.getFallbacks());
+        assertEquals(0, scan.getInvertedFound());
+        assertFalse(scan.isInvertedFirst());
+    }
+
+    @Test
+    public void goesBackToNormalCodes() throws WriterException {
+        FrameDecoder decoder = decoder();
+        InvertedScan scan = decoder.getInvertedScan();
+        byte[] inverted = invertedCode();
+        decoder.decode(inverted, WIDTH, HEIGHT, CROP);
+        assertNotNull(decoder.decode(inverted, WIDTH, HEIGHT, CROP));
+        assertTrue(scan.isInvertedFirst());
+
+        byte[] normal = normalCode();
+        assertNull(decoder.decode(normal, WIDTH, HEIGHT, CROP));
+        Result result = decoder.decode(normal, WIDTH, HEIGHT, CROP);
+        assertNotNull(result);
+        assertEquals(TEXT, result.getText());
+        assertEquals(2, scan.getFallbacks());
+        assertEquals(2, scan.getFallbackSuccesses());
+        assertFalse(scan.isInvertedFirst());
+    }
+
+}
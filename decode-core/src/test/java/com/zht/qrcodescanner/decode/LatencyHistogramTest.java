@@ -0,0 +1,103 @@
+package com.zht.qrcodescanner.decode;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    /**
+     * The upper edge of the bucket {@code nanos} falls in: the median of it and a far larger
+     * sample.
+     */
+    private static long bucketEdge(long nanos) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(nanos);
+        histogram.record(Long.MAX_VALUE);
+        return histogram.getPercentileNanos(50);
+    }
+
+    @Test
+    public void smallValuesHaveABucketEach() {
+        for (long nanos = 0L; nanos < 4L; nanos++) {
+            assertEquals(nanos, bucketEdge(nanos));
+        }
+    }
+
+    @Test
+    public void bucketsAreAtMostAQuarterWide() {
+        for (int exponent = 2; exponent < 62; exponent++) {
+            long power = 1L << exponent;
+            for (long nanos : new long[]{power - 1, power, power + 1, power + power / 4, power * 3 / 2 + 7}) {
+                long edge = bucketEdge(nanos);
+                assertTrue(nanos + " in a bucket up to " + edge, edge >= nanos);
+                assertTrue(nanos + " in a bucket up to " + edge, edge - nanos <= nanos / 4);
+                // The next value starts the next bucket
+                assertTrue(bucketEdge(edge + 1) > edge);
+            }
+        }
+    }
+
+    @Test
+    public void percentilesPickTheBucketOfThatRank() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1L; nanos <= 100L; nanos++) {
+            histogram.record(nanos * 1000000L);
+        }
+        assertEquals(100L, histogram.getCount());
+        assertEquals(50500000L, histogram.getMeanNanos());
+        assertEquals(100000000L, histogram.getMaxNanos());
+        long median = histogram.getPercentileNanos(50);
+        assertTrue(median >= 50000000L && median <= 50000000L * 5 / 4);
+        long p99 = histogram.getPercentileNanos(99);
+        assertTrue(p99 >= 99000000L && p99 <= 100000000L);
+        // Never more than the largest sample
+        assertEquals(100000000L, histogram.getPercentileNanos(100));
+        assertTrue(histogram.getPercentileNanos(0) <= 1000000L * 5 / 4);
+    }
+
+    @Test
+    public void ignoresNegativeDurations() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1L);
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000L);
+        histogram.reset();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMeanNanos());
+        assertEquals(0L, histogram.getMaxNanos());
+        assertEquals(0L, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void threadsRecordWithoutLosingSamples() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long base = (t + 1) * 1000L;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record(base + i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000L, histogram.getCount());
+        assertEquals(4000L + 9999L, histogram.getMaxNanos());
+        assertEquals(histogram.getMaxNanos(), histogram.getPercentileNanos(100));
+    }
+
+}
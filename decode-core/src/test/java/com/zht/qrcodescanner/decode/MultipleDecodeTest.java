@@ -0,0 +1,175 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.WriterException;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link FrameDecoder#decodeMultiple}, with {@link RegionSearch}, {@link ResultCollector} and
+ * {@link BudgetReader}.
+ */
+public class MultipleDecodeTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final CropRect CROP = new CropRect(20, 10, 600, 460);
+    private static final long BUDGET = 1000000000L;
+
+    private static FrameDecoder decoder() {
+        return new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE, BarcodeFormat.CODE_128));
+    }
+
+    /**
+     * Three QR Codes side by side.
+     */
+    private static byte[] threeQRCodes(String first, String second, String third) throws WriterException {
+        byte[] frame = TestFrames.blank(WIDTH, HEIGHT, 255);
+        TestFrames.drawQRCode(frame, WIDTH, first, 40, 40, 4, 0, 255);
+        TestFrames.drawQRCode(frame, WIDTH, second, 250, 40, 4, 0, 255);
+        TestFrames.drawQRCode(frame, WIDTH, third, 460, 40, 4, 0, 255);
+        return frame;
+    }
+
+    /**
+     * Two QR Codes above, a Code 128 below them.
+     */
+    private static byte[] mixedCodes() throws WriterException {
+        byte[] frame = TestFrames.blank(WIDTH, HEIGHT, 255);
+        TestFrames.drawQRCode(frame, WIDTH, "left", 60, 30, 4, 0, 255);
+        TestFrames.drawQRCode(frame, WIDTH, "right", 400, 30, 4, 0, 255);
+        TestFrames.draw(frame, WIDTH, BarcodeFormat.CODE_128, "CODE128", 180, 330, 2, 0, 255);
+        return frame;
+    }
+
+    private static Set<String> texts(Result[] results) {
+        Set<String> texts = new HashSet<>();
+        for (Result result : results) {
+            texts.add(result.getBarcodeFormat() + ":" + result.getText());
+        }
+        return texts;
+    }
+
+    private static float centerX(Result result) {
+        float sum = 0f;
+        for (ResultPoint point : result.getResultPoints()) {
+            sum += point.getX();
+        }
+        return sum / result.getResultPoints().length;
+    }
+
+    private static Result result(String text, float... xy) {
+        ResultPoint[] points = new ResultPoint[xy.length / 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new ResultPoint(xy[2 * i], xy[2 * i + 1]);
+        }
+        return new Result(text, null, points, BarcodeFormat.QR_CODE);
+    }
+
+    @Test
+    public void decodesEveryCodeInTheFrame() throws WriterException {
+        Result[] results = decoder().decodeMultiple(threeQRCodes("one", "two", "three"),
+                WIDTH, HEIGHT, CROP, 10, BUDGET);
+        assertNotNull(results);
+        assertEquals(new HashSet<>(Arrays.asList("QR_CODE:one", "QR_CODE:two", "QR_CODE:three")),
+                texts(results));
+        // Points relative to the crop
+        for (Result result : results) {
+            float x = centerX(result) + CROP.getLeft();
+            String expected = x < 210 ? "one" : x < 420 ? "two" : "three";
+            assertEquals(expected, result.getText());
+        }
+    }
+
+    @Test
+    public void searchesAroundTheQRCodesForOtherFormats() throws WriterException {
+        Result[] results = decoder().decodeMultiple(mixedCodes(), WIDTH, HEIGHT, CROP, 10, BUDGET);
+        assertNotNull(results);
+        assertEquals(new HashSet<>(Arrays.asList("QR_CODE:left", "QR_CODE:right", "CODE_128:CODE128")),
+                texts(results));
+    }
+
+    @Test
+    public void stopsAtMaxResults() throws WriterException {
+        byte[] frame = threeQRCodes("one", "two", "three");
+        Result[] results = decoder().decodeMultiple(frame, WIDTH, HEIGHT, CROP, 2, BUDGET);
+        assertNotNull(results);
+        assertEquals(2, results.length);
+        assertEquals(1, decoder().decodeMultiple(frame, WIDTH, HEIGHT, CROP, 1, BUDGET).length);
+    }
+
+    @Test
+    public void searchesNoRegionsWithoutBudget() throws WriterException {
+        // The QR Code pass runs anyway, the region search for the Code 128 does not start
+        Result[] results = decoder().decodeMultiple(mixedCodes(), WIDTH, HEIGHT, CROP, 10, 0L);
+        assertNotNull(results);
+        assertEquals(new HashSet<>(Arrays.asList("QR_CODE:left", "QR_CODE:right")), texts(results));
+    }
+
+    @Test
+    public void keepsTheSameTextInTwoPlaces() throws WriterException {
+        Result[] results = decoder().decodeMultiple(threeQRCodes("same", "other", "same"),
+                WIDTH, HEIGHT, CROP, 10, BUDGET);
+        assertNotNull(results);
+        assertEquals(3, results.length);
+    }
+
+    @Test
+    public void dropsTheSameCodeFoundTwice() {
+        ResultCollector collector = new ResultCollector(10);
+        assertTrue(collector.add(result("a", 10, 10, 50, 10, 10, 50)));
+        // The same code, found again a little off
+        assertFalse(collector.add(result("a", 12, 11, 52, 11, 12, 51)));
+        // Another code in the same place, the same text elsewhere
+        assertTrue(collector.add(result("b", 10, 10, 50, 10, 10, 50)));
+        assertTrue(collector.add(result("a", 200, 10, 240, 10, 200, 50)));
+        // No points: nothing to tell it from the one with the same text
+        assertFalse(collector.add(new Result("a", null, null, BarcodeFormat.QR_CODE)));
+        assertFalse(collector.add(null));
+        assertEquals(3, collector.toArray().length);
+    }
+
+    @Test
+    public void collectsAtMostMaxResults() {
+        ResultCollector collector = new ResultCollector(2);
+        assertTrue(collector.add(result("a", 0, 0, 10, 10)));
+        assertFalse(collector.isFull());
+        assertTrue(collector.add(result("b", 0, 0, 10, 10)));
+        assertTrue(collector.isFull());
+        assertFalse(collector.add(result("c", 0, 0, 10, 10)));
+        assertEquals(2, collector.toArray().length);
+    }
+
+    @Test
+    public void budgetReaderFindsNothingOnceExpired() {
+        BudgetReader reader = new BudgetReader(new MultiFormatReader());
+        reader.setDeadline(System.nanoTime() + BUDGET);
+        assertFalse(reader.isExpired());
+        reader.setDeadline(System.nanoTime());
+        assertTrue(reader.isExpired());
+    }
+
+    @Test
+    public void keepsDecodingAfterAFrameWithoutCodes() throws WriterException {
+        FrameDecoder decoder = decoder();
+        assertNull(decoder.decodeMultiple(TestFrames.blank(WIDTH, HEIGHT, 255), WIDTH, HEIGHT, CROP, 10, BUDGET));
+        Result[] results = decoder.decodeMultiple(threeQRCodes("one", "two", "three"),
+                WIDTH, HEIGHT, CROP, 10, BUDGET);
+        assertNotNull(results);
+        assertEquals(3, results.length);
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class QRCodeFastPathTest {
+
+    private static Map<DecodeHintType, Object> formats(BarcodeFormat... formats) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.copyOf(Arrays.asList(formats)));
+        return hints;
+    }
+
+    /**
+     * The code with a quiet zone, {@code moduleSize} pixels per module.
+     */
+    private static BitMatrix code(String text, int moduleSize) throws Exception {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, 4);
+        BitMatrix modules = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0, hints);
+        int size = modules.getWidth() * moduleSize;
+        BitMatrix image = new BitMatrix(size, size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (modules.get(x / moduleSize, y / moduleSize)) {
+                    image.set(x, y);
+                }
+            }
+        }
+        return image;
+    }
+
+    @Test
+    public void supportsQRCodesOnly() {
+        assertTrue(QRCodeFastPath.supports(formats(BarcodeFormat.QR_CODE)));
+        assertFalse(QRCodeFastPath.supports(null));
+        assertFalse(QRCodeFastPath.supports(new EnumMap<DecodeHintType, Object>(DecodeHintType.class)));
+        assertFalse(QRCodeFastPath.supports(formats(BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX)));
+        Map<DecodeHintType, Object> pure = formats(BarcodeFormat.QR_CODE);
+        pure.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
+        assertFalse(QRCodeFastPath.supports(pure));
+    }
+
+    @Test
+    public void patternCrossNeedsAbout11311() {
+        assertTrue(QRCodeFastPath.foundPatternCross(new int[]{1, 1, 3, 1, 1}));
+        assertTrue(QRCodeFastPath.foundPatternCross(new int[]{4, 3, 12, 5, 4}));
+        assertFalse(QRCodeFastPath.foundPatternCross(new int[]{3, 3, 3, 3, 3}));
+        assertFalse(QRCodeFastPath.foundPatternCross(new int[]{1, 0, 3, 1, 1}));
+    }
+
+    @Test
+    public void findsTheFinderPatternsOfACode() throws Exception {
+        QRCodeFastPath fastPath = new QRCodeFastPath(formats(BarcodeFormat.QR_CODE));
+        for (int moduleSize = 1; moduleSize <= 4; moduleSize++) {
+            assertTrue("module size " + moduleSize,
+                    fastPath.hasFinderPatternCandidates(code("fast path", moduleSize)));
+        }
+    }
+
+    @Test
+    public void givesUpOnFramesWithoutFinderPatterns() {
+        QRCodeFastPath fastPath = new QRCodeFastPath(formats(BarcodeFormat.QR_CODE));
+        BitMatrix blank = new BitMatrix(120, 120);
+        assertFalse(fastPath.hasFinderPatternCandidates(blank));
+        assertNull(fastPath.decode(blank));
+        // Even stripes, like a 1D code, have no 1:1:3:1:1 run
+        BitMatrix stripes = new BitMatrix(120, 120);
+        for (int x = 0; x < 120; x += 8) {
+            stripes.setRegion(x, 0, 4, 120);
+        }
+        assertFalse(fastPath.hasFinderPatternCandidates(stripes));
+    }
+
+    @Test
+    public void decodesLikeTheReader() throws Exception {
+        QRCodeFastPath fastPath = new QRCodeFastPath(formats(BarcodeFormat.QR_CODE));
+        Result result = fastPath.decode(code("https://example.com/fast-path", 3));
+        assertNotNull(result);
+        assertEquals("https://example.com/fast-path", result.getText());
+        assertEquals(BarcodeFormat.QR_CODE, result.getBarcodeFormat());
+        // The finder patterns, and the alignment pattern of a code this size
+        assertEquals(4, result.getResultPoints().length);
+    }
+
+    @Test
+    public void frameDecoderTakesTheFastPathForQRCodesOnly() {
+        assertTrue(new FrameDecoder(formats(BarcodeFormat.QR_CODE)).isQRCodeFastPath());
+        assertFalse(new FrameDecoder(Collections.<DecodeHintType, Object>emptyMap()).isQRCodeFastPath());
+    }
+
+}
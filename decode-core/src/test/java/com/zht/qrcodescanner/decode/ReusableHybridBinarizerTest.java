@@ -0,0 +1,154 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.InvertedLuminanceSource;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReusableHybridBinarizerTest {
+
+    /**
+     * Crop sizes: the smallest one binarized per block, widths and heights which are not a
+     * multiple of the block size (8), and one too small, binarized with the global histogram.
+     */
+    private static final int[][] SIZES = {{40, 40}, {41, 47}, {100, 64}, {203, 157}, {39, 60}};
+
+    /**
+     * A frame with a gradient, dark and light blocks, some flat areas (less dynamic range than a
+     * block needs to get a threshold of its own) and noise.
+     */
+    private static byte[] frame(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[width * height * 3 / 2];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int value;
+                if ((x / 24 + y / 24) % 5 == 0) {
+                    value = 120 + random.nextInt(6);
+                } else {
+                    value = x * 96 / width + y * 64 / height + random.nextInt(24);
+                    if (((x / 5) ^ (y / 7)) % 3 == 0) {
+                        value += 100;
+                    }
+                }
+                data[y * width + x] = (byte) Math.min(value, 255);
+            }
+        }
+        return data;
+    }
+
+    private static LuminanceSource expectedSource(byte[] data, int dataWidth, int dataHeight,
+                                                  int left, int top, int width, int height) {
+        return new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, left, top, width, height, false);
+    }
+
+    private static void assertMatrixEquals(BitMatrix expected, BitMatrix actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("(" + x + ", " + y + ")", expected.get(x, y), actual.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void matchesHybridBinarizer() throws NotFoundException {
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            int dataWidth = width + 13;
+            int dataHeight = height + 9;
+            byte[] data = frame(dataWidth, dataHeight, width);
+            ReusableYUVLuminanceSource source = new ReusableYUVLuminanceSource(width, height);
+            source.reset(data, dataWidth, dataHeight, 5, 3);
+            BitMatrix expected = new HybridBinarizer(
+                    expectedSource(data, dataWidth, dataHeight, 5, 3, width, height)).getBlackMatrix();
+            assertMatrixEquals(expected, new ReusableHybridBinarizer(source).getBlackMatrix());
+        }
+    }
+
+    @Test
+    public void matchesHybridBinarizerFrameAfterFrame() throws NotFoundException {
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            ReusableYUVLuminanceSource source = new ReusableYUVLuminanceSource(width, height);
+            ReusableHybridBinarizer binarizer = new ReusableHybridBinarizer(source);
+            // The same crop of ever smaller frames, each with other content and at another place
+            for (int frame = 0; frame < 4; frame++) {
+                int dataWidth = width + 24 - 8 * frame;
+                int dataHeight = height + 12 - 4 * frame;
+                int left = 3 * (3 - frame);
+                int top = 3 - frame;
+                byte[] data = frame(dataWidth, dataHeight, 31L * width + frame);
+                source.reset(data, dataWidth, dataHeight, left, top);
+                BitMatrix expected = new HybridBinarizer(
+                        expectedSource(data, dataWidth, dataHeight, left, top, width, height)).getBlackMatrix();
+                assertMatrixEquals(expected, binarizer.getBlackMatrix());
+            }
+        }
+    }
+
+    @Test
+    public void globalHistogramMatchesGlobalHistogramBinarizer() throws NotFoundException {
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            byte[] data = frame(width, height, 7L * width);
+            ReusableYUVLuminanceSource source = new ReusableYUVLuminanceSource(width, height);
+            source.reset(data, width, height, 0, 0);
+            ReusableHybridBinarizer binarizer = new ReusableHybridBinarizer(source);
+            binarizer.setGlobalHistogram(true);
+            BitMatrix expected = new GlobalHistogramBinarizer(
+                    expectedSource(data, width, height, 0, 0, width, height)).getBlackMatrix();
+            assertMatrixEquals(expected, binarizer.getBlackMatrix());
+        }
+    }
+
+    @Test
+    public void invertedMatchesHybridBinarizerOfTheInvertedFrame() throws NotFoundException {
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            byte[] data = frame(width, height, 11L * width);
+            ReusableYUVLuminanceSource source = new ReusableYUVLuminanceSource(width, height);
+            source.reset(data, width, height, 0, 0);
+            ReusableHybridBinarizer binarizer = new ReusableHybridBinarizer(source);
+            binarizer.setInverted(true);
+            BitMatrix expected = new HybridBinarizer(new InvertedLuminanceSource(
+                    expectedSource(data, width, height, 0, 0, width, height))).getBlackMatrix();
+            assertMatrixEquals(expected, binarizer.getBlackMatrix());
+        }
+    }
+
+    @Test
+    public void blackRowMatchesHybridBinarizer() throws NotFoundException {
+        int width = 203;
+        int height = 157;
+        byte[] data = frame(width, height, 3L);
+        ReusableYUVLuminanceSource source = new ReusableYUVLuminanceSource(width, height);
+        source.reset(data, width, height, 0, 0);
+        ReusableHybridBinarizer binarizer = new ReusableHybridBinarizer(source);
+        HybridBinarizer expected = new HybridBinarizer(expectedSource(data, width, height, 0, 0, width, height));
+        BitArray row = null;
+        for (int y = 0; y < height; y += 17) {
+            row = binarizer.getBlackRow(y, row);
+            BitArray expectedRow = expected.getBlackRow(y, null);
+            for (int x = 0; x < width; x++) {
+                assertEquals("(" + x + ", " + y + ")", expectedRow.get(x), row.get(x));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.WriterException;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RoiTrackerTest {
+
+    private static final CropRect BASE = new CropRect(100, 100, 400, 400);
+    /**
+     * The window around a 40 pixel code centered at (300, 300) in the frame.
+     */
+    private static final CropRect WINDOW = new CropRect(200, 200, 200, 200);
+
+    /**
+     * A code centered at (300, 300) in the frame, its points relative to {@code crop}.
+     */
+    private static Result codeAt300(CropRect crop) {
+        float x = 300 - crop.getLeft();
+        float y = 300 - crop.getTop();
+        return new Result("code", null, new ResultPoint[]{
+                new ResultPoint(x - 20, y - 20), new ResultPoint(x + 20, y - 20),
+                new ResultPoint(x - 20, y + 20)}, BarcodeFormat.QR_CODE);
+    }
+
+    @Test
+    public void narrowsTheCropAroundTheLastCode() {
+        RoiTracker tracker = new RoiTracker(true);
+        assertSame(BASE, tracker.nextCrop(BASE));
+        tracker.frameDone(codeAt300(BASE));
+        assertEquals(WINDOW, tracker.nextCrop(BASE));
+    }
+
+    @Test
+    public void decodesTheWholeCropEveryFewFrames() {
+        RoiTracker tracker = new RoiTracker(true);
+        tracker.nextCrop(BASE);
+        tracker.frameDone(codeAt300(BASE));
+        for (int i = 1; i < RoiTracker.FULL_FRAME_INTERVAL; i++) {
+            CropRect crop = tracker.nextCrop(BASE);
+            assertEquals(WINDOW, crop);
+            tracker.frameDone(codeAt300(crop));
+        }
+        assertSame(BASE, tracker.nextCrop(BASE));
+    }
+
+    @Test
+    public void forgetsTheCodeAfterAFewMisses() {
+        RoiTracker tracker = new RoiTracker(true);
+        tracker.nextCrop(BASE);
+        tracker.frameDone(codeAt300(BASE));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(WINDOW, tracker.nextCrop(BASE));
+            tracker.frameDone(null);
+        }
+        assertSame(BASE, tracker.nextCrop(BASE));
+    }
+
+    @Test
+    public void forgetsTheCodeWhenTheFramingRectChanges() {
+        RoiTracker tracker = new RoiTracker(true);
+        tracker.nextCrop(BASE);
+        tracker.frameDone(codeAt300(BASE));
+        CropRect moved = new CropRect(0, 0, 400, 400);
+        assertSame(moved, tracker.nextCrop(moved));
+    }
+
+    @Test
+    public void withoutTrackingAlwaysDecodesTheWholeCrop() {
+        RoiTracker tracker = new RoiTracker(false);
+        tracker.nextCrop(BASE);
+        tracker.frameDone(codeAt300(BASE));
+        assertSame(BASE, tracker.nextCrop(BASE));
+    }
+
+    @Test
+    public void forwardsPointsRelativeToTheCropAskedFor() {
+        final List<ResultPoint> forwarded = new ArrayList<>();
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, new ResultPointCallback() {
+            @Override
+            public void foundPossibleResultPoint(ResultPoint point) {
+                forwarded.add(point);
+            }
+        });
+        RoiTracker tracker = new RoiTracker(true);
+        assertSame(tracker, tracker.wrapHints(hints).get(DecodeHintType.NEED_RESULT_POINT_CALLBACK));
+        tracker.nextCrop(BASE);
+        tracker.frameDone(codeAt300(BASE));
+        assertEquals(WINDOW, tracker.nextCrop(BASE));
+        // A point found at half resolution in the window
+        tracker.setScale(2);
+        tracker.foundPossibleResultPoint(new ResultPoint(10, 20));
+        assertEquals(1, tracker.getPointCount());
+        assertEquals(new ResultPoint(120.5f, 140.5f), forwarded.get(0));
+    }
+
+    @Test
+    public void thumbnailSourceCoversTheWholeCropLikeThePoints() throws WriterException {
+        int width = 640;
+        int height = 480;
+        CropRect crop = new CropRect(40, 40, 560, 400);
+        byte[] frame = TestFrames.blank(width, height, 255);
+        TestFrames.drawQRCode(frame, width, "roi", 380, 260, 3, 0, 255);
+        FrameDecoder decoder = new FrameDecoder(TestFrames.formats(BarcodeFormat.QR_CODE),
+                new FrameDecoder.Options().setTrackRoi(true));
+        assertNotNull(decoder.decode(frame, width, height, crop));
+        // Only the window around the code is decoded now
+        Result result = decoder.decode(frame, width, height, crop);
+        assertNotNull(result);
+
+        ReusableYUVLuminanceSource source = decoder.getLuminanceSource();
+        assertEquals(crop.getWidth(), source.getWidth());
+        assertEquals(crop.getHeight(), source.getHeight());
+        byte[] matrix = source.getMatrix();
+        for (int y = 0; y < source.getHeight(); y += 7) {
+            for (int x = 0; x < source.getWidth(); x += 7) {
+                assertEquals(frame[(crop.getTop() + y) * width + crop.getLeft() + x],
+                        matrix[y * source.getWidth() + x]);
+            }
+        }
+        // The finder pattern centers are dark in the source, where the points say
+        for (ResultPoint point : result.getResultPoints()) {
+            int x = (int) point.getX();
+            int y = (int) point.getY();
+            assertTrue(point.toString(), (matrix[y * source.getWidth() + x] & 0xff) < 128);
+        }
+    }
+
+}
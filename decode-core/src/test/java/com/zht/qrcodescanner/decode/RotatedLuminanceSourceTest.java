@@ -0,0 +1,133 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RotatedLuminanceSourceTest {
+
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 12;
+    private static final CropRect CROP = new CropRect(3, 2, 9, 7);
+
+    /**
+     * A frame whose pixels tell where they are.
+     */
+    private static byte[] frame() {
+        byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static RotatedLuminanceSource source(int rotation) {
+        RotatedLuminanceSource source = new RotatedLuminanceSource(CROP.getWidth(), CROP.getHeight(), rotation);
+        source.reset(frame(), WIDTH, HEIGHT, CROP.getLeft(), CROP.getTop());
+        return source;
+    }
+
+    @Test
+    public void quarterTurnsSwapTheSides() {
+        assertEquals(9, source(0).getWidth());
+        assertEquals(7, source(180).getHeight());
+        assertEquals(7, source(90).getWidth());
+        assertEquals(9, source(270).getHeight());
+    }
+
+    @Test
+    public void rotateMapsEachViewPixelBackToItsFramePixel() {
+        byte[] data = frame();
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            RotatedLuminanceSource source = source(rotation);
+            byte[] matrix = source.getMatrix();
+            ResultPoint[] points = new ResultPoint[source.getWidth() * source.getHeight()];
+            for (int y = 0; y < source.getHeight(); y++) {
+                for (int x = 0; x < source.getWidth(); x++) {
+                    points[y * source.getWidth() + x] = new ResultPoint(x, y);
+                }
+            }
+            Result inView = new Result("code", null, points, BarcodeFormat.CODE_128);
+            ResultPoint[] inCrop = ResultPoints.rotate(inView, rotation, CROP.getWidth(), CROP.getHeight())
+                    .getResultPoints();
+            for (int i = 0; i < points.length; i++) {
+                int x = CROP.getLeft() + (int) inCrop[i].getX();
+                int y = CROP.getTop() + (int) inCrop[i].getY();
+                assertEquals("rotation " + rotation + ", pixel " + i, data[y * WIDTH + x], matrix[i]);
+            }
+        }
+    }
+
+    @Test
+    public void rowsMatchTheMatrix() {
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            RotatedLuminanceSource source = source(rotation);
+            byte[] matrix = source.getMatrix();
+            int width = source.getWidth();
+            for (int y = 0; y < source.getHeight(); y++) {
+                byte[] expected = new byte[width];
+                System.arraycopy(matrix, y * width, expected, 0, width);
+                assertArrayEquals(expected, source.getRow(y, null));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesOtherAngles() {
+        new RotatedLuminanceSource(9, 7, 45);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesACropOutsideTheFrame() {
+        new RotatedLuminanceSource(9, 7, 90).reset(frame(), WIDTH, HEIGHT, 8, 0);
+    }
+
+    @Test
+    public void decoderFindsAnUprightCodeInAPortraitFrame() throws Exception {
+        // A code level on a portrait screen runs down a landscape frame
+        int width = 320;
+        int height = 240;
+        BitMatrix code = new MultiFormatWriter().encode("ROTATED", BarcodeFormat.CODE_128, 200, 60);
+        byte[] data = new byte[width * height * 3 / 2];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // The code's x runs up the frame, its y to the right
+                int codeX = 219 - y;
+                int codeY = x - 130;
+                boolean dark = codeX >= 0 && codeX < 200 && codeY >= 0 && codeY < 60
+                        && code.get(codeX, codeY);
+                data[y * width + x] = (byte) (dark ? 30 : 220);
+            }
+        }
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singleton(BarcodeFormat.CODE_128));
+        CropRect crop = new CropRect(0, 0, width, height);
+        FrameDecoder decoder = new FrameDecoder(hints);
+        assertNull(decoder.decode(data, width, height, crop));
+        decoder.setRotation(90);
+        Result result = decoder.decode(data, width, height, crop);
+        assertNotNull(result);
+        assertEquals("ROTATED", result.getText());
+        // The points are back in the frame, on the code
+        for (ResultPoint point : result.getResultPoints()) {
+            assertTrue(point.toString(), point.getX() >= 130 && point.getX() < 190);
+            assertTrue(point.toString(), point.getY() >= 20 && point.getY() < 220);
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SubsampledLuminanceSourceTest {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    /**
+     * A frame whose pixels tell where they are: the value grows by 1 to the right, 4 down.
+     */
+    private static byte[] frame() {
+        byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                data[y * WIDTH + x] = (byte) (x + 4 * y);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * The average of the {@code factor} x {@code factor} block at (left, top), rounded down.
+     */
+    private static int block(int left, int top, int factor) {
+        int sum = 0;
+        for (int y = top; y < top + factor; y++) {
+            for (int x = left; x < left + factor; x++) {
+                sum += x + 4 * y;
+            }
+        }
+        return sum / (factor * factor);
+    }
+
+    @Test
+    public void averagesBlocksOfTheCrop() {
+        for (int factor = 2; factor <= 4; factor++) {
+            SubsampledLuminanceSource source = new SubsampledLuminanceSource(21, 13, factor);
+            assertEquals(21 / factor, source.getWidth());
+            assertEquals(13 / factor, source.getHeight());
+            source.reset(frame(), WIDTH, HEIGHT, 5, 7);
+            byte[] matrix = source.getMatrix();
+            for (int y = 0; y < source.getHeight(); y++) {
+                for (int x = 0; x < source.getWidth(); x++) {
+                    assertEquals("factor " + factor + " at " + x + "," + y,
+                            block(5 + x * factor, 7 + y * factor, factor),
+                            matrix[y * source.getWidth() + x] & 0xff);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rowsMatchTheMatrix() {
+        SubsampledLuminanceSource source = new SubsampledLuminanceSource(20, 20, 2);
+        source.reset(frame(), WIDTH, HEIGHT, 10, 4);
+        byte[] matrix = source.getMatrix();
+        byte[] row = source.getRow(3, null);
+        byte[] expected = new byte[source.getWidth()];
+        System.arraycopy(matrix, 3 * source.getWidth(), expected, 0, expected.length);
+        assertArrayEquals(expected, row);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesACropOutsideTheFrame() {
+        new SubsampledLuminanceSource(20, 20, 2).reset(frame(), WIDTH, HEIGHT, 30, 0);
+    }
+
+    @Test
+    public void transformPutsAReducedPointInTheCenterOfItsBlock() {
+        Result result = new Result("code", null, new ResultPoint[]{new ResultPoint(3, 5), null},
+                BarcodeFormat.QR_CODE);
+        Result moved = ResultPoints.transform(result, 2, 10, 20);
+        assertEquals(new ResultPoint(16.5f, 30.5f), moved.getResultPoints()[0]);
+        assertEquals(null, moved.getResultPoints()[1]);
+        assertEquals("code", moved.getText());
+        moved = ResultPoints.transform(result, 4, 0, 0);
+        assertEquals(new ResultPoint(13.5f, 21.5f), moved.getResultPoints()[0]);
+    }
+
+    @Test
+    public void transformLeavesAResultAtFullResolutionAlone() {
+        Result result = new Result("code", null, new ResultPoint[]{new ResultPoint(3, 5)},
+                BarcodeFormat.QR_CODE);
+        assertSame(result, ResultPoints.transform(result, 1, 0, 0));
+        assertEquals(new ResultPoint(4, 7), ResultPoints.transform(result, 1, 1, 2).getResultPoints()[0]);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.zht.qrcodescanner.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Camera frames with codes drawn into them, for the decoder tests.
+ */
+final class TestFrames {
+
+    private TestFrames() {
+    }
+
+    /**
+     * A frame of one luminance, with room for the chroma planes like an NV21 preview buffer.
+     */
+    static byte[] blank(int width, int height, int luminance) {
+        byte[] frame = new byte[width * height * 3 / 2];
+        Arrays.fill(frame, 0, width * height, (byte) luminance);
+        return frame;
+    }
+
+    /**
+     * Draws a QR Code with a quiet zone of 4 modules, its top left corner at (left, top).
+     *
+     * @return its size in pixels, quiet zone included.
+     */
+    static int drawQRCode(byte[] frame, int frameWidth, String text, int left, int top, int moduleSize,
+                          int dark, int light) throws WriterException {
+        return draw(frame, frameWidth, BarcodeFormat.QR_CODE, text, left, top, moduleSize, dark, light);
+    }
+
+    /**
+     * Draws a code of any format ZXing writes, with a quiet zone of 4 modules.
+     *
+     * @return its width in pixels, quiet zone included.
+     */
+    static int draw(byte[] frame, int frameWidth, BarcodeFormat format, String text, int left, int top,
+                    int moduleSize, int dark, int light) throws WriterException {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, 4);
+        BitMatrix modules = new MultiFormatWriter().encode(text, format, 0, 0, hints);
+        int width = modules.getWidth() * moduleSize;
+        int height = format == BarcodeFormat.QR_CODE || format == BarcodeFormat.DATA_MATRIX
+                ? modules.getHeight() * moduleSize : 60;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean black = modules.get(x / moduleSize, Math.min(y / moduleSize, modules.getHeight() - 1));
+                frame[(top + y) * frameWidth + left + x] = (byte) (black ? dark : light);
+            }
+        }
+        return width;
+    }
+
+    /**
+     * A frame of {@code width} by {@code height} with a black on white QR Code in the middle.
+     */
+    static byte[] qrCodeFrame(int width, int height, String text, int moduleSize) throws WriterException {
+        byte[] frame = blank(width, height, 255);
+        int size = qrCodeSize(text, moduleSize);
+        drawQRCode(frame, width, text, (width - size) / 2, (height - size) / 2, moduleSize, 0, 255);
+        return frame;
+    }
+
+    static int qrCodeSize(String text, int moduleSize) throws WriterException {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, 4);
+        return new MultiFormatWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0, hints).getWidth() * moduleSize;
+    }
+
+    static Map<DecodeHintType, Object> formats(BarcodeFormat... formats) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.copyOf(Arrays.asList(formats)));
+        return hints;
+    }
+
+}
@@ -24,8 +24,8 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.preference.PreferenceManager;
 
-import com.zht.qrcodescanner.camera.CameraManager;
 import com.zht.qrcodescanner.camera.FrontLightMode;
+import com.zht.qrcodescanner.camera.ScanCamera;
 
 
 /**
@@ -40,14 +40,14 @@ public final class AmbientLightManager implements SensorEventListener {
     private static final float BRIGHT_ENOUGH_LUX = 450.0f;
 
     private final Context context;
-    private CameraManager cameraManager;
+    private ScanCamera cameraManager;
     private Sensor lightSensor;
 
     public AmbientLightManager(Context context) {
         this.context = context;
     }
 
-    public void start(CameraManager cameraManager) {
+    public void start(ScanCamera cameraManager) {
         this.cameraManager = cameraManager;
         SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
         if (FrontLightMode.readPref() == FrontLightMode.AUTO) {
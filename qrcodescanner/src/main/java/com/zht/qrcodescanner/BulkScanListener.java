@@ -0,0 +1,18 @@
+package com.zht.qrcodescanner;
+
+import com.google.zxing.Result;
+
+/**
+ * Receives the codes of a bulk scan as they are found, see {@link
+ * com.zht.qrcodescanner.config.ConfigManager#KEY_BULK_MODE}. Called on the main thread.
+ * <p>
+ * 批量扫描结果监听：扫描不中断，每识别到一个新的条码回调一次。
+ */
+public interface BulkScanListener {
+
+    /**
+     * @param rawResult a code which was not seen within the duplicate window.
+     */
+    void onBulkScanResult(Result rawResult);
+
+}
@@ -22,11 +22,12 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.provider.Browser;
 import android.util.Log;
 
@@ -34,13 +35,19 @@ import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.Result;
 import com.zht.qrcodescanner.activity.CaptureActivity;
-import com.zht.qrcodescanner.camera.CameraManager;
+import com.zht.qrcodescanner.camera.ScanCamera;
+import com.zht.qrcodescanner.config.ConfigManager;
+import com.zht.qrcodescanner.decode.DuplicateFilter;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class handles all the messaging which comprises the state machine for capture.
+ * <p>
+ * The decode workers start, and warm up, as soon as the handler is created, which may be while
+ * the camera is still opening; {@link #startPreviewAndDecode()} starts scanning once it is open.
  *
  * @author dswitkin@google.com (Daniel Switkin)
  */
@@ -49,11 +56,17 @@ public final class CaptureHandler extends Handler {
     private static final String TAG = CaptureHandler.class.getSimpleName();
 
     private final CaptureActivity activity;
-    private final DecodeThread decodeThread;
+    private final DecodeWorkerPool decodePool;
     private State state;
-    private final CameraManager cameraManager;
+    private final ScanCamera cameraManager;
+    /**
+     * Not null in bulk mode, unless duplicates are to be kept.
+     */
+    private final DuplicateFilter duplicateFilter;
+    private final boolean bulkMode;
 
     private enum State {
+        STARTING,
         PREVIEW,
         SUCCESS,
         DONE
@@ -63,19 +76,44 @@ public final class CaptureHandler extends Handler {
                           Collection<BarcodeFormat> decodeFormats,
                           Map<DecodeHintType, ?> baseHints,
                           String characterSet,
-                          CameraManager cameraManager) {
+                          ScanCamera cameraManager) {
         this.activity = activity;
-        //开启一个解码线程
-        decodeThread = new DecodeThread(activity, decodeFormats, baseHints, characterSet,
-                new ViewfinderResultPointCallback(activity.getViewfinderView()));
+        //开启解码线程池
+        decodePool = new DecodeWorkerPool(activity, decodeFormats, baseHints, characterSet,
+                new ViewfinderResultPointCallback(activity.getViewfinderView()),
+                DecodeWorkerPool.defaultWorkerCount(),
+                ConfigManager.getInt(ConfigManager.KEY_PIPELINE_DEPTH, 1));
         //执行DecodeThread线程中的run()方法；
-        decodeThread.start();
-        state = State.SUCCESS;
+        decodePool.start();
+        //等待相机打开
+        state = State.STARTING;
+
+        //批量扫描：解码成功后不停止预览，继续解码
+        bulkMode = ConfigManager.getBoolean(ConfigManager.KEY_BULK_MODE, false);
+        if (bulkMode && !ConfigManager.getBoolean(ConfigManager.KEY_REMEMBER_DUPLICATES, false)) {
+            duplicateFilter = new DuplicateFilter(
+                    ConfigManager.getInt(ConfigManager.KEY_BULK_DUPLICATE_CACHE_SIZE, 512),
+                    ConfigManager.getInt(ConfigManager.KEY_BULK_DUPLICATE_WINDOW_MS, 3000));
+        } else {
+            duplicateFilter = null;
+        }
 
-        // Start ourselves capturing previews and decoding.
         this.cameraManager = cameraManager;
+    }
+
+    /**
+     * Start ourselves capturing previews and decoding. The camera must be open and have its
+     * preview display set.
+     */
+    public void startPreviewAndDecode() {
+        if (state != State.STARTING) {
+            return;
+        }
+        // One spare buffer keeps the camera busy while the decoder holds all the frames it may.
+        cameraManager.setPreviewBufferCount(decodePool.getFrameCapacity() + 1);
         //相机开启预览
         cameraManager.startPreview();
+        state = State.SUCCESS;
         restartPreviewAndDecode();
     }
 
@@ -83,24 +121,41 @@ public final class CaptureHandler extends Handler {
     public void handleMessage(Message message) {
         if (message.what == R.id.restart_preview) {
             restartPreviewAndDecode();
-        } else if (message.what == R.id.decode_succeeded) { //解码成功
+        } else if (message.what == R.id.decode_succeeded
+                || message.what == R.id.decode_multiple_succeeded) { //解码成功
+            decodePool.frameDone(message.arg1);
+            if (state != State.PREVIEW) {
+                // Another worker was faster, first result wins.
+                return;
+            }
+            if (bulkMode) {
+                handleBulkDecode(message);
+                recordDelivery(message);
+                requestFrames();
+                return;
+            }
             state = State.SUCCESS;
-            Bundle bundle = message.getData();
-            Bitmap barcode = null;
-            float scaleFactor = 1.0f;
-            if (bundle != null) {
-                byte[] compressedBitmap = bundle.getByteArray(DecodeThread.BARCODE_BITMAP);
-                if (compressedBitmap != null) {
-                    barcode = BitmapFactory.decodeByteArray(compressedBitmap, 0, compressedBitmap.length, null);
-                    // Mutable copy:
-                    barcode = barcode.copy(Bitmap.Config.ARGB_8888, true);
-                }
-                scaleFactor = bundle.getFloat(DecodeThread.BARCODE_SCALED_FACTOR);
+            decodePool.cancelInFlight();
+            // Deliver right away, the thumbnail (if any) follows from a background thread.
+            Result rawResult;
+            if (message.what == R.id.decode_multiple_succeeded) {
+                Result[] rawResults = (Result[]) message.obj;
+                rawResult = rawResults[0];
+                activity.handleDecodeMultiple(rawResults);
+            } else {
+                rawResult = (Result) message.obj;
+                activity.handleDecode(rawResult, null, 1.0f);
+            }
+            recordDelivery(message);
+            Bundle bundle = message.peekData();
+            if (bundle != null && bundle.containsKey(DecodeThread.BARCODE_LUMINANCE)) {
+                new ThumbnailTask(rawResult, bundle).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
             }
-            activity.handleDecode((Result) message.obj, barcode, scaleFactor);
         } else if (message.what == R.id.decode_failed) {
-             state = State.PREVIEW;
-             cameraManager.requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
+            decodePool.frameDone(message.arg1);
+            if (state == State.PREVIEW) {
+                requestFrames();
+            }
         }
 
 //        switch (message.what) {
@@ -168,31 +223,105 @@ public final class CaptureHandler extends Handler {
 //        }
     }
 
+    /**
+     * Hands the codes of a bulk scan hit to the activity, leaving out those seen within the
+     * duplicate window. The preview and the decoders keep running.
+     */
+    private void handleBulkDecode(Message message) {
+        Result[] rawResults;
+        if (message.what == R.id.decode_multiple_succeeded) {
+            rawResults = (Result[]) message.obj;
+        } else {
+            rawResults = new Result[]{(Result) message.obj};
+        }
+        long now = SystemClock.elapsedRealtime();
+        for (Result rawResult : rawResults) {
+            if (duplicateFilter == null || duplicateFilter.accept(rawResult, now)) {
+                activity.handleBulkDecode(rawResult);
+            }
+        }
+    }
+
+    /**
+     * From the decode worker sending the result until the activity is done with it.
+     */
+    private static void recordDelivery(Message message) {
+        ScanMetrics.getInstance().record(ScanMetrics.Stage.DELIVERY,
+                TimeUnit.MILLISECONDS.toNanos(SystemClock.uptimeMillis() - message.getWhen()));
+    }
+
     public void quitSynchronously() {
         state = State.DONE;
         cameraManager.stopPreview();
-        Message quit = Message.obtain(decodeThread.getHandler(), R.id.quit);
-        quit.sendToTarget();
-        try {
-            // Wait at most half a second; should be enough time, and onPause() will timeout quickly
-            decodeThread.join(500L);
-        } catch (InterruptedException e) {
-            // continue
-        }
+        // Wait at most half a second; should be enough time, and onPause() will timeout quickly
+        decodePool.quit(500L);
 
         // Be absolutely sure we don't send any queued up messages
         removeMessages(R.id.decode_succeeded);
+        removeMessages(R.id.decode_multiple_succeeded);
         removeMessages(R.id.decode_failed);
     }
 
 
+    /**
+     * Renders the greyscale thumbnail sent along with a result into a mutable bitmap and hands
+     * it to {@link CaptureActivity#handleDecodeThumbnail}.
+     */
+    private final class ThumbnailTask extends AsyncTask<Void, Void, Bitmap> {
+
+        private final Result rawResult;
+        private final Bundle bundle;
+
+        ThumbnailTask(Result rawResult, Bundle bundle) {
+            this.rawResult = rawResult;
+            this.bundle = bundle;
+        }
+
+        @Override
+        protected Bitmap doInBackground(Void... params) {
+            byte[] luminance = bundle.getByteArray(DecodeThread.BARCODE_LUMINANCE);
+            int width = bundle.getInt(DecodeThread.BARCODE_WIDTH);
+            int height = bundle.getInt(DecodeThread.BARCODE_HEIGHT);
+            if (luminance == null || width <= 0 || height <= 0) {
+                return null;
+            }
+            int[] pixels = new int[width * height];
+            for (int i = 0; i < pixels.length; i++) {
+                int grey = luminance[i] & 0xff;
+                pixels[i] = 0xFF000000 | (grey * 0x00010101);
+            }
+            Bitmap barcode = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            barcode.setPixels(pixels, 0, width, 0, 0, width, height);
+            return barcode;
+        }
+
+        @Override
+        protected void onPostExecute(Bitmap barcode) {
+            if (barcode != null && state != State.DONE) {
+                activity.handleDecodeThumbnail(rawResult, barcode,
+                        bundle.getFloat(DecodeThread.BARCODE_SCALED_FACTOR));
+            }
+        }
+    }
+
     private void restartPreviewAndDecode() {
         if (state == State.SUCCESS) {
             state = State.PREVIEW;
+            decodePool.resume();
             //通过cameraManager发起解码请求
-            cameraManager.requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
+            requestFrames();
           /*  activity.drawViewfinder();*/
         }
     }
 
+    /**
+     * Requests one preview frame for every worker which has room for it.
+     */
+    private void requestFrames() {
+        Handler worker;
+        while ((worker = decodePool.acquireWorker()) != null) {
+            cameraManager.requestPreviewFrame(worker, R.id.decode);
+        }
+    }
+
 }
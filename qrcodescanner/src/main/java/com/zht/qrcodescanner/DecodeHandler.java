@@ -16,39 +16,102 @@
 
 package com.zht.qrcodescanner;
 
-import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
 
-import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.PlanarYUVLuminanceSource;
-import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 import com.zht.qrcodescanner.activity.CaptureActivity;
+import com.zht.qrcodescanner.camera.CameraFrame;
+import com.zht.qrcodescanner.config.ConfigManager;
+import com.zht.qrcodescanner.decode.CropRect;
+import com.zht.qrcodescanner.decode.FrameDecoder;
+import com.zht.qrcodescanner.decode.FrameQualityFilter;
+import com.zht.qrcodescanner.decode.FrameResultCache;
+import com.zht.qrcodescanner.decode.ReusableYUVLuminanceSource;
 
 
-import java.io.ByteArrayOutputStream;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Android side of a decode worker: takes preview frames from its {@link Looper}, hands them to
+ * a {@link FrameDecoder} and reports the outcome to the {@link CaptureHandler}.
+ */
 final class DecodeHandler extends Handler {
 
     private static final String TAG = DecodeHandler.class.getSimpleName();
 
+    private static final int STATS_LOG_INTERVAL = 100;
+
     private final CaptureActivity activity;
-    private final MultiFormatReader multiFormatReader;
+    private final DecodeWorkerPool pool;
+    private final int workerIndex;
+    private final FrameDecoder frameDecoder;
+    private final FrameQualityFilter qualityFilter;
+    /**
+     * The codes found in the last few frames, a {@code Result} or {@code Result[]} each.
+     */
+    private final FrameResultCache<Object> resultCache;
+    private CropRect cropRect;
+    private final boolean bundleThumbnail;
+    private final boolean multiDecode;
+    private final int multiDecodeMaxCodes;
+    private final long multiDecodeBudgetNanos;
+    /**
+     * Whether the 1D readers also scan the frames turned as on the screen.
+     */
+    private final boolean rotatedScan;
     private boolean running = true;
+    /**
+     * When this worker finished its last frame, or -1 right after a result or a restart.
+     */
+    private long idleSince = -1L;
 
-    DecodeHandler(CaptureActivity activity, Map<DecodeHintType, Object> hints) {
-        multiFormatReader = new MultiFormatReader();
-        multiFormatReader.setHints(hints);
+    DecodeHandler(CaptureActivity activity,
+                  DecodeWorkerPool pool,
+                  int workerIndex,
+                  Map<DecodeHintType, Object> hints) {
+        //只解码上一帧条码附近的区域（ROI 跟踪）
+        //先以较低分辨率解码（图像金字塔）
+        //光照均匀、对比度高的帧先用开销较小的二值化器
+        //发现定位点却未能解码时，在时间预算内用 TRY_HARDER 重试
+        //未能解码时每隔一帧以反色方式再解码一次（黑背景白条码）
+        frameDecoder = new FrameDecoder(hints, new FrameDecoder.Options()
+                .setTrackRoi(ConfigManager.getBoolean(ConfigManager.KEY_ROI_TRACKING, true))
+                .setPyramidLevels(ConfigManager.getInt(ConfigManager.KEY_DECODE_PYRAMID_LEVELS, 1))
+                .setAdaptiveBinarizer(ConfigManager.getBoolean(ConfigManager.KEY_ADAPTIVE_BINARIZER, false))
+                .setEscalationBudgetNanos(TimeUnit.MILLISECONDS.toNanos(
+                        ConfigManager.getInt(ConfigManager.KEY_HINT_ESCALATION_BUDGET_MS, 0)))
+                .setInvertedScan(ConfigManager.getBoolean(ConfigManager.KEY_SOFTWARE_INVERT_SCAN, false)));
+        if (frameDecoder.isQRCodeFastPath()) {
+            //只识别二维码：直接调用二维码的检测与解码
+            Log.d(TAG, "Decoding QR Codes only, bypassing MultiFormatReader");
+        }
+        //跳过过暗、模糊的帧
+        qualityFilter = ConfigManager.getBoolean(ConfigManager.KEY_FRAME_QUALITY_FILTER, false)
+                ? new FrameQualityFilter() : null;
+        //几乎相同的帧直接使用上次的解码结果
+        resultCache = ConfigManager.getBoolean(ConfigManager.KEY_RESULT_CACHE, false)
+                ? new FrameResultCache<>(
+                ConfigManager.getInt(ConfigManager.KEY_RESULT_CACHE_SIZE, 8),
+                ConfigManager.getInt(ConfigManager.KEY_RESULT_CACHE_MAX_DISTANCE, 6),
+                ConfigManager.getInt(ConfigManager.KEY_RESULT_CACHE_TTL_MS, 500)) : null;
         this.activity = activity;
+        this.pool = pool;
+        this.workerIndex = workerIndex;
+        bundleThumbnail = ConfigManager.getBoolean(ConfigManager.KEY_RESULT_THUMBNAIL, false);
+        multiDecode = ConfigManager.getBoolean(ConfigManager.KEY_MULTI_DECODE, false);
+        multiDecodeMaxCodes = ConfigManager.getInt(ConfigManager.KEY_MULTI_DECODE_MAX_CODES, 10);
+        multiDecodeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(
+                ConfigManager.getInt(ConfigManager.KEY_MULTI_DECODE_BUDGET_MS, 150));
+        rotatedScan = ConfigManager.getBoolean(ConfigManager.KEY_ROTATED_SCAN, false);
     }
 
     @Override
@@ -57,10 +120,83 @@ final class DecodeHandler extends Handler {
             return;
         }
         if (message.what == R.id.decode) {
-            decode((byte[]) message.obj, message.arg1, message.arg2);
+            try {
+                //此处通过CameraManager获取解码范围
+                CropRect crop = getCropRect();
+                if (rotatedScan) {
+                    //竖屏时按屏幕方向扫描一维码，相机重新打开后方向可能改变
+                    frameDecoder.setRotation(activity.getCameraManager().getFrameRotation());
+                }
+                //Camera2 的帧留在相机缓冲区中，由解码器只复制扫码框内的亮度
+                byte[] data = message.obj instanceof byte[] ? (byte[]) message.obj : null;
+                int width = message.arg1;
+                int height = message.arg2;
+                ScanMetrics metrics = ScanMetrics.getInstance();
+                //帧在队列中等待解码的时间
+                metrics.record(ScanMetrics.Stage.QUEUE_WAIT,
+                        TimeUnit.MILLISECONDS.toNanos(SystemClock.uptimeMillis() - message.getWhen()));
+                if (pool.isCancelled()) {
+                    //其他线程已解码成功，丢弃该帧
+                    idleSince = -1L;
+                    sendFailed();
+                } else if (crop != null && data != null && qualityFilter != null
+                        && !qualityFilter.accept(data, width, height, crop)) {
+                    //帧质量太差（过暗、对比度低或模糊），不解码
+                    metrics.recordRejected();
+                    idleSince = System.nanoTime();
+                    sendFailed();
+                } else if (crop != null && data != null && resultCache != null
+                        && lookupResult(data, width, crop, metrics)) {
+                    //与最近解码过的帧几乎相同，直接使用上次的结果，不解码
+                    boolean found = deliver(resultCache.getValue(), System.nanoTime(), false);
+                    idleSince = found ? -1L : System.nanoTime();
+                } else {
+                    long start = System.nanoTime();
+                    if (idleSince >= 0L) {
+                        metrics.record(ScanMetrics.Stage.CAPTURE_WAIT, start - idleSince);
+                    }
+                    boolean found = decode(message.obj, width, height, crop);
+                    idleSince = found ? -1L : System.nanoTime();
+                    if (crop != null) {
+                        metrics.record(ScanMetrics.Stage.LUMINANCE, frameDecoder.getLastLuminanceNanos());
+                        metrics.record(ScanMetrics.Stage.BINARIZE, frameDecoder.getLastBinarizeNanos());
+                        metrics.record(ScanMetrics.Stage.DECODE, frameDecoder.getLastDecodeNanos());
+                    }
+                    long decoded = metrics.recordDecoded(found ? frameDecoder.getLastLevel() : -1);
+                    if (decoded == 1L) {
+                        Log.i(TAG, "Scanning started " + TimeUnit.NANOSECONDS.toMillis(
+                                metrics.getTimeToFirstDecodeNanos()) + " ms after resume");
+                    } else if (decoded % STATS_LOG_INTERVAL == 0) {
+                        Log.d(TAG, "Scan metrics:\n" + metrics.dump());
+                        if (frameDecoder.getBinarizerSelector() != null) {
+                            Log.d(TAG, "Binarizers of worker " + workerIndex + ": "
+                                    + frameDecoder.getBinarizerSelector());
+                        }
+                        if (frameDecoder.getHintEscalation() != null) {
+                            Log.d(TAG, "Hint escalation of worker " + workerIndex + ": "
+                                    + frameDecoder.getHintEscalation());
+                        }
+                        if (frameDecoder.getInvertedScan() != null) {
+                            Log.d(TAG, "Inverted scan of worker " + workerIndex + ": "
+                                    + frameDecoder.getInvertedScan());
+                        }
+                    }
+                }
+            } finally {
+                //将预览缓冲区归还给相机
+                activity.getCameraManager().releasePreviewFrame(message.obj);
+            }
+        } else if (message.what == R.id.warm_up) {
+            //相机打开期间预热解码器
+            frameDecoder.warmUp();
         } else if (message.what == R.id.quit) {
             running = false;
-            Looper.myLooper().quit();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                //已入队的帧仍会处理（解码已取消，直接归还），之后发来的帧发送失败，由相机归还
+                Looper.myLooper().quitSafely();
+            } else {
+                Looper.myLooper().quit();
+            }
         }
 
 //        switch (message.what) {
@@ -76,38 +212,58 @@ final class DecodeHandler extends Handler {
 
     /**
      * Decode the data within the viewfinder rectangle, and time how long it took. For efficiency,
-     * reuse the same reader objects from one decode to the next.
+     * reuse the same reader objects from one decode to the next. In multi decode mode every code
+     * in the frame is sent back at once, as a {@code Result[]}.
      * 解码取景器矩形内的数据，并花费时间。
      * 为了提高效率，将相同的读取器对象从一个解码重复使用到下一个解码。
      *
-     * @param data   The YUV preview frame.
+     * @param frame  The YUV preview frame, a {@code byte[]}, or a {@link CameraFrame} from Camera2.
      * @param width  The width of the preview frame.
      * @param height The height of the preview frame.
+     * @param crop   The framing rect in preview coordinates, or {@code null} if not known yet.
+     * @return whether a barcode was found.
      */
-    private void decode(byte[] data, int width, int height) {
+    private boolean decode(Object frame, int width, int height, CropRect crop) {
         long start = System.nanoTime();
-        Result rawResult = null;
-
-//        Log.e(TAG, "decode: ");
-//        Log.e(TAG, "width: " + width);
-//        Log.e(TAG, "height: " + height);
-//        Log.e(TAG, "data: " + data.length);
-
-        //此处通过CameraManager获取图片
-        PlanarYUVLuminanceSource source =
-                activity.getCameraManager().buildLuminanceSource(data, width, height);
-        if (source != null) {
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-            try {
-                //解码图片
-                rawResult = multiFormatReader.decodeWithState(bitmap);
-            } catch (Exception re) {
-                // continue
-                re.printStackTrace();
-            } finally {
-                multiFormatReader.reset();
+        Object rawResult = null;
+
+        if (crop != null && frame instanceof CameraFrame) {
+            //Camera2：解码器只从相机缓冲区复制扫码框内的亮度
+            CameraFrame cameraFrame = (CameraFrame) frame;
+            if (multiDecode) {
+                rawResult = frameDecoder.decodeMultiple(cameraFrame.getYPlane(),
+                        cameraFrame.getRowStride(), cameraFrame.getPixelStride(), width, height, crop,
+                        multiDecodeMaxCodes, multiDecodeBudgetNanos);
+            } else {
+                rawResult = frameDecoder.decode(cameraFrame.getYPlane(),
+                        cameraFrame.getRowStride(), cameraFrame.getPixelStride(), width, height, crop);
+            }
+        } else if (crop != null) {
+            //解码图片
+            byte[] data = (byte[]) frame;
+            if (multiDecode) {
+                //多码识别：一帧中的所有条码一次返回
+                rawResult = frameDecoder.decodeMultiple(data, width, height, crop,
+                        multiDecodeMaxCodes, multiDecodeBudgetNanos);
+            } else {
+                rawResult = frameDecoder.decode(data, width, height, crop);
             }
         }
+        if (crop != null && resultCache != null && frame instanceof byte[]) {
+            resultCache.put(rawResult, SystemClock.uptimeMillis());
+        }
+        return deliver(rawResult, start, bundleThumbnail);
+    }
+
+    /**
+     * Sends a decode outcome to the activity.
+     *
+     * @param rawResult A {@code Result}, a {@code Result[]} in multi decode mode, or {@code null}.
+     * @param start     When decoding the frame started, for the log.
+     * @param thumbnail Whether to bundle the thumbnail of the frame the decoder last looked at.
+     * @return whether a barcode was found.
+     */
+    private boolean deliver(Object rawResult, long start, boolean thumbnail) {
         //获取到activity的Handler
         Handler handler = activity.getHandler();
         if (rawResult != null) {
@@ -116,29 +272,71 @@ final class DecodeHandler extends Handler {
             Log.d(TAG, "Found barcode in " + TimeUnit.NANOSECONDS.toMillis(end - start) + " ms");
             if (handler != null) {
                 //解码成功
-                Message message = Message.obtain(handler, R.id.decode_succeeded, rawResult);
-                Bundle bundle = new Bundle();
-                bundleThumbnail(source, bundle);
-                message.setData(bundle);
-                message.sendToTarget();
-            }
-        } else {
-            if (handler != null) {
-                //解码失败
-                Message message = Message.obtain(handler, R.id.decode_failed);
+                Message message = Message.obtain(handler,
+                        multiDecode ? R.id.decode_multiple_succeeded : R.id.decode_succeeded, rawResult);
+                message.arg1 = workerIndex;
+                if (thumbnail) {
+                    Bundle bundle = new Bundle();
+                    bundleThumbnail(frameDecoder.getLuminanceSource(), bundle);
+                    message.setData(bundle);
+                }
                 message.sendToTarget();
             }
+            return true;
+        }
+        //解码失败
+        sendFailed();
+        return false;
+    }
+
+    /**
+     * Looks the frame up in the result cache, and counts the outcome.
+     *
+     * @return whether a frame like it was decoded lately, see {@link FrameResultCache}.
+     */
+    private boolean lookupResult(byte[] data, int width, CropRect crop, ScanMetrics metrics) {
+        boolean hit = resultCache.lookup(data, width, crop, SystemClock.uptimeMillis());
+        metrics.recordCacheLookup(hit);
+        long lookups = resultCache.getHits() + resultCache.getMisses();
+        if (lookups % STATS_LOG_INTERVAL == 0) {
+            Log.d(TAG, "Result cache of worker " + workerIndex + ": " + resultCache);
+        }
+        return hit;
+    }
+
+    private void sendFailed() {
+        Handler handler = activity.getHandler();
+        if (handler != null) {
+            Message message = Message.obtain(handler, R.id.decode_failed, workerIndex, 0);
+            message.sendToTarget();
         }
     }
 
-    private static void bundleThumbnail(PlanarYUVLuminanceSource source, Bundle bundle) {
-        int[] pixels = source.renderThumbnail();
+    /**
+     * The framing rect in preview coordinates, converted only when it changed.
+     *
+     * @return the crop, or {@code null} if the framing rect is not known yet.
+     */
+    private CropRect getCropRect() {
+        Rect rect = activity.getCameraManager().getFramingRectInPreview();
+        if (rect == null) {
+            return null;
+        }
+        if (cropRect == null || !cropRect.matches(rect.left, rect.top, rect.right, rect.bottom)) {
+            cropRect = new CropRect(rect.left, rect.top, rect.width(), rect.height());
+        }
+        return cropRect;
+    }
+
+    /**
+     * Only copies the raw thumbnail luminance; turning it into a bitmap is left to
+     * {@link CaptureHandler}, off the decode path and after the result was delivered.
+     */
+    private static void bundleThumbnail(ReusableYUVLuminanceSource source, Bundle bundle) {
         int width = source.getThumbnailWidth();
-        int height = source.getThumbnailHeight();
-        Bitmap bitmap = Bitmap.createBitmap(pixels, 0, width, width, height, Bitmap.Config.ARGB_8888);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 50, out);
-        bundle.putByteArray(DecodeThread.BARCODE_BITMAP, out.toByteArray());
+        bundle.putByteArray(DecodeThread.BARCODE_LUMINANCE, source.copyThumbnailLuminance());
+        bundle.putInt(DecodeThread.BARCODE_WIDTH, width);
+        bundle.putInt(DecodeThread.BARCODE_HEIGHT, source.getThumbnailHeight());
         bundle.putFloat(DecodeThread.BARCODE_SCALED_FACTOR, (float) width / source.getWidth());
     }
 
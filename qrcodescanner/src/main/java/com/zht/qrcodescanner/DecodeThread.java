@@ -19,16 +19,9 @@ package com.zht.qrcodescanner;
 import android.os.Handler;
 import android.os.Looper;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
-import com.google.zxing.ResultPointCallback;
 import com.zht.qrcodescanner.activity.CaptureActivity;
-import com.zht.qrcodescanner.config.ConfigManager;
 
-
-import java.util.Collection;
-import java.util.EnumMap;
-import java.util.EnumSet;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
@@ -36,67 +29,35 @@ import java.util.concurrent.CountDownLatch;
  * This thread does all the heavy lifting of decoding the images.
  * <p>
  * 该线程完成了解码图像的所有繁重工作。
+ * <p>
+ * Each thread is one worker of a {@link DecodeWorkerPool} and owns its own reader.
  *
  * @author dswitkin@google.com (Daniel Switkin)
  */
 final class DecodeThread extends Thread {
 
-    public static final String BARCODE_BITMAP = "barcode_bitmap";
+    public static final String BARCODE_LUMINANCE = "barcode_luminance";
+    public static final String BARCODE_WIDTH = "barcode_width";
+    public static final String BARCODE_HEIGHT = "barcode_height";
     public static final String BARCODE_SCALED_FACTOR = "barcode_scaled_factor";
 
     private final CaptureActivity activity;
+    private final DecodeWorkerPool pool;
+    private final int index;
     private final Map<DecodeHintType, Object> hints;
     private Handler handler;
     private final CountDownLatch handlerInitLatch;
 
-    public DecodeThread(CaptureActivity activity,
-                        Collection<BarcodeFormat> decodeFormats,
-                        Map<DecodeHintType, ?> baseHints,
-                        String characterSet,
-                        ResultPointCallback resultPointCallback) {
-
+    DecodeThread(CaptureActivity activity,
+                 DecodeWorkerPool pool,
+                 int index,
+                 Map<DecodeHintType, Object> hints) {
+        super("DecodeThread-" + index);
         this.activity = activity;
+        this.pool = pool;
+        this.index = index;
+        this.hints = hints;
         handlerInitLatch = new CountDownLatch(1);
-
-        hints = new EnumMap<>(DecodeHintType.class);
-        if (baseHints != null) {
-            hints.putAll(baseHints);
-        }
-
-        // The prefs can't change while the thread is running, so pick them up once here.
-        // 当线程正在运行时，配置选项无法更改，因此请在此处进行一次选择。
-        if (decodeFormats == null || decodeFormats.isEmpty()) {
-
-            /**
-             * Modified by ZhangHaitao at 2019/11/8  15:32.
-             * 当前项目只需要解码 二维码，对于一维条形码不做处理。
-             */
-            decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
-//      if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_1D_PRODUCT, true)) {
-//        decodeFormats.addAll(DecodeFormatManager.PRODUCT_FORMATS);
-//      }
-//      if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_1D_INDUSTRIAL, true)) {
-//        decodeFormats.addAll(DecodeFormatManager.INDUSTRIAL_FORMATS);
-//      }
-            if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_QR, true)) {
-                decodeFormats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
-            }
-            if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_DATA_MATRIX, true)) {
-                decodeFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
-            }
-//      if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_AZTEC, false)) {
-//        decodeFormats.addAll(DecodeFormatManager.AZTEC_FORMATS);
-//      }
-//      if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_PDF417, false)) {
-//        decodeFormats.addAll(DecodeFormatManager.PDF417_FORMATS);
-//      }
-        }
-        hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
-
-        if (characterSet != null) {
-            hints.put(DecodeHintType.CHARACTER_SET, characterSet);
-        }
-        hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
     }
 
     public Handler getHandler() {
@@ -112,8 +73,10 @@ final class DecodeThread extends Thread {
     public void run() {
         Looper.prepare();
         //创建一个解码的Handler
-        handler = new DecodeHandler(activity, hints);
+        handler = new DecodeHandler(activity, pool, index, hints);
         handlerInitLatch.countDown();
+        // Ahead of any frame: the workers start while the camera is still opening
+        handler.sendEmptyMessage(R.id.warm_up);
         Looper.loop();
     }
 
@@ -0,0 +1,185 @@
+package com.zht.qrcodescanner;
+
+import android.os.Handler;
+import android.os.Message;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.ResultPointCallback;
+import com.zht.qrcodescanner.activity.CaptureActivity;
+import com.zht.qrcodescanner.config.ConfigManager;
+import com.zht.qrcodescanner.decode.DecodeHints;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * A set of {@link DecodeThread} workers which decode preview frames in parallel. Every worker
+ * owns its own {@link com.google.zxing.MultiFormatReader}, so no decoding state is shared.
+ * <p>
+ * Frames are only requested for a worker which has room for one, so the number of frames held
+ * by the decoder is bounded by {@link #getFrameCapacity()}: one per worker plus the pipeline
+ * depth. Frames beyond one per worker wait in a worker's queue while it decodes, so the camera
+ * keeps capturing during the decode instead of waiting for it. The first successful result wins:
+ * {@link #cancelInFlight()} makes the remaining workers drop their queued frames.
+ * <p>
+ * 解码线程池：多个解码线程并行解码预览帧，第一个解码成功的结果生效，其余帧被丢弃。
+ */
+final class DecodeWorkerPool {
+
+    private static final int MAX_WORKERS = 8;
+
+    private final DecodeThread[] workers;
+    /**
+     * Frames requested for or held by each worker. Only touched on the capture thread.
+     */
+    private final int[] pendingFrames;
+    private int totalPendingFrames;
+    private final int frameCapacity;
+    private volatile boolean cancelled;
+
+    DecodeWorkerPool(CaptureActivity activity,
+                     Collection<BarcodeFormat> decodeFormats,
+                     Map<DecodeHintType, ?> baseHints,
+                     String characterSet,
+                     ResultPointCallback resultPointCallback,
+                     int workerCount,
+                     int pipelineDepth) {
+        workerCount = Math.max(1, Math.min(workerCount, MAX_WORKERS));
+        workers = new DecodeThread[workerCount];
+        pendingFrames = new int[workerCount];
+        frameCapacity = workerCount + Math.max(0, pipelineDepth);
+        // The prefs can't change while the threads are running, so pick them up once here.
+        // 当线程正在运行时，配置选项无法更改，因此请在此处进行一次选择。
+        if (decodeFormats == null || decodeFormats.isEmpty()) {
+            decodeFormats = defaultDecodeFormats();
+        }
+        for (int i = 0; i < workerCount; i++) {
+            // Each worker gets its own copy, the readers may keep a reference to it.
+            Map<DecodeHintType, Object> hints =
+                    DecodeHints.build(decodeFormats, baseHints, characterSet, resultPointCallback);
+            workers[i] = new DecodeThread(activity, this, i, hints);
+        }
+    }
+
+    /**
+     * One worker per core, leaving one core for the camera and the UI.
+     */
+    static int defaultWorkerCount() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * The formats to decode when the caller did not ask for any, picked from the prefs.
+     */
+    static Collection<BarcodeFormat> defaultDecodeFormats() {
+        /**
+         * Modified by ZhangHaitao at 2019/11/8  15:32.
+         * 当前项目只需要解码 二维码，对于一维条形码不做处理。
+         */
+        Collection<BarcodeFormat> decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
+//      if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_1D_PRODUCT, true)) {
+//        decodeFormats.addAll(DecodeFormatManager.PRODUCT_FORMATS);
+//      }
+//      if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_1D_INDUSTRIAL, true)) {
+//        decodeFormats.addAll(DecodeFormatManager.INDUSTRIAL_FORMATS);
+//      }
+        if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_QR, true)) {
+            decodeFormats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
+        }
+        if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_DATA_MATRIX, true)) {
+            decodeFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+        }
+//      if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_AZTEC, false)) {
+//        decodeFormats.addAll(DecodeFormatManager.AZTEC_FORMATS);
+//      }
+//      if (ConfigManager.getBoolean(ConfigManager.KEY_DECODE_PDF417, false)) {
+//        decodeFormats.addAll(DecodeFormatManager.PDF417_FORMATS);
+//      }
+        return decodeFormats;
+    }
+
+    void start() {
+        for (DecodeThread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * @return the most frames the decoder holds at once, in flight or decoding.
+     */
+    int getFrameCapacity() {
+        return frameCapacity;
+    }
+
+    /**
+     * Picks the least loaded worker and counts a frame against it, as long as the pool is not
+     * holding {@link #getFrameCapacity()} frames already.
+     *
+     * @return the worker's handler, or {@code null} if the pool is full.
+     */
+    Handler acquireWorker() {
+        if (totalPendingFrames >= frameCapacity) {
+            return null;
+        }
+        int best = 0;
+        for (int i = 1; i < workers.length; i++) {
+            if (pendingFrames[i] < pendingFrames[best]) {
+                best = i;
+            }
+        }
+        pendingFrames[best]++;
+        totalPendingFrames++;
+        return workers[best].getHandler();
+    }
+
+    /**
+     * Called when a worker reported back on a frame, successful or not.
+     */
+    void frameDone(int index) {
+        if (index >= 0 && index < pendingFrames.length && pendingFrames[index] > 0) {
+            pendingFrames[index]--;
+            totalPendingFrames--;
+        }
+    }
+
+    /**
+     * A result was found; frames the workers still have queued are dropped without decoding.
+     */
+    void cancelInFlight() {
+        cancelled = true;
+    }
+
+    void resume() {
+        cancelled = false;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops all workers, waiting at most {@code timeoutMs} altogether.
+     */
+    void quit(long timeoutMs) {
+        cancelled = true;
+        for (DecodeThread worker : workers) {
+            Message quit = Message.obtain(worker.getHandler(), R.id.quit);
+            quit.sendToTarget();
+        }
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (DecodeThread worker : workers) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                worker.join(remaining);
+            } catch (InterruptedException e) {
+                // continue
+            }
+        }
+    }
+
+}
@@ -0,0 +1,300 @@
+package com.zht.qrcodescanner;
+
+import com.zht.qrcodescanner.decode.FrameDecoder;
+import com.zht.qrcodescanner.decode.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Where the time of the scan pipeline goes, stage by stage, from the camera delivering a frame to
+ * the result reaching the activity, plus how many frames per second arrive and how many of the
+ * decoded ones hold a code, and how long the scanner took from resuming to its first frame, first
+ * decoded frame and first result. Every stage is a lock-free {@link LatencyHistogram}, so the
+ * camera thread, the decode workers and the main thread record without waiting on each other or
+ * on a reader.
+ * <p>
+ * One registry per process, started afresh with {@link #reset()} every time the scanner resumes.
+ * Read it with {@link #getInstance()}: the histograms and rates one by one, or all of it at once
+ * with {@link #dump()}. The decode workers also log the dump every hundred frames.
+ * <p>
+ * 扫码流程各阶段的耗时与吞吐量统计：帧间隔、排队等待、亮度、二值化、识别、结果投递，以及帧率、识别成功率和启动耗时。
+ */
+public final class ScanMetrics {
+
+    public enum Stage {
+        /**
+         * Between two preview frames from the camera.
+         */
+        FRAME_INTERVAL,
+        /**
+         * A decode worker sitting idle until its next frame arrives, after a frame without a code.
+         */
+        CAPTURE_WAIT,
+        /**
+         * A frame queued for a decode worker until it is picked up. Millisecond resolution.
+         */
+        QUEUE_WAIT,
+        /**
+         * Cropping (and reducing, for the pyramid levels) the luminance out of the frame.
+         */
+        LUMINANCE,
+        /**
+         * Turning the luminance into a black and white matrix.
+         */
+        BINARIZE,
+        /**
+         * Finding and decoding the code in the readers.
+         */
+        DECODE,
+        /**
+         * A result on its way from the decode worker to the activity, including the activity
+         * handling it. Millisecond resolution.
+         */
+        DELIVERY
+    }
+
+    private static final ScanMetrics INSTANCE = new ScanMetrics();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLong framesArrived = new AtomicLong();
+    private final AtomicLong framesDecoded = new AtomicLong();
+    private final AtomicLong framesFound = new AtomicLong();
+    private final AtomicLong framesRejected = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLongArray levelHits = new AtomicLongArray(FrameDecoder.MAX_PYRAMID_LEVELS + 1);
+    private volatile long startNanos = System.nanoTime();
+    /**
+     * Only written on the camera thread.
+     */
+    private volatile long firstFrameNanos = -1L;
+    private volatile long lastFrameNanos = -1L;
+    private final AtomicLong firstDecodedNanos = new AtomicLong(-1L);
+    private final AtomicLong firstFoundNanos = new AtomicLong(-1L);
+
+    private ScanMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public static ScanMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Forgets everything recorded so far; the startup times count from now.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        framesArrived.set(0L);
+        framesDecoded.set(0L);
+        framesFound.set(0L);
+        framesRejected.set(0L);
+        cacheHits.set(0L);
+        cacheMisses.set(0L);
+        for (int i = 0; i < levelHits.length(); i++) {
+            levelHits.set(i, 0L);
+        }
+        firstFrameNanos = -1L;
+        lastFrameNanos = -1L;
+        firstDecodedNanos.set(-1L);
+        firstFoundNanos.set(-1L);
+        startNanos = System.nanoTime();
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Records a duration for a stage; negative ones, i.e. unknown, are ignored.
+     */
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * A preview frame arrived from the camera, whether or not anybody asked for it. Called on
+     * the camera thread.
+     */
+    public void recordFrameArrival(long nowNanos) {
+        long last = lastFrameNanos;
+        if (last < 0L) {
+            firstFrameNanos = nowNanos;
+        } else {
+            record(Stage.FRAME_INTERVAL, nowNanos - last);
+        }
+        lastFrameNanos = nowNanos;
+        framesArrived.incrementAndGet();
+    }
+
+    /**
+     * A frame went through the decoder.
+     *
+     * @param level the pyramid level the code was found at, see
+     *              {@link FrameDecoder#getLastLevel()}; -1 if there was none.
+     * @return the number of frames decoded so far.
+     */
+    long recordDecoded(int level) {
+        long now = System.nanoTime();
+        firstDecodedNanos.compareAndSet(-1L, now);
+        if (level >= 0) {
+            firstFoundNanos.compareAndSet(-1L, now);
+            framesFound.incrementAndGet();
+            if (level < levelHits.length()) {
+                levelHits.incrementAndGet(level);
+            }
+        }
+        return framesDecoded.incrementAndGet();
+    }
+
+    /**
+     * A frame was not decoded because it was too dark or blurred.
+     */
+    void recordRejected() {
+        framesRejected.incrementAndGet();
+    }
+
+    /**
+     * A frame was looked up in a decode worker's result cache, see
+     * {@link com.zht.qrcodescanner.decode.FrameResultCache}; on a hit it was not decoded.
+     */
+    void recordCacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).incrementAndGet();
+    }
+
+    /**
+     * @return from {@link #reset()} to the first preview frame, or -1 if there was none yet.
+     */
+    public long getTimeToFirstFrameNanos() {
+        return sinceStart(firstFrameNanos);
+    }
+
+    /**
+     * @return from {@link #reset()} to the first frame through the decoder, i.e. until scanning
+     * actually started; -1 if there was none yet.
+     */
+    public long getTimeToFirstDecodeNanos() {
+        return sinceStart(firstDecodedNanos.get());
+    }
+
+    /**
+     * @return from {@link #reset()} to the first frame in which a code was found, or -1.
+     */
+    public long getTimeToFirstResultNanos() {
+        return sinceStart(firstFoundNanos.get());
+    }
+
+    private long sinceStart(long nanos) {
+        return nanos < 0L ? -1L : nanos - startNanos;
+    }
+
+    public long getArrivedCount() {
+        return framesArrived.get();
+    }
+
+    public long getDecodedCount() {
+        return framesDecoded.get();
+    }
+
+    public long getFoundCount() {
+        return framesFound.get();
+    }
+
+    public long getRejectedCount() {
+        return framesRejected.get();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * @return how many codes were found at the given pyramid level, 0 for full resolution.
+     */
+    public long getLevelHits(int level) {
+        return levelHits.get(level);
+    }
+
+    /**
+     * @return the rate preview frames arrive at, since the first one.
+     */
+    public double getFramesPerSecond() {
+        return perSecond(framesArrived.get());
+    }
+
+    /**
+     * @return the rate frames go through the decoder at; lower than {@link #getFramesPerSecond()}
+     * when the decoder can't keep up with the camera.
+     */
+    public double getDecodedFramesPerSecond() {
+        return perSecond(framesDecoded.get());
+    }
+
+    /**
+     * @return the share of decoded frames which held a code, 0 to 1.
+     */
+    public double getSuccessRate() {
+        long decoded = framesDecoded.get();
+        return decoded == 0L ? 0.0 : (double) framesFound.get() / decoded;
+    }
+
+    private double perSecond(long count) {
+        long first = firstFrameNanos;
+        long last = lastFrameNanos;
+        if (first < 0L || last <= first) {
+            return 0.0;
+        }
+        return count * (double) TimeUnit.SECONDS.toNanos(1) / (last - first);
+    }
+
+    /**
+     * @return the startup times, one line per stage, then the counts and rates.
+     */
+    public String dump() {
+        StringBuilder dump = new StringBuilder(String.format(Locale.US,
+                "startup        first frame %.1f ms, first decode %.1f ms, first result %.1f ms\n",
+                toMillis(getTimeToFirstFrameNanos()),
+                toMillis(getTimeToFirstDecodeNanos()),
+                toMillis(getTimeToFirstResultNanos())));
+        for (Stage stage : Stage.values()) {
+            dump.append(String.format(Locale.US, "%-14s ", stage.name().toLowerCase(Locale.US)))
+                    .append(getHistogram(stage))
+                    .append('\n');
+        }
+        return dump.append(this).toString();
+    }
+
+    /**
+     * @return milliseconds, or -1 for an unknown time.
+     */
+    private static double toMillis(long nanos) {
+        return nanos < 0L ? -1.0 : TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d frames at %.1f fps, %d decoded at %.1f fps, %d rejected, "
+                        + "cache %d hits %d misses, success %.1f%%, found at full %d, 1/2 %d, 1/4 %d",
+                getArrivedCount(),
+                getFramesPerSecond(),
+                getDecodedCount(),
+                getDecodedFramesPerSecond(),
+                getRejectedCount(),
+                getCacheHitCount(),
+                getCacheMissCount(),
+                getSuccessRate() * 100.0,
+                getLevelHits(0), getLevelHits(1), getLevelHits(2));
+    }
+
+}
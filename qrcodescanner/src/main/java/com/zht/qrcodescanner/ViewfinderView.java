@@ -27,7 +27,7 @@ import android.util.AttributeSet;
 import android.view.View;
 
 import com.google.zxing.ResultPoint;
-import com.zht.qrcodescanner.camera.CameraManager;
+import com.zht.qrcodescanner.camera.ScanCamera;
 
 
 import java.util.ArrayList;
@@ -47,7 +47,7 @@ public final class ViewfinderView extends View {
     private static final int MAX_RESULT_POINTS = 20;
     private static final int POINT_SIZE = 6;
 
-    private CameraManager cameraManager;
+    private ScanCamera cameraManager;
     private final Paint paint;
     //    private Bitmap resultBitmap;
     private final int maskColor;
@@ -76,7 +76,7 @@ public final class ViewfinderView extends View {
         lastPossibleResultPoints = null;
     }
 
-    public void setCameraManager(CameraManager cameraManager) {
+    public void setCameraManager(ScanCamera cameraManager) {
         this.cameraManager = cameraManager;
     }
 
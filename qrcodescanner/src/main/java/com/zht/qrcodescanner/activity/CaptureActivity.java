@@ -7,6 +7,7 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
@@ -26,23 +27,33 @@ import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
 import com.zht.qrcodescanner.AmbientLightManager;
 import com.zht.qrcodescanner.BeepManager;
+import com.zht.qrcodescanner.BulkScanListener;
 import com.zht.qrcodescanner.CaptureHandler;
 import com.zht.qrcodescanner.FinishListener;
 import com.zht.qrcodescanner.InactivityTimer;
 import com.zht.qrcodescanner.R;
+import com.zht.qrcodescanner.ScanMetrics;
 import com.zht.qrcodescanner.ViewfinderView;
+import com.zht.qrcodescanner.camera.Camera2Manager;
 import com.zht.qrcodescanner.camera.CameraManager;
+import com.zht.qrcodescanner.camera.ScanCamera;
+import com.zht.qrcodescanner.config.ConfigManager;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class CaptureActivity extends Activity
         implements SurfaceHolder.Callback {
 
     private static final String TAG = "CaptureActivity";
     private boolean hasSurface;//是否持有Surface
-    private CameraManager cameraManager;//这里zxing是使用自己的CameraManager类
+    private ScanCamera cameraManager;//这里zxing是使用自己的CameraManager类
     private CaptureHandler handler;
+    private OpenCameraTask openCameraTask;//后台打开相机
+    private boolean cameraOpen;
+    private boolean previewStarted;
 
     //子类的视图
     private FrameLayout mContentLayout;
@@ -54,6 +65,7 @@ public class CaptureActivity extends Activity
     private InactivityTimer inactivityTimer;
     private BeepManager beepManager;
     private AmbientLightManager ambientLightManager;
+    private BulkScanListener bulkScanListener;
 
     public View mScanRange;
     public View mScanLaser;
@@ -67,7 +79,7 @@ public class CaptureActivity extends Activity
         return handler;
     }
 
-    public CameraManager getCameraManager() {
+    public ScanCamera getCameraManager() {
         return cameraManager;
     }
 
@@ -176,7 +188,16 @@ public class CaptureActivity extends Activity
     }
 
     private void onResumeHandlerCamera() {
-        cameraManager = new CameraManager(getApplication());
+        //启动耗时从这里开始统计
+        ScanMetrics.getInstance().reset();
+        //Android 5.0 及以上可以选择 Camera2
+        if (ConfigManager.getBoolean(ConfigManager.KEY_CAMERA2, false) && Camera2Manager.isSupported()) {
+            cameraManager = new Camera2Manager(getApplication());
+        } else {
+            cameraManager = new CameraManager(getApplication());
+        }
+        cameraOpen = false;
+        previewStarted = false;
         viewfinderView = (ViewfinderView) findViewById(R.id.viewfinder_view);
 
         if (mScanRange != null) {
@@ -184,14 +205,22 @@ public class CaptureActivity extends Activity
         }
 
         viewfinderView.setCameraManager(cameraManager);
+        //在后台打开相机，同时等待 surface 创建
+        openCameraTask = new OpenCameraTask(cameraManager);
+        openCameraTask.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
         startAnim();
-        handler = null;
         resetStatusView();
         beepManager.updatePrefs();
         ambientLightManager.start(cameraManager);
         inactivityTimer.onResume();
         decodeFormats = null;
         characterSet = null;
+        //解码线程在相机打开期间启动并预热
+        handler = new CaptureHandler(this,
+                decodeFormats,
+                null,
+                characterSet,
+                cameraManager);
 
         SurfaceView surfaceView = (SurfaceView) findViewById(R.id.preview_view);
         SurfaceHolder surfaceHolder = surfaceView.getHolder();
@@ -255,6 +284,14 @@ public class CaptureActivity extends Activity
 
     @Override
     protected void onPause() {
+        if (openCameraTask != null) {
+            // If the camera is opening right now, closeDriver() below waits for it (Camera2: gives
+            // up on it, and it is closed as soon as it opens)
+            openCameraTask.cancel(false);
+            openCameraTask = null;
+        }
+        cameraOpen = false;
+        previewStarted = false;
         if (handler != null) {
             handler.quitSynchronously();
             handler = null;
@@ -285,7 +322,7 @@ public class CaptureActivity extends Activity
     }
 
     /**
-     * 初始化相机
+     * 初始化相机：相机打开且 surface 创建后开始预览和解码，两者谁后完成谁调用
      *
      * @param surfaceHolder
      */
@@ -293,25 +330,19 @@ public class CaptureActivity extends Activity
         if (surfaceHolder == null) {
             throw new IllegalStateException("No SurfaceHolder provided");
         }
-
-        if (surfaceHolder == null) {
-            throw new IllegalStateException("No SurfaceHolder provided");
+        if (!cameraOpen || handler == null) {
+            // The camera is still opening, this is called again when it is done
+            return;
         }
-        if (cameraManager.isOpen()) {
+        if (previewStarted) {
             Log.w(TAG, "initCamera() while already open -- late SurfaceView callback?");
             return;
         }
         try {
-            cameraManager.openDriver(surfaceHolder);
-
-            // Creating the handler starts the preview, which can also throw a RuntimeException.
-            if (handler == null) {
-                handler = new CaptureHandler(this,
-                        decodeFormats,
-                        null,
-                        characterSet,
-                        cameraManager);
-            }
+            cameraManager.setPreviewDisplay(surfaceHolder);
+            // Starting the preview can also throw a RuntimeException.
+            handler.startPreviewAndDecode();
+            previewStarted = true;
         } catch (IOException ioe) {
             Log.w(TAG, ioe);
             displayFrameworkBugMessageAndExit();
@@ -321,6 +352,48 @@ public class CaptureActivity extends Activity
         }
     }
 
+    /**
+     * Opens the camera off the main thread, so that it opens while the surface is created and the
+     * decode workers warm up, rather than one after the other.
+     */
+    private final class OpenCameraTask extends AsyncTask<Void, Void, Exception> {
+
+        private final ScanCamera manager;
+
+        OpenCameraTask(ScanCamera manager) {
+            this.manager = manager;
+        }
+
+        @Override
+        protected Exception doInBackground(Void... params) {
+            try {
+                manager.openCamera();
+            } catch (IOException | RuntimeException e) {
+                return e;
+            }
+            if (isCancelled()) {
+                // Paused while the camera was opening
+                manager.closeDriver();
+            }
+            return null;
+        }
+
+        @Override
+        protected void onPostExecute(Exception e) {
+            openCameraTask = null;
+            if (e != null) {
+                Log.w(TAG, "Unexpected error initializing camera", e);
+                displayFrameworkBugMessageAndExit();
+                return;
+            }
+            cameraOpen = true;
+            if (hasSurface) {
+                SurfaceView surfaceView = (SurfaceView) findViewById(R.id.preview_view);
+                initCamera(surfaceView.getHolder());
+            }
+        }
+    }
+
     private void displayFrameworkBugMessageAndExit() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle(getString(R.string.app_name));
@@ -366,7 +439,9 @@ public class CaptureActivity extends Activity
      *
      * @param rawResult   The contents of the barcode.
      * @param scaleFactor amount by which thumbnail was scaled
-     * @param barcode     A greyscale bitmap of the camera data which was decoded.
+     * @param barcode     Always {@code null}; the thumbnail, if enabled with
+     *                    {@link ConfigManager#KEY_RESULT_THUMBNAIL}, arrives later through
+     *                    {@link #handleDecodeThumbnail(Result, Bitmap, float)}.
      */
     public void handleDecode(Result rawResult, Bitmap barcode, float scaleFactor) {
         inactivityTimer.onActivity();
@@ -390,6 +465,74 @@ public class CaptureActivity extends Activity
 
     }
 
+    /**
+     * 多码识别的结果，需要开启 {@link ConfigManager#KEY_MULTI_DECODE}。
+     * All the barcodes found in one frame, each code once, in the order they were found.
+     *
+     * @param rawResults The barcodes, at least one.
+     */
+    public void handleDecodeMultiple(Result[] rawResults) {
+        inactivityTimer.onActivity();
+        lastResult = rawResults[0];
+
+        List<String> texts = new ArrayList<>(rawResults.length);
+        for (Result rawResult : rawResults) {
+            if (!TextUtils.isEmpty(rawResult.getText())) {
+                texts.add(rawResult.getText());
+            }
+        }
+        if (texts.isEmpty()) {
+            //没有可用的结果：继续扫描
+            restartPreviewAfterDelay(0L);
+            return;
+        }
+        if (mLaserAnimator != null) {
+            mLaserAnimator.cancel();
+        }
+        //播放声音
+        beepManager.playBeepSoundAndVibrate();
+        //获取到结果
+        handlerResults(texts);
+    }
+
+    public void handlerResults(List<String> resultTexts) {
+
+    }
+
+    /**
+     * 批量扫描的结果，需要开启 {@link ConfigManager#KEY_BULK_MODE}。
+     * Called for every new code while scanning goes on, repeats within
+     * {@link ConfigManager#KEY_BULK_DUPLICATE_WINDOW_MS} are left out unless
+     * {@link ConfigManager#KEY_REMEMBER_DUPLICATES} is set.
+     *
+     * @param rawResult The contents of the barcode.
+     */
+    public void handleBulkDecode(Result rawResult) {
+        inactivityTimer.onActivity();
+        lastResult = rawResult;
+        //播放声音
+        beepManager.playBeepSoundAndVibrate();
+        if (bulkScanListener != null) {
+            bulkScanListener.onBulkScanResult(rawResult);
+        }
+    }
+
+    public void setBulkScanListener(BulkScanListener listener) {
+        this.bulkScanListener = listener;
+    }
+
+    /**
+     * 扫描结果的缩略图，需要开启 {@link ConfigManager#KEY_RESULT_THUMBNAIL}。
+     * Called on the main thread some time after {@link #handleDecode(Result, Bitmap, float)}.
+     *
+     * @param rawResult   The result the thumbnail belongs to.
+     * @param barcode     A greyscale bitmap of the camera data which was decoded.
+     * @param scaleFactor amount by which thumbnail was scaled
+     */
+    public void handleDecodeThumbnail(Result rawResult, Bitmap barcode, float scaleFactor) {
+
+    }
+
     /*public void drawViewfinder() {
         viewfinderView.drawViewfinder();
     }*/
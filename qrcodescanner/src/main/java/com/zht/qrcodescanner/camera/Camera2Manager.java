@@ -0,0 +1,767 @@
+package com.zht.qrcodescanner.camera;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraMetadata;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.util.Log;
+import android.util.Size;
+import android.view.Display;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+import android.view.WindowManager;
+
+import com.zht.qrcodescanner.ScanMetrics;
+import com.zht.qrcodescanner.config.ConfigManager;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Camera2 backend: preview frames come from an {@link ImageReader} in YUV_420_888, and the
+ * decoder gets the Y plane of the image as it is, see {@link CameraFrame}, instead of a copy of the
+ * whole frame in a {@code byte[]}. The reader keeps a small ring of images, as many as
+ * {@link #setPreviewBufferCount(int)} asks for; an image held by the decoder is not written to,
+ * and goes back to the ring with {@link #releasePreviewFrame(Object)}. Frames nobody asked for
+ * are dropped at once.
+ * <p>
+ * The camera runs on a thread of its own. {@link #openCamera()} blocks until the camera is open,
+ * like the legacy {@link CameraManager} does, so call it off the main thread; it does not hold the
+ * lock of this object while it waits, so {@link #closeDriver()} can give up on a camera which is
+ * still opening.
+ * <p>
+ * Camera2 相机：通过 ImageReader 获取 YUV_420_888 预览帧，Y 平面直接交给解码器，不复制整帧。
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public final class Camera2Manager extends ScanCamera {
+
+    private static final String TAG = Camera2Manager.class.getSimpleName();
+
+    private static final long OPEN_TIMEOUT_MS = 2500L;
+    private static final int MAX_CONFIGURE_RETRIES = 3;
+    private static final long CONFIGURE_RETRY_DELAY_MS = 100L;
+    private static final int MIN_PREVIEW_PIXELS = 480 * 320; // normal screen
+    private static final int MAX_PREVIEW_PIXELS = 1920 * 1080;
+    private static final double MAX_ASPECT_DISTORTION = 0.15;
+    private static final int ZOOM_STEPS = 10;
+
+    private final Context context;
+    private final android.hardware.camera2.CameraManager cameraService;
+    private HandlerThread cameraThread;
+    private Handler cameraHandler;
+    private CameraDevice camera;
+    private CameraCaptureSession session;
+    private ImageReader imageReader;
+    private Surface previewSurface;
+    private Point screenResolution;
+    private Point cameraResolution;
+    private Rect activeArray;
+    private int frameRotation;
+    private float maxDigitalZoom = 1.0f;
+    private boolean continuousFocus;
+    private boolean flashAvailable;
+    private boolean torch;
+    private int zoomStep;
+    private boolean previewing;
+    /**
+     * {@link #startPreview()} was called and the capture session is not configured yet.
+     */
+    private boolean starting;
+    private int configureRetries;
+    private int bufferCount = 2;
+    private int requestedCameraId = -1;
+    /**
+     * Images the decoder holds. The reader is only closed once they all came back, its images
+     * are freed with it.
+     */
+    private final Set<CameraFrame> heldFrames = new HashSet<>();
+    private ImageReader closingReader;
+    /**
+     * Frames which were asked for, in order. Each image answers the oldest request.
+     */
+    private final Queue<Message> pendingRequests = new ArrayDeque<>();
+    /**
+     * The camera being opened, while {@link #openCamera()} waits for it.
+     */
+    private OpenCallback openCallback;
+    /**
+     * The camera asked for last. It may still answer after {@link #openCamera()} gave up on it,
+     * so {@link #closeDriver()} leaves the camera thread to it until then.
+     */
+    private OpenCallback lastOpen;
+
+    public Camera2Manager(Context context) {
+        this.context = context;
+        cameraService = (android.hardware.camera2.CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+    }
+
+    /**
+     * @return whether this device can run the Camera2 backend, i.e. at least Android 5.0.
+     */
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+    }
+
+    /**
+     * Waits for the camera without holding the lock of this object, so that the camera callbacks
+     * and {@link #closeDriver()} are not held up. A second caller waits for the same camera.
+     */
+    @Override
+    public void openCamera() throws IOException {
+        OpenCallback callback;
+        synchronized (this) {
+            if (camera != null) {
+                return;
+            }
+            callback = openCallback;
+            if (callback == null) {
+                try {
+                    String cameraId = selectCamera();
+                    if (cameraId == null) {
+                        throw new IOException("No camera found");
+                    }
+                    initFromCharacteristics(cameraService.getCameraCharacteristics(cameraId));
+                    if (cameraThread == null) {
+                        cameraThread = new HandlerThread("Camera2");
+                        cameraThread.start();
+                        cameraHandler = new Handler(cameraThread.getLooper());
+                    }
+                    callback = new OpenCallback();
+                    cameraService.openCamera(cameraId, callback, cameraHandler);
+                    lastOpen = callback;
+                } catch (CameraAccessException | SecurityException e) {
+                    throw new IOException("Could not open camera", e);
+                }
+                openCallback = callback;
+            }
+        }
+        CameraDevice device;
+        try {
+            device = callback.await(OPEN_TIMEOUT_MS);
+        } catch (IOException ioe) {
+            synchronized (this) {
+                if (openCallback == callback) {
+                    openCallback = null;
+                }
+            }
+            throw ioe;
+        }
+        synchronized (this) {
+            if (openCallback == callback) {
+                openCallback = null;
+                camera = device;
+                applyRequestedFramingRect();
+            } else if (camera != device) {
+                // closeDriver() gave up on it meanwhile, and closed it
+                throw new IOException("Camera closed while opening");
+            }
+        }
+    }
+
+    private String selectCamera() throws CameraAccessException {
+        String[] cameraIds = cameraService.getCameraIdList();
+        if (cameraIds.length == 0) {
+            return null;
+        }
+        if (requestedCameraId >= 0) {
+            return requestedCameraId < cameraIds.length ? cameraIds[requestedCameraId] : null;
+        }
+        //默认使用后置摄像头
+        for (String cameraId : cameraIds) {
+            Integer facing = cameraService.getCameraCharacteristics(cameraId)
+                    .get(CameraCharacteristics.LENS_FACING);
+            if (facing != null && facing == CameraMetadata.LENS_FACING_BACK) {
+                return cameraId;
+            }
+        }
+        return cameraIds[0];
+    }
+
+    private void initFromCharacteristics(CameraCharacteristics characteristics) throws IOException {
+        WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        Display display = manager.getDefaultDisplay();
+        Point theScreenResolution = new Point();
+        display.getSize(theScreenResolution);
+        screenResolution = theScreenResolution;
+        Log.i(TAG, "Screen resolution in current orientation: " + screenResolution);
+
+        StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        if (map == null) {
+            throw new IOException("Camera has no stream configurations");
+        }
+        cameraResolution = findBestPreviewSize(map.getOutputSizes(ImageFormat.YUV_420_888), screenResolution);
+        Log.i(TAG, "Preview size: " + cameraResolution);
+
+        int[] afModes = characteristics.get(CameraCharacteristics.CONTROL_AF_AVAILABLE_MODES);
+        continuousFocus = afModes != null
+                && ConfigManager.getBoolean(ConfigManager.KEY_AUTO_FOCUS, true)
+                && !ConfigManager.getBoolean(ConfigManager.KEY_DISABLE_CONTINUOUS_FOCUS, false)
+                && contains(afModes, CameraMetadata.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+        Boolean flash = characteristics.get(CameraCharacteristics.FLASH_INFO_AVAILABLE);
+        flashAvailable = flash != null && flash;
+        Float maxZoom = characteristics.get(CameraCharacteristics.SCALER_AVAILABLE_MAX_DIGITAL_ZOOM);
+        maxDigitalZoom = maxZoom == null ? 1.0f : maxZoom;
+        activeArray = characteristics.get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
+        zoomStep = 0;
+
+        //预览帧相对屏幕的旋转角度，与 CameraConfigurationManager 相同
+        Integer sensorOrientation = characteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+        Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
+        int displayDegrees = display.getRotation() * 90;
+        int cwRotationFromNaturalToCamera = sensorOrientation == null ? 90 : sensorOrientation;
+        if (facing != null && facing == CameraMetadata.LENS_FACING_FRONT) {
+            cwRotationFromNaturalToCamera = (360 - cwRotationFromNaturalToCamera) % 360;
+        }
+        int cwRotationFromDisplayToCamera = (360 + cwRotationFromNaturalToCamera - displayDegrees) % 360;
+        frameRotation = facing != null && facing == CameraMetadata.LENS_FACING_FRONT
+                ? (360 - cwRotationFromDisplayToCamera) % 360 : cwRotationFromDisplayToCamera;
+        Log.i(TAG, "Clockwise rotation from display to camera: " + frameRotation);
+    }
+
+    /**
+     * Like {@link com.zht.qrcodescanner.config.CameraConfigurationUtils#findBestPreviewSizeValue}:
+     * the size of the screen if there is one, otherwise the largest one with about the screen's
+     * aspect ratio. Limited to 1080p, which every device can stream next to the preview.
+     */
+    private static Point findBestPreviewSize(Size[] sizes, Point screenResolution) throws IOException {
+        if (sizes == null || sizes.length == 0) {
+            throw new IOException("Camera has no YUV_420_888 output sizes");
+        }
+        int screenLong = Math.max(screenResolution.x, screenResolution.y);
+        int screenShort = Math.min(screenResolution.x, screenResolution.y);
+        double screenAspectRatio = screenLong / (double) screenShort;
+        Size best = null;
+        Size smallest = sizes[0];
+        for (Size size : sizes) {
+            int pixels = size.getWidth() * size.getHeight();
+            if (pixels < smallest.getWidth() * smallest.getHeight()) {
+                smallest = size;
+            }
+            if (pixels < MIN_PREVIEW_PIXELS || pixels > MAX_PREVIEW_PIXELS) {
+                continue;
+            }
+            int sizeLong = Math.max(size.getWidth(), size.getHeight());
+            int sizeShort = Math.min(size.getWidth(), size.getHeight());
+            if (Math.abs(sizeLong / (double) sizeShort - screenAspectRatio) > MAX_ASPECT_DISTORTION) {
+                continue;
+            }
+            if (sizeLong == screenLong && sizeShort == screenShort) {
+                best = size;
+                break;
+            }
+            if (best == null || pixels > best.getWidth() * best.getHeight()) {
+                best = size;
+            }
+        }
+        if (best == null) {
+            Log.i(TAG, "No suitable preview sizes, using smallest: " + smallest);
+            best = smallest;
+        }
+        return new Point(best.getWidth(), best.getHeight());
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void onCameraLost(CameraDevice device) {
+        if (camera == device) {
+            camera = null;
+            session = null;
+            previewing = false;
+            starting = false;
+        }
+    }
+
+    /**
+     * Hands the outcome of opening the camera to {@link #openCamera()}. The latch is counted down
+     * before anything else is done, so that an error is reported at once rather than as a time
+     * out; a camera which opens after the opener gave up on it is closed.
+     */
+    private final class OpenCallback extends CameraDevice.StateCallback {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private CameraDevice device;
+        private String failure;
+        private boolean abandoned;
+        private boolean closed;
+        private boolean resolved;
+        private HandlerThread thread;
+
+        @Override
+        public void onOpened(CameraDevice opened) {
+            boolean keep;
+            HandlerThread handedOver;
+            synchronized (this) {
+                resolved = true;
+                handedOver = thread;
+                keep = !abandoned;
+                if (keep) {
+                    device = opened;
+                }
+            }
+            done.countDown();
+            if (!keep) {
+                Log.w(TAG, "Camera opened after it was given up, closing it");
+                opened.close();
+            }
+            if (handedOver != null) {
+                handedOver.quitSafely();
+            }
+        }
+
+        @Override
+        public void onDisconnected(CameraDevice lost) {
+            fail(lost, "Camera disconnected");
+        }
+
+        @Override
+        public void onError(CameraDevice lost, int error) {
+            fail(lost, "Camera error " + error);
+        }
+
+        private void fail(CameraDevice lost, String reason) {
+            HandlerThread handedOver;
+            synchronized (this) {
+                resolved = true;
+                handedOver = thread;
+                if (failure == null) {
+                    failure = reason;
+                }
+            }
+            done.countDown();
+            Log.w(TAG, reason);
+            lost.close();
+            onCameraLost(lost);
+            if (handedOver != null) {
+                handedOver.quitSafely();
+            }
+        }
+
+        /**
+         * @return the open camera.
+         * @throws IOException with the reason it did not open in time.
+         */
+        CameraDevice await(long timeoutMs) throws IOException {
+            boolean finished;
+            try {
+                finished = done.await(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                abandon();
+                throw new IOException("Interrupted opening the camera");
+            }
+            synchronized (this) {
+                if (device != null && failure == null && !abandoned) {
+                    return device;
+                }
+                // From now on a camera which opens is closed right away
+                abandoned = true;
+                if (failure != null) {
+                    throw new IOException(failure);
+                }
+                if (closed) {
+                    throw new IOException("Camera closed while opening");
+                }
+                throw new IOException(finished ? "Camera failed to open" : "Timed out opening the camera");
+            }
+        }
+
+        /**
+         * Gives up on the camera: closes it if it is open already, or as soon as it opens, and
+         * wakes up {@link #await}.
+         */
+        void abandon() {
+            CameraDevice opened;
+            synchronized (this) {
+                abandoned = true;
+                closed = true;
+                opened = device;
+                device = null;
+            }
+            done.countDown();
+            if (opened != null) {
+                opened.close();
+            }
+        }
+
+        /**
+         * Leaves the camera thread to this callback if the camera has not answered yet: the
+         * answer is delivered on that thread, and a camera which opens late must still be closed.
+         *
+         * @return whether this callback quits the thread once the camera answered; if not, the
+         * caller quits it.
+         */
+        synchronized boolean handOver(HandlerThread cameraThread) {
+            if (resolved) {
+                return false;
+            }
+            thread = cameraThread;
+            return true;
+        }
+
+    }
+
+    /**
+     * Also sets the surface's buffers to the preview size; Camera2 only streams to a surface of
+     * one of its output sizes.
+     */
+    @Override
+    public synchronized void setPreviewDisplay(SurfaceHolder holder) throws IOException {
+        if (camera == null) {
+            throw new IOException("Camera is not open");
+        }
+        holder.setFixedSize(cameraResolution.x, cameraResolution.y);
+        previewSurface = holder.getSurface();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return camera != null;
+    }
+
+    @Override
+    public synchronized void closeDriver() {
+        //解码线程仍持有的帧由 releasePreviewFrame() 归还，最后一帧归还后再关闭 ImageReader
+        stopPreview();
+        if (openCallback != null) {
+            //相机仍在打开中：放弃，打开后立即关闭
+            openCallback.abandon();
+            openCallback = null;
+        }
+        if (camera != null) {
+            camera.close();
+            camera = null;
+            resetFramingRect();
+        }
+        previewSurface = null;
+        if (cameraThread != null) {
+            //相机尚未回调打开结果时，线程交给回调，回调到达后退出，否则晚打开的相机无法关闭
+            if (lastOpen == null || !lastOpen.handOver(cameraThread)) {
+                cameraThread.quitSafely();
+            }
+            cameraThread = null;
+            cameraHandler = null;
+        }
+        lastOpen = null;
+    }
+
+    /**
+     * Starting the preview completes once the capture session is configured. If that fails, e.g.
+     * as the surface does not have the preview size yet, it is tried again a few times, and then
+     * the camera is given up like a lost one.
+     */
+    @Override
+    public synchronized void startPreview() {
+        if (camera == null || previewSurface == null || previewing || starting) {
+            return;
+        }
+        starting = true;
+        configureRetries = 0;
+        createSession();
+    }
+
+    private void createSession() {
+        final ImageReader reader = ImageReader.newInstance(cameraResolution.x, cameraResolution.y,
+                ImageFormat.YUV_420_888, bufferCount);
+        reader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
+            @Override
+            public void onImageAvailable(ImageReader reader) {
+                onFrame(reader);
+            }
+        }, cameraHandler);
+        imageReader = reader;
+        try {
+            camera.createCaptureSession(Arrays.asList(previewSurface, reader.getSurface()),
+                    new CameraCaptureSession.StateCallback() {
+                        @Override
+                        public void onConfigured(CameraCaptureSession configured) {
+                            onSessionConfigured(reader, configured);
+                        }
+
+                        @Override
+                        public void onConfigureFailed(CameraCaptureSession failed) {
+                            onSessionFailed(reader);
+                        }
+                    }, cameraHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.w(TAG, "Could not start preview", e);
+            starting = false;
+            closeReader();
+        }
+    }
+
+    private synchronized void onSessionConfigured(ImageReader reader, CameraCaptureSession configured) {
+        if (!starting || reader != imageReader || camera == null) {
+            // Stopped meanwhile
+            configured.close();
+            return;
+        }
+        starting = false;
+        previewing = true;
+        session = configured;
+        updateRepeatingRequest();
+    }
+
+    private synchronized void onSessionFailed(ImageReader reader) {
+        if (!starting || reader != imageReader || camera == null) {
+            return;
+        }
+        closeReader();
+        if (configureRetries < MAX_CONFIGURE_RETRIES) {
+            configureRetries++;
+            Log.w(TAG, "Could not configure capture session, retry " + configureRetries);
+            cameraHandler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    retrySession();
+                }
+            }, CONFIGURE_RETRY_DELAY_MS);
+            return;
+        }
+        Log.e(TAG, "Could not configure capture session, giving up the camera");
+        CameraDevice lost = camera;
+        lost.close();
+        onCameraLost(lost);
+        dropPendingRequests();
+    }
+
+    private synchronized void retrySession() {
+        //期间若已停止或重新开始预览则不再重试
+        if (starting && imageReader == null && camera != null && previewSurface != null) {
+            createSession();
+        }
+    }
+
+    /**
+     * (Re)starts streaming with the current focus, torch and zoom.
+     */
+    private void updateRepeatingRequest() {
+        if (session == null) {
+            return;
+        }
+        try {
+            CaptureRequest.Builder builder = camera.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+            builder.addTarget(previewSurface);
+            builder.addTarget(imageReader.getSurface());
+            if (continuousFocus) {
+                builder.set(CaptureRequest.CONTROL_AF_MODE, CameraMetadata.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+            }
+            if (flashAvailable) {
+                builder.set(CaptureRequest.FLASH_MODE,
+                        torch ? CameraMetadata.FLASH_MODE_TORCH : CameraMetadata.FLASH_MODE_OFF);
+            }
+            if (zoomStep > 0 && activeArray != null) {
+                builder.set(CaptureRequest.SCALER_CROP_REGION, zoomRegion());
+            }
+            session.setRepeatingRequest(builder.build(), null, cameraHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.w(TAG, "Could not update the preview", e);
+        }
+    }
+
+    private Rect zoomRegion() {
+        float zoom = 1.0f + (maxDigitalZoom - 1.0f) * zoomStep / ZOOM_STEPS;
+        int width = (int) (activeArray.width() / zoom);
+        int height = (int) (activeArray.height() / zoom);
+        int left = activeArray.left + (activeArray.width() - width) / 2;
+        int top = activeArray.top + (activeArray.height() - height) / 2;
+        return new Rect(left, top, left + width, top + height);
+    }
+
+    @Override
+    public synchronized void stopPreview() {
+        if (!previewing && !starting) {
+            return;
+        }
+        previewing = false;
+        starting = false;
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+        dropPendingRequests();
+        closeReader();
+    }
+
+    private void dropPendingRequests() {
+        Message message;
+        while ((message = pendingRequests.poll()) != null) {
+            message.recycle();
+        }
+    }
+
+    /**
+     * Closes the reader now if the decoder holds none of its images, otherwise once the last one
+     * comes back: closing it frees the buffers of its images, which may still be read.
+     */
+    private void closeReader() {
+        if (imageReader == null) {
+            return;
+        }
+        if (heldFrames.isEmpty()) {
+            imageReader.close();
+        } else {
+            closingReader = imageReader;
+        }
+        imageReader = null;
+    }
+
+    /**
+     * Called on the camera thread for every image. Answers the oldest request, or drops the image
+     * right away if there is none.
+     */
+    private void onFrame(ImageReader reader) {
+        Image image;
+        try {
+            image = reader.acquireNextImage();
+        } catch (IllegalStateException ise) {
+            // The decoder holds all images, this one is skipped
+            return;
+        }
+        if (image == null) {
+            return;
+        }
+        //统计相机出帧间隔
+        ScanMetrics.getInstance().recordFrameArrival(System.nanoTime());
+        final Image held = image;
+        Image.Plane yPlane = image.getPlanes()[0];
+        CameraFrame frame = new CameraFrame(yPlane.getBuffer(), yPlane.getRowStride(), yPlane.getPixelStride(),
+                image.getWidth(), image.getHeight()) {
+            @Override
+            void close() {
+                held.close();
+            }
+        };
+        Message message;
+        synchronized (this) {
+            message = reader == imageReader ? pendingRequests.poll() : null;
+            if (message != null) {
+                heldFrames.add(frame);
+            }
+        }
+        if (message == null) {
+            image.close();
+            return;
+        }
+        message.arg1 = image.getWidth();
+        message.arg2 = image.getHeight();
+        message.obj = frame;
+        if (!message.getTarget().sendMessage(message)) {
+            //解码线程已退出，消息不会被处理：立即归还图像
+            releasePreviewFrame(frame);
+        }
+    }
+
+    /**
+     * The frame arrives as a {@link CameraFrame}.
+     */
+    @Override
+    public synchronized void requestPreviewFrame(Handler handler, int message) {
+        if (camera != null && (previewing || starting)) {
+            pendingRequests.add(handler.obtainMessage(message));
+        }
+    }
+
+    @Override
+    public void releasePreviewFrame(Object frame) {
+        if (!(frame instanceof CameraFrame)) {
+            return;
+        }
+        CameraFrame cameraFrame = (CameraFrame) frame;
+        synchronized (this) {
+            if (!heldFrames.remove(cameraFrame)) {
+                return;
+            }
+            cameraFrame.close();
+            if (heldFrames.isEmpty() && closingReader != null) {
+                closingReader.close();
+                closingReader = null;
+            }
+        }
+    }
+
+    /**
+     * The number of images in the {@link ImageReader}.
+     */
+    @Override
+    public synchronized void setPreviewBufferCount(int count) {
+        bufferCount = Math.max(2, count);
+    }
+
+    /**
+     * @param cameraId index into the camera id list. A negative value means "no preference".
+     */
+    @Override
+    public synchronized void setManualCameraId(int cameraId) {
+        requestedCameraId = cameraId;
+    }
+
+    @Override
+    public synchronized void setTorch(boolean newSetting) {
+        if (torch != newSetting) {
+            torch = newSetting;
+            updateRepeatingRequest();
+        }
+    }
+
+    /**
+     * 处理手势放大/缩小功能，在最大数字变焦内分 {@value #ZOOM_STEPS} 级
+     */
+    @Override
+    public synchronized void handleZoom(boolean isZoomIn) {
+        if (maxDigitalZoom <= 1.0f) {
+            Log.i(TAG, "zoom not supported");
+            return;
+        }
+        if (isZoomIn && zoomStep < ZOOM_STEPS) {
+            zoomStep++;
+        } else if (!isZoomIn && zoomStep > 0) {
+            zoomStep--;
+        } else {
+            return;
+        }
+        updateRepeatingRequest();
+    }
+
+    @Override
+    public synchronized int getFrameRotation() {
+        return frameRotation;
+    }
+
+    @Override
+    protected synchronized Point getScreenResolution() {
+        return screenResolution;
+    }
+
+    @Override
+    protected synchronized Point getCameraResolution() {
+        return cameraResolution;
+    }
+
+}
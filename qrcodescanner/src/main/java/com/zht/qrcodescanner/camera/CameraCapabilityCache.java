@@ -0,0 +1,236 @@
+package com.zht.qrcodescanner.camera;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What negotiating the parameters of a camera came up with: the preview size, the focus mode and
+ * the zoom range. Picking them means parsing the flattened {@link android.hardware.Camera.Parameters}
+ * and sorting every supported size, each time the camera opens; with this cache that is done once
+ * per device, camera and screen size, and later opens set the remembered values directly.
+ * <p>
+ * Entries are keyed by device model, API level, camera id and screen size, and kept in a small
+ * binary file in app storage. An entry read from the file is only trusted after the camera took it
+ * once in this process, see {@link Entry#isConfirmed()}; one the camera rejects is dropped.
+ * <p>
+ * 相机能力缓存：协商好的预览尺寸、对焦模式和缩放范围保存到应用存储中，之后打开相机时直接使用，跳过参数解析。
+ */
+final class CameraCapabilityCache {
+
+    private static final String TAG = CameraCapabilityCache.class.getSimpleName();
+
+    private static final String FILE_NAME = "camera_capabilities.bin";
+    private static final int MAGIC = 0x51524343; // "QRCC"
+    private static final int VERSION = 1;
+    static final int MAX_ENTRIES = 16;
+
+    private static CameraCapabilityCache instance;
+
+    private final File file;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * An empty cache, written to {@code file}; {@link #load()} reads what is in it.
+     */
+    CameraCapabilityCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the cache of this process, read from app storage on first use. Does file I/O the
+     * first time, call it where the camera is opened.
+     */
+    static synchronized CameraCapabilityCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new CameraCapabilityCache(new File(context.getFilesDir(), FILE_NAME));
+            instance.load();
+        }
+        return instance;
+    }
+
+    static String keyOf(int cameraId, Point screenResolution) {
+        return Build.MANUFACTURER + '/' + Build.MODEL + '/' + Build.VERSION.SDK_INT + '/'
+                + cameraId + '/' + screenResolution.x + 'x' + screenResolution.y;
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Remembers an entry the camera took, and writes the cache out.
+     */
+    synchronized void put(String key, Entry entry) {
+        entry.confirmed = true;
+        entries.remove(key);
+        entries.put(key, entry);
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES) {
+            eldest.next();
+            eldest.remove();
+        }
+        save();
+    }
+
+    /**
+     * Forgets an entry the camera rejected.
+     */
+    synchronized void remove(String key) {
+        if (entries.remove(key) != null) {
+            Log.w(TAG, "Dropping cached capabilities of " + key);
+            save();
+        }
+    }
+
+    void load() {
+        if (!file.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Log.i(TAG, "Ignoring camera capabilities of another version");
+                return;
+            }
+            int count = in.readUnsignedByte();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                entries.put(key, Entry.read(in));
+            }
+            Log.i(TAG, "Read cached capabilities of " + count + " cameras");
+        } catch (IOException ioe) {
+            Log.w(TAG, "Could not read camera capabilities", ioe);
+            entries.clear();
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Writes to a temporary file first, so that a crash halfway leaves the old file in place.
+     */
+    private void save() {
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                Log.w(TAG, "Could not replace " + file);
+            }
+        } catch (IOException ioe) {
+            Log.w(TAG, "Could not write camera capabilities", ioe);
+        } finally {
+            close(out);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ioe) {
+                // continue
+            }
+        }
+    }
+
+    /**
+     * The negotiated parameters of one camera.
+     */
+    static final class Entry {
+
+        private final int previewWidth;
+        private final int previewHeight;
+        private final int focusSettings;
+        private final String focusMode;
+        private final int maxZoom;
+        private boolean confirmed;
+
+        /**
+         * @param focusSettings the settings the focus mode was picked for, see
+         *                      {@link #getFocusSettings()}.
+         * @param focusMode     the focus mode, or {@code null} if none of the wanted ones is
+         *                      supported.
+         * @param maxZoom       the highest zoom step, 0 if zoom is not supported.
+         */
+        Entry(int previewWidth, int previewHeight, int focusSettings, String focusMode, int maxZoom) {
+            this.previewWidth = previewWidth;
+            this.previewHeight = previewHeight;
+            this.focusSettings = focusSettings;
+            this.focusMode = focusMode;
+            this.maxZoom = maxZoom;
+        }
+
+        Point getPreviewSize() {
+            return new Point(previewWidth, previewHeight);
+        }
+
+        /**
+         * @return the auto focus prefs {@link #getFocusMode()} was picked for, as bits; also if
+         * none of the wanted modes was supported.
+         */
+        int getFocusSettings() {
+            return focusSettings;
+        }
+
+        String getFocusMode() {
+            return focusMode;
+        }
+
+        int getMaxZoom() {
+            return maxZoom;
+        }
+
+        /**
+         * @return whether the camera took these values in this process; not if they were only
+         * read from the file so far.
+         */
+        boolean isConfirmed() {
+            return confirmed;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeShort(previewWidth);
+            out.writeShort(previewHeight);
+            out.writeByte(focusSettings);
+            out.writeUTF(focusMode == null ? "" : focusMode);
+            out.writeShort(maxZoom);
+        }
+
+        private static Entry read(DataInputStream in) throws IOException {
+            int previewWidth = in.readUnsignedShort();
+            int previewHeight = in.readUnsignedShort();
+            int focusSettings = in.readByte();
+            String focusMode = in.readUTF();
+            int maxZoom = in.readUnsignedShort();
+            return new Entry(previewWidth, previewHeight, focusSettings,
+                    focusMode.isEmpty() ? null : focusMode, maxZoom);
+        }
+    }
+
+}
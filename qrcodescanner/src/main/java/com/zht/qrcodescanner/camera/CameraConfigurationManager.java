@@ -29,7 +29,6 @@ import com.zht.qrcodescanner.camera.open.OpenCamera;
 import com.zht.qrcodescanner.config.CameraConfigurationUtils;
 import com.zht.qrcodescanner.config.ConfigManager;
 
-
 /**
  * A class which deals with reading, parsing, and setting the camera parameters which are used to
  * configure the camera hardware.
@@ -39,6 +38,10 @@ final class CameraConfigurationManager {
 
     private static final String TAG = "CameraConfiguration";
 
+    // Bits of CameraCapabilityCache.Entry.getFocusSettings()
+    private static final int FOCUS_AUTO = 1;
+    private static final int FOCUS_DISABLE_CONTINUOUS = 2;
+
     private final Context context;
     private int cwNeededRotation;
     private int cwRotationFromDisplayToCamera;
@@ -46,6 +49,11 @@ final class CameraConfigurationManager {
     private Point cameraResolution;//相机分辨率
     private Point bestPreviewSize;
     private Point previewSizeOnScreen;
+    private String capabilityKey;
+    /**
+     * What was negotiated for this camera before, or {@code null}.
+     */
+    private CameraCapabilityCache.Entry capabilities;
 
     CameraConfigurationManager(Context context) {
         this.context = context;
@@ -56,7 +64,6 @@ final class CameraConfigurationManager {
      * 一次从相机读取应用程序所需的值。
      */
     void initFromCameraParameters(OpenCamera camera) {
-        Camera.Parameters parameters = camera.getCamera().getParameters();
         WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
         Display display = manager.getDefaultDisplay();
 
@@ -125,15 +132,21 @@ final class CameraConfigurationManager {
         display.getSize(theScreenResolution);
         screenResolution = theScreenResolution;
         Log.i(TAG, "Screen resolution in current orientation: " + screenResolution);
-        //
-        cameraResolution = CameraConfigurationUtils
-                .findBestPreviewSizeValue(
-                        parameters,
-                        screenResolution);
-
+        //同一设备、相机和屏幕尺寸下直接使用上次协商的预览尺寸
+        capabilityKey = CameraCapabilityCache.keyOf(camera.getIndex(), screenResolution);
+        capabilities = CameraCapabilityCache.getInstance(context).get(capabilityKey);
+        Point negotiated;
+        if (capabilities != null) {
+            negotiated = capabilities.getPreviewSize();
+        } else {
+            negotiated = CameraConfigurationUtils.findBestPreviewSizeValue(
+                    camera.getCamera().getParameters(), screenResolution);
+        }
+        cameraResolution = new Point(negotiated);
         Log.i(TAG, "Camera resolution: " + cameraResolution);
-        bestPreviewSize = CameraConfigurationUtils.findBestPreviewSizeValue(parameters, screenResolution);
-        Log.i(TAG, "Best available preview size: " + bestPreviewSize);
+        bestPreviewSize = new Point(negotiated);
+        Log.i(TAG, "Best available preview size: " + bestPreviewSize
+                + (capabilities != null ? " (cached)" : ""));
 
         boolean isScreenPortrait = screenResolution.x < screenResolution.y;
         boolean isPreviewSizePortrait = bestPreviewSize.x < bestPreviewSize.y;
@@ -156,7 +169,10 @@ final class CameraConfigurationManager {
             return;
         }
 
-        Log.i(TAG, "Initial camera parameters: " + parameters.flatten());
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            // Flattening all parameters builds a long string, only do it when asked for
+            Log.d(TAG, "Initial camera parameters: " + parameters.flatten());
+        }
 
         if (safeMode) {
             Log.w(TAG, "In camera config safe mode -- most settings will not be honored");
@@ -165,11 +181,16 @@ final class CameraConfigurationManager {
 
         initializeTorch(parameters, safeMode);
 
-        CameraConfigurationUtils.setFocus(
-                parameters,
-                ConfigManager.getBoolean(ConfigManager.KEY_AUTO_FOCUS, true),
-                ConfigManager.getBoolean(ConfigManager.KEY_DISABLE_CONTINUOUS_FOCUS, false),
-                safeMode);
+        boolean autoFocus = ConfigManager.getBoolean(ConfigManager.KEY_AUTO_FOCUS, true);
+        boolean disableContinuous = ConfigManager.getBoolean(ConfigManager.KEY_DISABLE_CONTINUOUS_FOCUS, false);
+        int focusSettings = (autoFocus ? FOCUS_AUTO : 0) | (disableContinuous ? FOCUS_DISABLE_CONTINUOUS : 0);
+        String focusMode;
+        if (!safeMode && capabilities != null && capabilities.getFocusSettings() == focusSettings) {
+            focusMode = capabilities.getFocusMode();
+        } else {
+            focusMode = CameraConfigurationUtils.findFocusMode(parameters, autoFocus, disableContinuous, safeMode);
+        }
+        CameraConfigurationUtils.setFocusMode(parameters, focusMode);
 
         if (!safeMode) {
             if (ConfigManager.getBoolean(ConfigManager.KEY_INVERT_SCAN, false)) {
@@ -194,10 +215,24 @@ final class CameraConfigurationManager {
 
         parameters.setPreviewSize(bestPreviewSize.x, bestPreviewSize.y);
 
-        theCamera.setParameters(parameters);
+        try {
+            theCamera.setParameters(parameters);
+        } catch (RuntimeException re) {
+            if (capabilities != null) {
+                // Negotiate again next time
+                CameraCapabilityCache.getInstance(context).remove(capabilityKey);
+                capabilities = null;
+            }
+            throw re;
+        }
 
         theCamera.setDisplayOrientation(cwRotationFromDisplayToCamera);
 
+        if (!safeMode && capabilities != null && capabilities.isConfirmed()
+                && capabilities.getFocusSettings() == focusSettings) {
+            // The camera took all of this before
+            return;
+        }
         Camera.Parameters afterParameters = theCamera.getParameters();
         Camera.Size afterSize = afterParameters.getPreviewSize();
         if (afterSize != null && (bestPreviewSize.x != afterSize.width || bestPreviewSize.y != afterSize.height)) {
@@ -206,6 +241,18 @@ final class CameraConfigurationManager {
             bestPreviewSize.x = afterSize.width;
             bestPreviewSize.y = afterSize.height;
         }
+        if (safeMode) {
+            return;
+        }
+        int maxZoom;
+        if (capabilities != null) {
+            maxZoom = capabilities.getMaxZoom();
+        } else {
+            maxZoom = parameters.isZoomSupported() ? parameters.getMaxZoom() : 0;
+        }
+        capabilities = new CameraCapabilityCache.Entry(bestPreviewSize.x, bestPreviewSize.y,
+                focusSettings, focusMode, maxZoom);
+        CameraCapabilityCache.getInstance(context).put(capabilityKey, capabilities);
     }
 
     Point getBestPreviewSize() {
@@ -224,6 +271,13 @@ final class CameraConfigurationManager {
         return screenResolution;
     }
 
+    /**
+     * @return the highest zoom step of the camera, 0 if it can't zoom, or -1 if not known yet.
+     */
+    int getMaxZoom() {
+        return capabilities == null ? -1 : capabilities.getMaxZoom();
+    }
+
     int getCWNeededRotation() {
         return cwNeededRotation;
     }
@@ -0,0 +1,62 @@
+package com.zht.qrcodescanner.camera;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A preview frame from {@link Camera2Manager}: the Y plane of an {@code ImageReader} image, still
+ * in the camera's buffer rather than copied into a {@code byte[]}. Rows are
+ * {@link #getRowStride()} bytes apart, which may be more than the width, and pixels
+ * {@link #getPixelStride()} bytes apart. Read it with a
+ * {@link com.zht.qrcodescanner.decode.ByteBufferLuminanceSource}.
+ * <p>
+ * Only valid until it is handed back with {@link ScanCamera#releasePreviewFrame(Object)}, which
+ * returns the image to the camera.
+ * <p>
+ * Camera2 预览帧：直接引用相机缓冲区中的 Y 平面，不复制到 byte[]。
+ */
+public abstract class CameraFrame {
+
+    private final ByteBuffer yPlane;
+    private final int rowStride;
+    private final int pixelStride;
+    private final int width;
+    private final int height;
+
+    CameraFrame(ByteBuffer yPlane, int rowStride, int pixelStride, int width, int height) {
+        this.yPlane = yPlane;
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return the luminance, with a position of 0 and a limit covering all rows. Don't change
+     * its position, the buffer is shared.
+     */
+    public ByteBuffer getYPlane() {
+        return yPlane;
+    }
+
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    public int getPixelStride() {
+        return pixelStride;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gives the image back to the camera.
+     */
+    abstract void close();
+
+}
@@ -0,0 +1,114 @@
+package com.zht.qrcodescanner.camera;
+
+import android.graphics.ImageFormat;
+import android.hardware.Camera;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed set of preview buffers which are handed to the camera with
+ * {@link Camera#addCallbackBuffer(byte[])}. Frames delivered through
+ * {@link Camera#setPreviewCallbackWithBuffer(Camera.PreviewCallback)} are leased to the decoder
+ * and must be given back with {@link #release(byte[])}, so that steady-state scanning does not
+ * allocate a new frame for every preview callback.
+ * <p>
+ * 预览帧缓冲池：复用固定数量的预览缓冲区，避免相机每一帧都重新分配 byte[]。
+ */
+@SuppressWarnings("deprecation") // camera APIs
+final class FrameBufferPool {
+
+    private static final String TAG = FrameBufferPool.class.getSimpleName();
+
+    static final int DEFAULT_BUFFER_COUNT = 3;
+
+    private final List<byte[]> buffers = new ArrayList<>();
+    private final List<byte[]> leased = new ArrayList<>();
+    private int bufferCount = DEFAULT_BUFFER_COUNT;
+    private int bufferSize;
+    private Camera camera;
+
+    /**
+     * Sets how many buffers are kept. Takes effect the next time the pool is attached; the pool
+     * only grows, buffers are never dropped while the preview size stays the same.
+     *
+     * @param bufferCount number of preview buffers, at least one more than the number of frames
+     *                    which may be held by the decoder at the same time.
+     */
+    synchronized void setBufferCount(int bufferCount) {
+        this.bufferCount = Math.max(1, bufferCount);
+    }
+
+    /**
+     * Registers every buffer which is not currently leased with the camera. Buffers are
+     * (re)allocated only when the preview size or format changed.
+     */
+    synchronized void attach(Camera camera) {
+        Camera.Parameters parameters = camera.getParameters();
+        Camera.Size previewSize = parameters.getPreviewSize();
+        int bitsPerPixel = ImageFormat.getBitsPerPixel(parameters.getPreviewFormat());
+        if (bitsPerPixel <= 0) {
+            // Go ahead and assume it's NV21 rather than die.
+            bitsPerPixel = ImageFormat.getBitsPerPixel(ImageFormat.NV21);
+        }
+        int size = previewSize.width * previewSize.height * bitsPerPixel / 8;
+        if (size != bufferSize) {
+            Log.i(TAG, "Allocating " + bufferCount + " preview buffers of " + size + " bytes");
+            buffers.clear();
+            leased.clear();
+            bufferSize = size;
+        }
+        while (buffers.size() < bufferCount) {
+            buffers.add(new byte[size]);
+        }
+        this.camera = camera;
+        for (byte[] buffer : buffers) {
+            if (indexOf(leased, buffer) < 0) {
+                camera.addCallbackBuffer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Forgets the camera. Buffers queued in the camera become free again, leased buffers stay
+     * leased until they are released.
+     */
+    synchronized void detach() {
+        camera = null;
+    }
+
+    /**
+     * Marks a buffer delivered by the camera as owned by the caller until it is released.
+     */
+    synchronized void lease(byte[] buffer) {
+        if (buffer != null && indexOf(buffers, buffer) >= 0 && indexOf(leased, buffer) < 0) {
+            leased.add(buffer);
+        }
+    }
+
+    /**
+     * Gives a buffer back to the camera so it can be filled with a later preview frame.
+     */
+    synchronized void release(byte[] buffer) {
+        int index = indexOf(leased, buffer);
+        if (index < 0) {
+            // Not ours, or already given back
+            return;
+        }
+        leased.remove(index);
+        if (camera != null) {
+            camera.addCallbackBuffer(buffer);
+        }
+    }
+
+    private static int indexOf(List<byte[]> list, byte[] buffer) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == buffer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
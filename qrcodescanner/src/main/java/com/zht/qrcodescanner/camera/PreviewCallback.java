@@ -22,41 +22,88 @@ import android.os.Handler;
 import android.os.Message;
 import android.util.Log;
 
+import com.zht.qrcodescanner.ScanMetrics;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
 @SuppressWarnings("deprecation") // camera APIs
 final class PreviewCallback implements Camera.PreviewCallback {
 
     private static final String TAG = PreviewCallback.class.getSimpleName();
 
     private final CameraConfigurationManager configManager;
-    private Handler previewHandler;
-    private int previewMessage;
+    private final FrameBufferPool bufferPool;
+    /**
+     * Frames which were asked for, in order. Each preview frame answers the oldest request.
+     */
+    private final Queue<Message> pendingRequests = new ArrayDeque<>();
+    /**
+     * Set while the preview stream is recorded, see {@link PreviewRecorder}.
+     */
+    private volatile PreviewRecorder recorder;
 
-    PreviewCallback(CameraConfigurationManager configManager) {
+    PreviewCallback(CameraConfigurationManager configManager, FrameBufferPool bufferPool) {
         this.configManager = configManager;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Queues a request for one preview frame, which will be sent to the given handler.
+     */
+    synchronized void addRequest(Handler previewHandler, int previewMessage) {
+        pendingRequests.add(previewHandler.obtainMessage(previewMessage));
     }
 
-    void setHandler(Handler previewHandler, int previewMessage) {
-        this.previewHandler = previewHandler;
-        this.previewMessage = previewMessage;
+    void setRecorder(PreviewRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Drops all frame requests which were not answered yet.
+     */
+    synchronized void clearRequests() {
+        Message message;
+        while ((message = pendingRequests.poll()) != null) {
+            message.recycle();
+        }
     }
 
     /**
      * 在预览框架上Camera中的代码
+     * <p>
+     * The frame buffer is leased from the {@link FrameBufferPool}. If nobody asked for a frame it
+     * goes straight back to the camera, otherwise the receiver must release it once done.
      */
     @Override
     public void onPreviewFrame(byte[] data, Camera camera) {
+        if (data == null) {
+            Log.w(TAG, "Got preview callback without data, preview buffers too small?");
+            return;
+        }
+        //统计相机出帧间隔
+        long now = System.nanoTime();
+        ScanMetrics.getInstance().recordFrameArrival(now);
+        bufferPool.lease(data);
         Point cameraResolution = configManager.getCameraResolution();
-        Handler thePreviewHandler = previewHandler;
-        if (cameraResolution != null && thePreviewHandler != null) {
-            Message message = thePreviewHandler.obtainMessage(
-                    previewMessage, //int what,
-                    cameraResolution.x,//int arg1
-                    cameraResolution.y,//int arg2
-                    data);//Object obj
+        PreviewRecorder theRecorder = recorder;
+        if (theRecorder != null && cameraResolution != null) {
+            //录制预览帧，用于离线回放
+            theRecorder.offer(data, cameraResolution.x, cameraResolution.y, now);
+        }
+        Message message = null;
+        if (cameraResolution != null) {
+            synchronized (this) {
+                message = pendingRequests.poll();
+            }
+        }
+        if (message != null) {
+            message.arg1 = cameraResolution.x;
+            message.arg2 = cameraResolution.y;
+            message.obj = data;
             message.sendToTarget();
-            previewHandler = null;
         } else {
-            Log.d(TAG, "Got preview callback, but no handler or resolution available");
+            bufferPool.release(data);
         }
     }
 
@@ -0,0 +1,157 @@
+package com.zht.qrcodescanner.camera;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import com.zht.qrcodescanner.decode.CropRect;
+import com.zht.qrcodescanner.decode.FrameRecorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Records the preview stream to app storage for replay on a workstation, see
+ * {@link FrameRecorder} and the batch module's {@code ReplayMain}, together with the framing rect
+ * each frame was decoded in.
+ * <p>
+ * The camera thread only copies a frame into one of a few spare buffers; the file is written on a
+ * thread of its own. If the writer falls behind, frames are dropped rather than the preview
+ * stalled; the recorded timestamps still tell when each frame arrived.
+ * <p>
+ * 录制预览帧到应用存储，用于在电脑上回放、复现现场问题。
+ */
+final class PreviewRecorder {
+
+    private static final String TAG = PreviewRecorder.class.getSimpleName();
+
+    private static final int MAX_PENDING_FRAMES = 3;
+
+    private final File file;
+    private final FrameRecorder recorder;
+    private final ScanCamera camera;
+    private final Handler handler;
+    private final Queue<byte[]> spareBuffers = new ArrayDeque<>();
+    private int pendingFrames;
+    private int droppedFrames;
+    private volatile boolean stopped;
+    /**
+     * Only used on the writer thread.
+     */
+    private boolean full;
+
+    private PreviewRecorder(File file, FrameRecorder recorder, ScanCamera camera) {
+        this.file = file;
+        this.recorder = recorder;
+        this.camera = camera;
+        HandlerThread thread = new HandlerThread("PreviewRecorder");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Starts a new recording, named after the current time, in the app's external files
+     * directory, or its internal one if there is no external storage.
+     *
+     * @return the recorder, or {@code null} if the file could not be created.
+     */
+    static PreviewRecorder start(Context context, ScanCamera camera, int maxFrames) {
+        File directory = context.getExternalFilesDir(null);
+        if (directory == null) {
+            directory = context.getFilesDir();
+        }
+        File file = new File(directory, "frames-" + System.currentTimeMillis() + ".qrfr");
+        try {
+            FrameRecorder recorder = new FrameRecorder(file, maxFrames);
+            Log.i(TAG, "Recording up to " + maxFrames + " preview frames to " + file);
+            return new PreviewRecorder(file, recorder, camera);
+        } catch (IOException ioe) {
+            Log.w(TAG, "Could not record preview frames to " + file, ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Queues a preview frame for writing. Called on the camera thread; copies the frame, so the
+     * preview buffer may be reused as soon as this returns.
+     */
+    void offer(byte[] data, int width, int height, long timestampNanos) {
+        if (stopped) {
+            return;
+        }
+        byte[] copy;
+        synchronized (this) {
+            if (pendingFrames == MAX_PENDING_FRAMES) {
+                droppedFrames++;
+                return;
+            }
+            pendingFrames++;
+            copy = spareBuffers.poll();
+        }
+        int length = width * height * 3 / 2;
+        if (copy == null || copy.length < length) {
+            copy = new byte[length];
+        }
+        System.arraycopy(data, 0, copy, 0, length);
+        Rect rect = camera.getFramingRectInPreview();
+        final CropRect crop = rect == null ? null : new CropRect(rect.left, rect.top, rect.width(), rect.height());
+        final byte[] frame = copy;
+        final int frameWidth = width;
+        final int frameHeight = height;
+        final long timestamp = timestampNanos;
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                write(frame, frameWidth, frameHeight, timestamp, crop);
+            }
+        });
+    }
+
+    private void write(byte[] frame, int width, int height, long timestampNanos, CropRect crop) {
+        try {
+            if (!full && !recorder.append(frame, width, height, timestampNanos, crop)) {
+                Log.i(TAG, "Recording is full: " + file);
+                full = true;
+                stopped = true;
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Could not record preview frame, stopping", e);
+            full = true;
+            stopped = true;
+        }
+        synchronized (this) {
+            pendingFrames--;
+            spareBuffers.add(frame);
+        }
+    }
+
+    /**
+     * Writes the frames still queued, then closes the file.
+     */
+    void stop() {
+        stopped = true;
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    recorder.close();
+                } catch (IOException ioe) {
+                    Log.w(TAG, "Could not close " + file, ioe);
+                }
+                Log.i(TAG, "Recorded " + recorder.getFrameCount() + " preview frames to " + file
+                        + ", dropped " + getDroppedFrames());
+                Looper.myLooper().quit();
+            }
+        });
+    }
+
+    private synchronized int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2008 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zht.qrcodescanner.camera;
+
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.util.Log;
+import android.view.SurfaceHolder;
+import android.view.View;
+
+import java.io.IOException;
+
+/**
+ * The camera as the scanner sees it: something which shows a preview on a surface, hands preview
+ * frames to the decoder on request and knows where the framing rect is. {@link CameraManager}
+ * is the legacy {@link android.hardware.Camera} backend, {@link Camera2Manager} the Camera2 one.
+ * <p>
+ * A frame requested with {@link #requestPreviewFrame(Handler, int)} arrives as the message's
+ * {@code obj}: an NV21 {@code byte[]} from the legacy backend, a {@link CameraFrame} from Camera2.
+ * Either way it goes back with {@link #releasePreviewFrame(Object)}.
+ * <p>
+ * 相机抽象：预览、按需向解码器提供预览帧、计算扫码框。
+ */
+public abstract class ScanCamera {
+
+    private static final String TAG = ScanCamera.class.getSimpleName();
+
+    private static final int MIN_FRAME_WIDTH = 240;//最小宽度
+    private static final int MIN_FRAME_HEIGHT = 240;//最小高度
+    private static final int MAX_FRAME_WIDTH = 1920; //1200 = 5/8 * 1920
+    private static final int MAX_FRAME_HEIGHT = 1080; // 675= 5/8 * 1080
+
+    private View mScanRange;
+    private Rect framingRect;
+    private Rect framingRectInPreview;
+    private int requestedFramingRectWidth;
+    private int requestedFramingRectHeight;
+
+    /**
+     * Opens the camera driver and initializes the hardware parameters.
+     *
+     * @param holder The surface object which the camera will draw preview frames into.
+     * @throws IOException Indicates the camera driver failed to open.
+     */
+    public void openDriver(SurfaceHolder holder) throws IOException {
+        // Not synchronized: each step locks on its own, and Camera2 waits for the camera unlocked
+        openCamera();
+        setPreviewDisplay(holder);
+    }
+
+    /**
+     * Opens the camera driver and initializes the hardware parameters, without a surface yet. Safe
+     * to call on a background thread, so the camera can open while the surface is being created;
+     * {@link #setPreviewDisplay(SurfaceHolder)} then completes {@link #openDriver(SurfaceHolder)}.
+     * 在后台线程打开相机，无需等待 surface 创建完成。
+     *
+     * @throws IOException Indicates the camera driver failed to open.
+     */
+    public abstract void openCamera() throws IOException;
+
+    /**
+     * @param holder The surface object which the camera will draw preview frames into.
+     * @throws IOException if the camera is not open, or rejected the surface.
+     */
+    public abstract void setPreviewDisplay(SurfaceHolder holder) throws IOException;
+
+    public abstract boolean isOpen();
+
+    /**
+     * Closes the camera driver if still in use.
+     */
+    public abstract void closeDriver();
+
+    /**
+     * Asks the camera hardware to begin drawing preview frames to the screen.
+     */
+    public abstract void startPreview();
+
+    /**
+     * Tells the camera to stop drawing preview frames.
+     */
+    public abstract void stopPreview();
+
+    /**
+     * @param newSetting if {@code true}, light should be turned on if currently off. And vice versa.
+     */
+    public abstract void setTorch(boolean newSetting);
+
+    /**
+     * A single preview frame will be returned to the handler supplied, as message.obj, with width
+     * and height encoded as message.arg1 and message.arg2, respectively. The frame is pooled, the
+     * receiver must hand it back with {@link #releasePreviewFrame(Object)} once it is no longer
+     * used.
+     * <p>
+     * Several requests may be outstanding at the same time, e.g. one for each decode worker; they
+     * are answered by consecutive preview frames in the order they were made.
+     *
+     * @param handler The handler to send the message to.
+     * @param message The what field of the message to be sent.
+     */
+    public abstract void requestPreviewFrame(Handler handler, int message);
+
+    /**
+     * Returns a frame delivered by {@link #requestPreviewFrame(Handler, int)} to the camera, so the
+     * buffer can be filled again. Safe to call from any thread, also after the preview stopped.
+     *
+     * @param frame The message.obj which was received.
+     */
+    public abstract void releasePreviewFrame(Object frame);
+
+    /**
+     * Sets the number of preview buffers which are cycled between the camera and the decoder.
+     * Takes effect on the next {@link #startPreview()}.
+     *
+     * @param count number of buffers, should exceed the number of frames decoded at the same time.
+     */
+    public abstract void setPreviewBufferCount(int count);
+
+    /**
+     * Allows third party apps to specify the camera ID, rather than determine
+     * it automatically based on available cameras and their orientation.
+     *
+     * @param cameraId camera ID of the camera to use. A negative value means "no preference".
+     */
+    public abstract void setManualCameraId(int cameraId);
+
+    /**
+     * 处理手势放大/缩小功能
+     *
+     * @param isZoomIn
+     */
+    public abstract void handleZoom(boolean isZoomIn);
+
+    /**
+     * @return how far to turn a preview frame clockwise for it to look as on the screen, in
+     * degrees; 0 before the camera was opened.
+     */
+    public abstract int getFrameRotation();
+
+    /**
+     * @return the screen resolution, or {@code null} before the camera was opened.
+     */
+    protected abstract Point getScreenResolution();
+
+    /**
+     * @return the preview size, in the camera's orientation, or {@code null} before the camera
+     * was opened.
+     */
+    protected abstract Point getCameraResolution();
+
+    /**
+     * Applies a framing rect asked for with {@link #setManualFramingRect(int, int)} before the
+     * camera was open. Call once the screen resolution is known.
+     */
+    protected synchronized void applyRequestedFramingRect() {
+        if (requestedFramingRectWidth > 0 && requestedFramingRectHeight > 0) {
+            setManualFramingRect(requestedFramingRectWidth, requestedFramingRectHeight);
+            requestedFramingRectWidth = 0;
+            requestedFramingRectHeight = 0;
+        }
+    }
+
+    /**
+     * Make sure to clear these each time the camera is closed, so that any scanning rect
+     * requested by intent is forgotten.
+     */
+    protected synchronized void resetFramingRect() {
+        framingRect = null;
+        framingRectInPreview = null;
+    }
+
+    /**
+     * Calculates the framing rect which the UI should draw to show the user where to place the
+     * barcode. This target helps with alignment as well as forces the user to hold the device
+     * far enough away to ensure the image will be in focus.
+     *
+     * @return The rectangle to draw on screen in window coordinates.
+     */
+    /**
+     * 获取扫码范围，中间方框的大小
+     */
+    public synchronized Rect getFramingRect() {
+        if (framingRect == null) {
+            if (!isOpen()) {
+                return null;
+            }
+
+            if (mScanRange != null) {
+
+                int[] location = new int[2];
+                mScanRange.getLocationOnScreen(location);
+                int x = location[0];
+                int y = location[1];
+
+                if (x != 0 && y != 0) {
+                    int width = mScanRange.getWidth();
+                    int height = mScanRange.getHeight();
+                    framingRect = new Rect(
+                            x,
+                            y,
+                            x + width,
+                            y + height);
+                    return framingRect;
+                }
+            }
+
+
+            Point screenResolution = getScreenResolution();
+            if (screenResolution == null) {
+                // Called early, before init even finished
+                return null;
+            }
+
+            int width = findDesiredDimensionInWidthRange(
+                    screenResolution.x,
+                    MIN_FRAME_WIDTH,
+                    MAX_FRAME_WIDTH);
+            /*int height = findDesiredDimensionInHeightRange(
+                    screenResolution.y,
+                    MIN_FRAME_HEIGHT,
+                    MAX_FRAME_HEIGHT);*/
+            int height = width;
+            int topOffset = findDesiredDimensionInHeightRange(
+                    screenResolution.y,
+                    MIN_FRAME_HEIGHT,
+                    MAX_FRAME_HEIGHT);
+
+            //确保是正方形的框，zxing最坑的地方了，不看源码还真不知道影响
+//            int min = Math.min(width, height);
+//            width = min;
+//            height = min;
+            int leftOffset = (screenResolution.x - width) / 2;
+            framingRect = new Rect(
+                    leftOffset,
+                    topOffset,
+                    leftOffset + width,
+                    topOffset + height);
+            Log.d(TAG, "Calculated framing rect: " + framingRect);
+        }
+        return framingRect;
+    }
+
+    private static int findDesiredDimensionInRange(int resolution, int hardMin, int hardMax) {
+        int dim = 5 * resolution / 8; // Target 5/8 of each dimension
+        if (dim < hardMin) {
+            return hardMin;
+        }
+        return Math.min(dim, hardMax);
+    }
+
+    /**
+     * 指定宽度范围
+     */
+    private static int findDesiredDimensionInWidthRange(int resolution, int hardMin, int hardMax) {
+        int dim = 258 * resolution / 375; // Target 5/8 of each dimension
+        if (dim < hardMin) {
+            return hardMin;
+        }
+        return Math.min(dim, hardMax);
+    }
+
+    /**
+     * 指定高度范围
+     */
+    private static int findDesiredDimensionInHeightRange(int resolution, int hardMin, int hardMax) {
+        int dim = 164 * resolution / 668; // Target 5/8 of each dimension
+        if (dim < hardMin) {
+            return hardMin;
+        }
+        return Math.min(dim, hardMax);
+    }
+
+
+    /**
+     * Like {@link #getFramingRect} but coordinates are in terms of the preview frame,
+     * not UI / screen.
+     *
+     * @return {@link Rect} expressing barcode scan area in terms of the preview size
+     */
+    public synchronized Rect getFramingRectInPreview() {
+        if (framingRectInPreview == null) {
+            Rect framingRect = getFramingRect();
+            if (framingRect == null) {
+                return null;
+            }
+            Rect rect = new Rect(framingRect);
+            Point cameraResolution = getCameraResolution();
+            Point screenResolution = getScreenResolution();
+            if (cameraResolution == null || screenResolution == null) {
+                // Called early, before init even finished
+                return null;
+            }
+            //此处源代码有bug
+            //相机的旋转角度和手机屏幕的旋转角度是不一致的
+            //导致 cameraResolution的xy和screenResolution的xy有出入
+            //在此进行修复
+            boolean isCameraAspectRatio = cameraResolution.x < cameraResolution.y;
+            boolean isScreenAspectRatio = screenResolution.x < screenResolution.y;
+            if (isCameraAspectRatio == isScreenAspectRatio) {
+                rect.left = framingRect.left * cameraResolution.x / screenResolution.x;
+                rect.right = framingRect.right * cameraResolution.x / screenResolution.x;
+                rect.top = framingRect.top * cameraResolution.y / screenResolution.y;
+                rect.bottom = framingRect.bottom * cameraResolution.y / screenResolution.y;
+            } else {
+                rect.left = framingRect.top * cameraResolution.x / screenResolution.y;
+                rect.right = framingRect.bottom * cameraResolution.x / screenResolution.y;
+                rect.top = framingRect.left * cameraResolution.y / screenResolution.x;
+                rect.bottom = framingRect.right * cameraResolution.y / screenResolution.x;
+            }
+            framingRectInPreview = rect;
+        }
+        return framingRectInPreview;
+    }
+
+    /**
+     * Allows third party apps to specify the scanning rectangle dimensions, rather than determine
+     * them automatically based on screen resolution.
+     *
+     * @param width  The width in pixels to scan.
+     * @param height The height in pixels to scan.
+     */
+    public synchronized void setManualFramingRect(int width, int height) {
+        Point screenResolution = getScreenResolution();
+        if (screenResolution != null) {
+            if (width > screenResolution.x) {
+                width = screenResolution.x;
+            }
+            if (height > screenResolution.y) {
+                height = screenResolution.y;
+            }
+            int leftOffset = (screenResolution.x - width) / 2;
+            int topOffset = (screenResolution.y - height) / 2;
+            framingRect = new Rect(leftOffset, topOffset, leftOffset + width, topOffset + height);
+            Log.d(TAG, "Calculated manual framing rect: " + framingRect);
+            framingRectInPreview = null;
+        } else {
+            requestedFramingRectWidth = width;
+            requestedFramingRectHeight = height;
+        }
+    }
+
+    public void setScanRangeRect(View scanRange) {
+        if (scanRange == null) {
+            return;
+        }
+        mScanRange = scanRange;
+
+//        int[] location = new int[2];
+//        mScanRange.getLocationOnScreen(location);
+//        int x = location[0];
+//        int y = location[1];
+//        Log.e("test", "Screenx--->" + x + "  " + "Screeny--->" + y);
+//        mScanRange.getLocationInWindow(location);
+//        x = location[0];
+//        y = location[1];
+//        Log.e("test", "Window--->" + x + "  " + "Window--->" + y);
+
+    }
+
+}
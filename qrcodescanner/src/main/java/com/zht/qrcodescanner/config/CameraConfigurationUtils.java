@@ -59,6 +59,18 @@ public final class CameraConfigurationUtils {
                                 boolean autoFocus,
                                 boolean disableContinuous,
                                 boolean safeMode) {
+        setFocusMode(parameters, findFocusMode(parameters, autoFocus, disableContinuous, safeMode));
+    }
+
+    /**
+     * 选择对焦模式，不修改参数
+     *
+     * @return the focus mode to use, or {@code null} if none of the wanted ones is supported.
+     */
+    public static String findFocusMode(Camera.Parameters parameters,
+                                       boolean autoFocus,
+                                       boolean disableContinuous,
+                                       boolean safeMode) {
         List<String> supportedFocusModes = parameters.getSupportedFocusModes();
         String focusMode = null;
         if (autoFocus) {
@@ -81,6 +93,14 @@ public final class CameraConfigurationUtils {
                     Camera.Parameters.FOCUS_MODE_MACRO,
                     Camera.Parameters.FOCUS_MODE_EDOF);
         }
+        return focusMode;
+    }
+
+    /**
+     * @param focusMode a supported focus mode, see {@link #findFocusMode}; {@code null} leaves
+     *                  the focus mode alone.
+     */
+    public static void setFocusMode(Camera.Parameters parameters, String focusMode) {
         if (focusMode != null) {
             if (focusMode.equals(parameters.getFocusMode())) {
                 Log.i(TAG, "Focus mode already set to " + focusMode);
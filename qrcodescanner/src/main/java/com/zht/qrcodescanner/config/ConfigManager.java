@@ -60,6 +60,48 @@ public class ConfigManager {
     public static final String KEY_DISABLE_BARCODE_SCENE_MODE = "preferences_disable_barcode_scene_mode";
     //自动打开网页
     public static final String KEY_AUTO_OPEN_WEB = "preferences_auto_open_web";
+    //生成扫描结果缩略图
+    public static final String KEY_RESULT_THUMBNAIL = "preferences_result_thumbnail";
+    //流水线深度（解码时预先请求的帧数）
+    public static final String KEY_PIPELINE_DEPTH = "preferences_pipeline_depth";
+    //多码识别（一帧返回所有条码）
+    public static final String KEY_MULTI_DECODE = "preferences_multi_decode";
+    //多码识别：每帧最多识别的条码数
+    public static final String KEY_MULTI_DECODE_MAX_CODES = "preferences_multi_decode_max_codes";
+    //多码识别：每帧分区搜索的时间上限（毫秒），先进行的二维码整帧识别不受此限制
+    public static final String KEY_MULTI_DECODE_BUDGET_MS = "preferences_multi_decode_budget_ms";
+    //批量扫描：重复条码的忽略时间（毫秒）
+    public static final String KEY_BULK_DUPLICATE_WINDOW_MS = "preferences_bulk_duplicate_window_ms";
+    //批量扫描：去重时最多记住的条码数
+    public static final String KEY_BULK_DUPLICATE_CACHE_SIZE = "preferences_bulk_duplicate_cache_size";
+    //ROI 跟踪（只解码上一帧条码附近的区域）
+    public static final String KEY_ROI_TRACKING = "preferences_roi_tracking";
+    //图像金字塔层数（先以 1/2、1/4 分辨率解码，失败后再用原始分辨率）
+    public static final String KEY_DECODE_PYRAMID_LEVELS = "preferences_decode_pyramid_levels";
+    //帧质量预过滤（跳过过暗、对比度低或模糊的帧，仅旧相机）
+    public static final String KEY_FRAME_QUALITY_FILTER = "preferences_frame_quality_filter";
+    //使用 Camera2（Android 5.0 及以上，预览帧不复制到 byte[]）
+    public static final String KEY_CAMERA2 = "preferences_camera2";
+    //录制预览帧到应用存储（用于离线回放）
+    public static final String KEY_RECORD_FRAMES = "preferences_record_frames";
+    //录制预览帧：最多录制的帧数
+    public static final String KEY_RECORD_MAX_FRAMES = "preferences_record_max_frames";
+    //解码结果缓存（几乎相同的帧直接使用上次的解码结果，仅旧相机）
+    public static final String KEY_RESULT_CACHE = "preferences_result_cache";
+    //解码结果缓存：最多缓存的帧数
+    public static final String KEY_RESULT_CACHE_SIZE = "preferences_result_cache_size";
+    //解码结果缓存：视为相同帧的最大哈希差异（64 位中不同的位数）
+    public static final String KEY_RESULT_CACHE_MAX_DISTANCE = "preferences_result_cache_max_distance";
+    //解码结果缓存：结果的有效时间（毫秒）
+    public static final String KEY_RESULT_CACHE_TTL_MS = "preferences_result_cache_ttl_ms";
+    //自适应二值化（按帧的对比度与光照均匀程度选择 GlobalHistogramBinarizer 或 HybridBinarizer）
+    public static final String KEY_ADAPTIVE_BINARIZER = "preferences_adaptive_binarizer";
+    //解码参数升级：每帧的解码时间预算（毫秒），发现定位点却未能解码时在预算内用 TRY_HARDER 重试，0 为不重试
+    public static final String KEY_HINT_ESCALATION_BUDGET_MS = "preferences_hint_escalation_budget_ms";
+    //软件反色识别（黑背景白条码）：正常解码失败时每隔一帧以反色方式再解码一次，不依赖相机的负片效果
+    public static final String KEY_SOFTWARE_INVERT_SCAN = "preferences_software_invert_scan";
+    //按屏幕方向扫描一维码：竖屏时在旋转后的视图中（不复制帧数据）再逐行扫描一次一维码
+    public static final String KEY_ROTATED_SCAN = "preferences_rotated_scan";
 
     private Map<String, Object> configList;
 
@@ -103,9 +145,9 @@ public class ConfigManager {
 //      //闪光灯模式（是否开启闪光灯）
         configList.put(KEY_FRONT_LIGHT_MODE, "OFF");
 //      //批量扫描模式
-//      configList.put(KEY_BULK_MODE, new Boolean(false));
+        configList.put(KEY_BULK_MODE, new Boolean(false));
 //      //保留重复记录
-//      configList.put(KEY_REMEMBER_DUPLICATES, new Boolean(false));
+        configList.put(KEY_REMEMBER_DUPLICATES, new Boolean(false));
 //      //存入历史记录
 //      configList.put(KEY_ENABLE_HISTORY, new Boolean(true));
 //      //检索更多信息
@@ -128,6 +170,48 @@ public class ConfigManager {
         configList.put(KEY_DISABLE_BARCODE_SCENE_MODE, new Boolean(true));
 //      //自动打开网页
 //      configList.put(KEY_AUTO_OPEN_WEB, new Boolean(false));
+        //生成扫描结果缩略图
+        configList.put(KEY_RESULT_THUMBNAIL, new Boolean(false));
+        //流水线深度（解码时预先请求的帧数）
+        configList.put(KEY_PIPELINE_DEPTH, Integer.valueOf(1));
+        //多码识别（一帧返回所有条码）
+        configList.put(KEY_MULTI_DECODE, new Boolean(false));
+        //多码识别：每帧最多识别的条码数
+        configList.put(KEY_MULTI_DECODE_MAX_CODES, Integer.valueOf(10));
+        //多码识别：每帧分区搜索的时间上限（毫秒），先进行的二维码整帧识别不受此限制
+        configList.put(KEY_MULTI_DECODE_BUDGET_MS, Integer.valueOf(150));
+        //批量扫描：重复条码的忽略时间（毫秒）
+        configList.put(KEY_BULK_DUPLICATE_WINDOW_MS, Integer.valueOf(3000));
+        //批量扫描：去重时最多记住的条码数
+        configList.put(KEY_BULK_DUPLICATE_CACHE_SIZE, Integer.valueOf(512));
+        //ROI 跟踪（只解码上一帧条码附近的区域）
+        configList.put(KEY_ROI_TRACKING, new Boolean(true));
+        //图像金字塔层数（先以 1/2、1/4 分辨率解码，失败后再用原始分辨率）
+        configList.put(KEY_DECODE_PYRAMID_LEVELS, Integer.valueOf(1));
+        //帧质量预过滤（跳过过暗、对比度低或模糊的帧，仅旧相机）
+        configList.put(KEY_FRAME_QUALITY_FILTER, new Boolean(false));
+        //使用 Camera2（Android 5.0 及以上，预览帧不复制到 byte[]）
+        configList.put(KEY_CAMERA2, new Boolean(false));
+        //录制预览帧到应用存储（用于离线回放）
+        configList.put(KEY_RECORD_FRAMES, new Boolean(false));
+        //录制预览帧：最多录制的帧数
+        configList.put(KEY_RECORD_MAX_FRAMES, Integer.valueOf(300));
+        //解码结果缓存（几乎相同的帧直接使用上次的解码结果，仅旧相机）
+        configList.put(KEY_RESULT_CACHE, new Boolean(false));
+        //解码结果缓存：最多缓存的帧数
+        configList.put(KEY_RESULT_CACHE_SIZE, Integer.valueOf(8));
+        //解码结果缓存：视为相同帧的最大哈希差异（64 位中不同的位数）
+        configList.put(KEY_RESULT_CACHE_MAX_DISTANCE, Integer.valueOf(6));
+        //解码结果缓存：结果的有效时间（毫秒）
+        configList.put(KEY_RESULT_CACHE_TTL_MS, Integer.valueOf(500));
+        //自适应二值化（按帧的对比度与光照均匀程度选择 GlobalHistogramBinarizer 或 HybridBinarizer）
+        configList.put(KEY_ADAPTIVE_BINARIZER, new Boolean(false));
+        //解码参数升级：每帧的解码时间预算（毫秒），发现定位点却未能解码时在预算内用 TRY_HARDER 重试，0 为不重试
+        configList.put(KEY_HINT_ESCALATION_BUDGET_MS, Integer.valueOf(0));
+        //软件反色识别（黑背景白条码）：正常解码失败时每隔一帧以反色方式再解码一次，不依赖相机的负片效果
+        configList.put(KEY_SOFTWARE_INVERT_SCAN, new Boolean(false));
+        //按屏幕方向扫描一维码：竖屏时在旋转后的视图中（不复制帧数据）再逐行扫描一次一维码
+        configList.put(KEY_ROTATED_SCAN, new Boolean(false));
 
 
     }
@@ -144,6 +228,14 @@ public class ConfigManager {
         return defValue;
     }
 
+    public static int getInt(String key, int defValue) {
+        Object value = getInstance().getConfigList().get(key);
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        return defValue;
+    }
+
     public static Boolean getBoolean(String key, @Nullable boolean defValue) {
         Object value = getInstance().getConfigList().get(key);
         if (value != null && value instanceof Boolean) {
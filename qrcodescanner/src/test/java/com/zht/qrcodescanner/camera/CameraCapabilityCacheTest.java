@@ -0,0 +1,144 @@
+package com.zht.qrcodescanner.camera;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The cache file: what is put is read back by the next process, and what the camera rejected is
+ * forgotten for good.
+ */
+public class CameraCapabilityCacheTest {
+
+    private static final String BACK = "google/Pixel/28/0/1080x1920";
+    private static final String FRONT = "google/Pixel/28/1/1080x1920";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file() {
+        return new File(folder.getRoot(), "camera_capabilities.bin");
+    }
+
+    /**
+     * The cache as the next process finds it.
+     */
+    private CameraCapabilityCache reload() {
+        CameraCapabilityCache cache = new CameraCapabilityCache(file());
+        cache.load();
+        return cache;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] data = new byte[(int) in.length()];
+            in.readFully(data);
+            return data;
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void readsBackWhatWasPut() throws IOException {
+        CameraCapabilityCache cache = new CameraCapabilityCache(file());
+        cache.put(BACK, new CameraCapabilityCache.Entry(1920, 1080, 3, "continuous-picture", 60));
+        cache.put(FRONT, new CameraCapabilityCache.Entry(1280, 720, 1, null, 0));
+        assertTrue(cache.get(BACK).isConfirmed());
+        byte[] written = read(file());
+
+        CameraCapabilityCache loaded = reload();
+        CameraCapabilityCache.Entry back = loaded.get(BACK);
+        assertNotNull(back);
+        assertEquals(3, back.getFocusSettings());
+        assertEquals("continuous-picture", back.getFocusMode());
+        assertEquals(60, back.getMaxZoom());
+        CameraCapabilityCache.Entry front = loaded.get(FRONT);
+        assertNotNull(front);
+        assertEquals(1, front.getFocusSettings());
+        assertNull(front.getFocusMode());
+        assertEquals(0, front.getMaxZoom());
+        // Not trusted before the camera took it again
+        assertFalse(back.isConfirmed());
+        assertFalse(front.isConfirmed());
+
+        // Put again in the same order, the file is written the same, preview sizes included
+        loaded.put(BACK, back);
+        loaded.put(FRONT, front);
+        assertTrue(back.isConfirmed());
+        assertArrayEquals(written, read(file()));
+    }
+
+    @Test
+    public void forgetsAnEntryTheCameraRejected() {
+        CameraCapabilityCache cache = new CameraCapabilityCache(file());
+        cache.put(BACK, new CameraCapabilityCache.Entry(1920, 1080, 1, "auto", 30));
+        cache.put(FRONT, new CameraCapabilityCache.Entry(1280, 720, 1, "auto", 0));
+
+        CameraCapabilityCache loaded = reload();
+        loaded.remove(BACK);
+        assertNull(loaded.get(BACK));
+        assertNull(reload().get(BACK));
+        assertNotNull(reload().get(FRONT));
+    }
+
+    @Test
+    public void keepsTheLatestEntries() {
+        CameraCapabilityCache cache = new CameraCapabilityCache(file());
+        for (int i = 0; i <= CameraCapabilityCache.MAX_ENTRIES; i++) {
+            cache.put("camera " + i, new CameraCapabilityCache.Entry(640, 480, 0, null, i));
+        }
+        CameraCapabilityCache loaded = reload();
+        assertNull(loaded.get("camera 0"));
+        assertEquals(1, loaded.get("camera 1").getMaxZoom());
+        assertEquals(CameraCapabilityCache.MAX_ENTRIES,
+                loaded.get("camera " + CameraCapabilityCache.MAX_ENTRIES).getMaxZoom());
+    }
+
+    @Test
+    public void startsEmptyWithoutAFile() {
+        assertNull(reload().get(BACK));
+    }
+
+    @Test
+    public void ignoresAFileOfAnotherVersion() throws IOException {
+        new CameraCapabilityCache(file()).put(BACK, new CameraCapabilityCache.Entry(1920, 1080, 1, "auto", 30));
+        RandomAccessFile out = new RandomAccessFile(file(), "rw");
+        try {
+            out.seek(4);
+            out.writeInt(99);
+        } finally {
+            out.close();
+        }
+        assertNull(reload().get(BACK));
+    }
+
+    @Test
+    public void ignoresATruncatedFile() throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file()));
+        try {
+            out.writeInt(0x51524343);
+            out.writeInt(1);
+            out.writeByte(2);
+            out.writeUTF(BACK);
+        } finally {
+            out.close();
+        }
+        assertNull(reload().get(BACK));
+    }
+
+}